@@ -0,0 +1,82 @@
+package com.thoughtpropulsion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ Fanning one element out to every subscriber: a broadcast channel (one put, then each subscriber
+ reads) against a channel per subscriber (a put and a get each). Called from the benchmark
+ thread, so this is the channels' cost without the scheduling.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadcastBenchmark {
+
+  @Param({SchedulerUnderTest.TEST, SchedulerUnderTest.WORK_STEALING})
+  public String scheduler;
+
+  @Param({"1", "16", "256"})
+  public int subscribers;
+
+  private static final Integer VALUE = 42;
+
+  private SchedulerUnderTest underTest;
+  private ChannelBroadcast<Integer> broadcast;
+  private ChannelReading<Integer>[] subscriptions;
+  private ChannelBiDirectional<Integer>[] channels;
+  private long sum;
+
+  @SuppressWarnings("unchecked")
+  @Setup
+  public void setup() {
+    underTest = new SchedulerUnderTest(scheduler);
+    broadcast = underTest.scheduler.createBroadcastChannel(Integer.class, 16);
+    subscriptions = new ChannelReading[subscribers];
+    channels = new ChannelBiDirectional[subscribers];
+    for (int i = 0; i < subscribers; i++) {
+      subscriptions[i] = broadcast.subscribe();
+      channels[i] = underTest.scheduler.createBoundedChannel(Integer.class, 16);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    underTest.close();
+  }
+
+  @Benchmark
+  public long broadcast() {
+    broadcast.getWriting().put(VALUE);
+    for (final ChannelReading<Integer> subscription : subscriptions) {
+      sum += subscription.get();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long channelPerSubscriber() {
+    for (final ChannelBiDirectional<Integer> channel : channels) {
+      channel.getWriting().put(VALUE);
+    }
+    for (final ChannelBiDirectional<Integer> channel : channels) {
+      sum += channel.getReading().get();
+    }
+    return sum;
+  }
+}
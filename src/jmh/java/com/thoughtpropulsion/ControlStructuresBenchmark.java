@@ -0,0 +1,76 @@
+package com.thoughtpropulsion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.sequence;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static com.thoughtpropulsion.ControlStructures.whileLoop;
+
+/*
+ What the control structures cost on their own: one op is one whileLoop() iteration, or one
+ sequence() step. The bodies are trivial statements.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControlStructuresBenchmark {
+
+  private static final int ITERATIONS = 10_000;
+  private static final int STEPS = 100;
+
+  @Param({SchedulerUnderTest.TEST, SchedulerUnderTest.WORK_STEALING, SchedulerUnderTest.VIRTUAL_THREAD})
+  public String scheduler;
+
+  private SchedulerUnderTest underTest;
+  private Continuation sequence;
+  private int count;
+
+  @Setup
+  public void setup() {
+    underTest = new SchedulerUnderTest(scheduler);
+    final Continuation[] steps = new Continuation[STEPS];
+    for (int i = 0; i < STEPS; i++) {
+      steps[i] = statement(() -> {count++;});
+    }
+    sequence = sequence(steps);
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    underTest.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ITERATIONS)
+  public int whileLoopIteration() throws InterruptedException {
+    final int[] i = {0};
+    underTest.scheduler.schedule(whileLoop(() -> i[0] < ITERATIONS, statement(() -> {i[0]++;})));
+    underTest.runUntilQuiescent();
+    return i[0];
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(STEPS)
+  public int sequenceStep() throws InterruptedException {
+    underTest.scheduler.schedule(sequence);
+    underTest.runUntilQuiescent();
+    return count;
+  }
+}
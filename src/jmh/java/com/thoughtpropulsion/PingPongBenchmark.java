@@ -0,0 +1,71 @@
+package com.thoughtpropulsion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+
+/*
+ Round-trip latency: two continuations bounce a counter between a ping and a pong channel.
+ One op is one round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PingPongBenchmark {
+
+  private static final int ROUND_TRIPS = 1_000;
+
+  @Param({SchedulerUnderTest.TEST, SchedulerUnderTest.WORK_STEALING, SchedulerUnderTest.VIRTUAL_THREAD})
+  public String scheduler;
+
+  private SchedulerUnderTest underTest;
+
+  @Setup
+  public void setup() {
+    underTest = new SchedulerUnderTest(scheduler);
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    underTest.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROUND_TRIPS)
+  public void roundTrip() throws InterruptedException {
+    final TaskScheduler taskScheduler = underTest.scheduler;
+    final ChannelBiDirectional<Integer> ping = taskScheduler.createBoundedChannel(Integer.class, 1);
+    final ChannelBiDirectional<Integer> pong = taskScheduler.createBoundedChannel(Integer.class, 1);
+
+    taskScheduler.schedule(whileSelect(ping.getReading().onReceive(value -> {
+      pong.getWriting().put(value);
+      return value < ROUND_TRIPS;
+    })));
+    taskScheduler.schedule(whileSelect(pong.getReading().onReceive(value -> {
+      if (value < ROUND_TRIPS) {
+        ping.getWriting().put(value + 1);
+      }
+      return value < ROUND_TRIPS;
+    })));
+    ping.getWriting().put(1);
+
+    underTest.runUntilQuiescent();
+  }
+}
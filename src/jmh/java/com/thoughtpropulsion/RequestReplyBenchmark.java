@@ -0,0 +1,79 @@
+package com.thoughtpropulsion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+
+/*
+ Request/reply, as in ReadModifyWriteTest: clients send a server their reply channel, and wait
+ for the server to put a value in it before sending the next request. The requests channel has
+ room for one request per client, so the puts never find it full. One op is one request
+ answered.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestReplyBenchmark {
+
+  private static final int CLIENTS = 8;
+  private static final int REQUESTS_PER_CLIENT = 128;
+
+  @Param({SchedulerUnderTest.TEST, SchedulerUnderTest.WORK_STEALING, SchedulerUnderTest.VIRTUAL_THREAD})
+  public String scheduler;
+
+  private SchedulerUnderTest underTest;
+  private ChannelBiDirectional<ChannelWriting> requests;
+  private int value;
+
+  @Setup
+  public void setup() {
+    underTest = new SchedulerUnderTest(scheduler);
+    requests = underTest.scheduler.createBoundedChannel(ChannelWriting.class, CLIENTS);
+    // the server outlives the invocations: between them it's parked, which isn't pending
+    underTest.scheduler.schedule(whileSelect(requests.getReading().onReceive(replyTo -> {
+      ((ChannelWriting<Integer>) replyTo).put(value++);
+    })));
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    underTest.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CLIENTS * REQUESTS_PER_CLIENT)
+  public void requestReply() throws InterruptedException {
+    final TaskScheduler taskScheduler = underTest.scheduler;
+    for (int c = 0; c < CLIENTS; c++) {
+      final ChannelBiDirectional<Integer> replies = taskScheduler.createBoundedChannel(Integer.class, 1);
+      final int[] answered = {0};
+      // each reply triggers the next request: a client never has more than one outstanding
+      taskScheduler.schedule(whileSelect(replies.getReading().onReceive(reply -> {
+        if (++answered[0] < REQUESTS_PER_CLIENT) {
+          requests.getWriting().put(replies.getWriting());
+          return true;
+        }
+        return false;
+      })));
+      requests.getWriting().put(replies.getWriting());
+    }
+    underTest.runUntilQuiescent();
+  }
+}
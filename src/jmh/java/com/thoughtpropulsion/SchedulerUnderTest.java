@@ -0,0 +1,68 @@
+package com.thoughtpropulsion;
+
+import com.thoughtpropulsion.concurrent.VirtualThreadScheduler;
+import com.thoughtpropulsion.concurrent.WorkStealingScheduler;
+import com.thoughtpropulsion.deterministic.TestScheduler;
+import com.thoughtpropulsion.deterministic.VirtualTime;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ The scheduler a workload benchmark runs on, by name (the benchmarks' scheduler @Param), and a
+ way to run it until the workload is done that works for all of them.
+ */
+final class SchedulerUnderTest {
+
+  static final String TEST = "TestScheduler";
+  static final String WORK_STEALING = "WorkStealingScheduler";
+  static final String VIRTUAL_THREAD = "VirtualThreadScheduler";
+
+  private static final long TIMEOUT_SECONDS = 60;
+
+  final TaskScheduler scheduler;
+
+  SchedulerUnderTest(final String name) {
+    switch (name) {
+      case TEST:
+        scheduler = new TestScheduler(new VirtualTime());
+        break;
+      case WORK_STEALING:
+        scheduler = new WorkStealingScheduler();
+        break;
+      case VIRTUAL_THREAD:
+        scheduler = new VirtualThreadScheduler();
+        break;
+      default:
+        throw new IllegalArgumentException("unknown scheduler: " + name);
+    }
+  }
+
+  /*
+   Run until nothing is scheduled or running. Timers due within horizonNanos count: virtual time
+   is moved on past them, real time is waited out.
+   */
+  void runUntilQuiescent(final long horizonNanos) throws InterruptedException {
+    if (scheduler instanceof TestScheduler) {
+      ((TestScheduler) scheduler).runFor(horizonNanos, TimeUnit.NANOSECONDS);
+      return;
+    }
+    final boolean quiescent = scheduler instanceof WorkStealingScheduler
+      ? ((WorkStealingScheduler) scheduler).awaitQuiescence(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+      : ((VirtualThreadScheduler) scheduler).awaitQuiescence(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    if (!quiescent) {
+      throw new IllegalStateException("workload didn't finish in " + TIMEOUT_SECONDS + "s");
+    }
+  }
+
+  void runUntilQuiescent() throws InterruptedException {
+    runUntilQuiescent(0);
+  }
+
+  void close() throws InterruptedException {
+    if (scheduler instanceof WorkStealingScheduler) {
+      ((WorkStealingScheduler) scheduler).close();
+    } else if (scheduler instanceof VirtualThreadScheduler) {
+      ((VirtualThreadScheduler) scheduler).close();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.thoughtpropulsion;
+
+import com.thoughtpropulsion.concurrent.WorkStealingScheduler;
+import com.thoughtpropulsion.deterministic.TestScheduler;
+import com.thoughtpropulsion.deterministic.VirtualTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.select;
+
+/*
+ One select over `clauses` receive clauses, one of them ready: the readiness check, the random
+ pick and the clause itself, as the scheduler would run them. Look at gc.alloc.rate.norm (the gc
+ profiler is on in build.gradle): it should be 0 bytes/op for either scheduler.
+
+ The select is run on the benchmark thread, so the WorkStealingScheduler's workers stay idle;
+ it's here for its runReadyClauses() and its (lock-free) channels.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SelectAllocationBenchmark {
+
+  @Param({"TestScheduler", "WorkStealingScheduler"})
+  public String scheduler;
+
+  @Param({"2", "16"})
+  public int clauses;
+
+  private static final Integer VALUE = 42; // boxed once: we're measuring the select, not boxing
+
+  private TaskScheduler taskScheduler;
+  private ChannelBiDirectional<Integer>[] channels;
+  private Continuation select;
+  private int next;
+  private long sum;
+
+  @SuppressWarnings("unchecked")
+  @Setup
+  public void setup() {
+    switch (scheduler) {
+      case "TestScheduler":
+        taskScheduler = new TestScheduler(new VirtualTime());
+        break;
+      case "WorkStealingScheduler":
+        taskScheduler = new WorkStealingScheduler(1);
+        break;
+      default:
+        throw new IllegalArgumentException("unknown scheduler: " + scheduler);
+    }
+    channels = new ChannelBiDirectional[clauses];
+    final SelectClause[] receives = new SelectClause[clauses];
+    for (int i = 0; i < clauses; i++) {
+      channels[i] = taskScheduler.createBoundedChannel(Integer.class, 16);
+      receives[i] = channels[i].getReading().onReceive(value -> {sum += value;});
+    }
+    select = select(receives);
+    next = 0;
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    if (taskScheduler instanceof WorkStealingScheduler) {
+      ((WorkStealingScheduler) taskScheduler).close();
+    }
+  }
+
+  @Benchmark
+  public long selectOne() {
+    channels[next].getWriting().put(VALUE);
+    next = (next + 1) % clauses;
+    if (select.isReady()) {
+      select.compute(taskScheduler);
+    }
+    return sum;
+  }
+}
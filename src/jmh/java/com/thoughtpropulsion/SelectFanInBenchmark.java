@@ -0,0 +1,74 @@
+package com.thoughtpropulsion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+
+/*
+ Fan-in: one producer per channel, one consumer selecting over all the channels. One op is one
+ message received; the same number of messages is spread over however many channels there are.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SelectFanInBenchmark {
+
+  private static final int MESSAGES = 16_384;
+  private static final Integer VALUE = 42;
+
+  @Param({SchedulerUnderTest.TEST, SchedulerUnderTest.WORK_STEALING, SchedulerUnderTest.VIRTUAL_THREAD})
+  public String scheduler;
+
+  @Param({"2", "16", "256"})
+  public int channels;
+
+  private SchedulerUnderTest underTest;
+
+  @Setup
+  public void setup() {
+    underTest = new SchedulerUnderTest(scheduler);
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    underTest.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES)
+  public void fanIn() throws InterruptedException {
+    final TaskScheduler taskScheduler = underTest.scheduler;
+    final int perChannel = MESSAGES / channels;
+    final SelectClause[] receives = new SelectClause[channels];
+    final int[] received = {0};
+    for (int i = 0; i < channels; i++) {
+      final ChannelBiDirectional<Integer> channel = taskScheduler.createBoundedChannel(Integer.class, 16);
+      final int[] sent = {0};
+      taskScheduler.schedule(whileSelect(channel.getWriting().onSend(writing -> {
+        writing.put(VALUE);
+        return ++sent[0] < perChannel;
+      })));
+      receives[i] = channel.getReading().onReceive(value -> ++received[0] < MESSAGES);
+    }
+    taskScheduler.schedule(whileSelect(receives));
+
+    underTest.runUntilQuiescent();
+  }
+}
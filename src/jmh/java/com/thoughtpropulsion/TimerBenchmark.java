@@ -0,0 +1,70 @@
+package com.thoughtpropulsion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.statement;
+
+/*
+ Timer-heavy load: one op is one continuation scheduled with a delay, then run when it's due.
+ Delays are spread over HORIZON_NANOS, short enough that the production schedulers' timing,
+ not real time passing, dominates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimerBenchmark {
+
+  private static final int TIMERS = 1_000;
+  private static final long HORIZON_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  @Param({SchedulerUnderTest.TEST, SchedulerUnderTest.WORK_STEALING, SchedulerUnderTest.VIRTUAL_THREAD})
+  public String scheduler;
+
+  private SchedulerUnderTest underTest;
+  private long[] delays;
+  private int fired;
+
+  @Setup
+  public void setup() {
+    underTest = new SchedulerUnderTest(scheduler);
+    final SplittableRandom random = new SplittableRandom(0);
+    delays = new long[TIMERS];
+    for (int i = 0; i < TIMERS; i++) {
+      delays[i] = 1 + random.nextLong(HORIZON_NANOS);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    underTest.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TIMERS)
+  public int scheduleAfterDelay() throws InterruptedException {
+    final Continuation fire = statement(() -> {fired++;});
+    for (final long delay : delays) {
+      underTest.scheduler.schedule(fire, delay, TimeUnit.NANOSECONDS);
+    }
+    underTest.runUntilQuiescent(HORIZON_NANOS);
+    return fired;
+  }
+}
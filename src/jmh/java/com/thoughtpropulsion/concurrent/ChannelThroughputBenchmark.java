@@ -0,0 +1,135 @@
+package com.thoughtpropulsion.concurrent;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.concurrent.ChannelBoundedConcurrent.EMPTY;
+
+/*
+ Transfer throughput of the thread-safe channels, lock-free vs. lock-based, at 1, 4 and 16 threads
+ (half producers, half consumers; the single thread alternates).
+
+ This exercises the channels' storage (offer/poll) directly. put() and get() add the same
+ close-state check and wake-up on top of it for both implementations, but throw when they
+ lose a race for the last slot (element), which would swamp the measurement.
+
+ The transfers counters count successful offers/polls: compare those, not the raw op rate,
+ which includes failed attempts on a full (empty) channel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ChannelThroughputBenchmark {
+
+  @Param({"LockFree", "Locking"})
+  public String implementation;
+
+  @Param({"1024"})
+  public int bound;
+
+  private ChannelBoundedConcurrent<Integer> channel;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Transfers {
+    public long offered;
+    public long polled;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      offered = polled = 0;
+    }
+  }
+
+  private static final Integer VALUE = 42;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    switch (implementation) {
+      case "LockFree":
+        channel = new ChannelBoundedLockFree<>(bound);
+        break;
+      case "Locking":
+        channel = new ChannelBoundedLocking<>(bound);
+        break;
+      default:
+        throw new IllegalArgumentException("unknown implementation: " + implementation);
+    }
+  }
+
+  @Benchmark
+  @Group("threads1")
+  @GroupThreads(1)
+  public Object offerPoll1(final Transfers transfers) {
+    if (channel.offer(VALUE)) {
+      transfers.offered++;
+    }
+    final Object value = channel.poll();
+    if (value != EMPTY) {
+      transfers.polled++;
+    }
+    return value;
+  }
+
+  @Benchmark
+  @Group("threads4")
+  @GroupThreads(2)
+  public boolean offer4(final Transfers transfers) {
+    return offer(transfers);
+  }
+
+  @Benchmark
+  @Group("threads4")
+  @GroupThreads(2)
+  public Object poll4(final Transfers transfers) {
+    return poll(transfers);
+  }
+
+  @Benchmark
+  @Group("threads16")
+  @GroupThreads(8)
+  public boolean offer16(final Transfers transfers) {
+    return offer(transfers);
+  }
+
+  @Benchmark
+  @Group("threads16")
+  @GroupThreads(8)
+  public Object poll16(final Transfers transfers) {
+    return poll(transfers);
+  }
+
+  private boolean offer(final Transfers transfers) {
+    final boolean offered = channel.offer(VALUE);
+    if (offered) {
+      transfers.offered++;
+    }
+    return offered;
+  }
+
+  private Object poll(final Transfers transfers) {
+    final Object value = channel.poll();
+    if (value != EMPTY) {
+      transfers.polled++;
+    }
+    return value;
+  }
+}
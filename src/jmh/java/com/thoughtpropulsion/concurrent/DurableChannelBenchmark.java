@@ -0,0 +1,105 @@
+package com.thoughtpropulsion.concurrent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.thoughtpropulsion.concurrent.ChannelBoundedConcurrent.EMPTY;
+
+/*
+ Throughput of ChannelDurable against how many puts and takes share a force(): 1 makes every put
+ durable before the next, 0 never forces. An op is one element put and taken, through the
+ storage (offer/poll) as ChannelThroughputBenchmark does. Each put and take is a change, so a
+ sync covers syncEvery / 2 elements.
+
+ The log goes in java.io.tmpdir (-Djava.io.tmpdir=... to put it on the disk to measure): on
+ tmpfs, force() costs next to nothing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DurableChannelBenchmark {
+
+  private static final int BATCH = 64;
+
+  @Param({"1", "16", "256", "4096", "0"})
+  public int syncEvery;
+
+  @Param({"128"})
+  public int elementBytes;
+
+  private Path directory;
+  private ChannelDurable<byte[]> channel;
+  private byte[] element;
+
+  private static final ChannelDurable.Serializer<byte[]> BYTES = new ChannelDurable.Serializer<>() {
+    @Override
+    public void write(final byte[] value, final ByteBuffer buffer) {
+      buffer.put(value);
+    }
+
+    @Override
+    public byte[] read(final ByteBuffer buffer) {
+      final byte[] value = new byte[buffer.remaining()];
+      buffer.get(value);
+      return value;
+    }
+  };
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("durable-benchmark");
+    channel = new ChannelDurable<>(directory, BYTES, 1024, syncEvery);
+    element = new byte[elementBytes];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    channel.closeLog();
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (final Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  // a batch in, then out: the reader trails the writer, as it would behind a burst
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public Object putThenTake() {
+    for (int i = 0; i < BATCH; i++) {
+      channel.offer(element);
+    }
+    Object value = null;
+    for (int i = 0; i < BATCH; i++) {
+      value = channel.poll();
+    }
+    if (value == EMPTY) {
+      throw new IllegalStateException("nothing to take");
+    }
+    return value;
+  }
+}
@@ -0,0 +1,95 @@
+package com.thoughtpropulsion.concurrent;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.concurrent.ChannelBoundedConcurrent.EMPTY;
+
+/*
+ Transfer throughput with one producer thread and one consumer thread: the SPSC channel vs.
+ the general-purpose ones. See ChannelThroughputBenchmark for what the counters mean.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class SpscChannelBenchmark {
+
+  @Param({"Spsc", "LockFree", "Locking"})
+  public String implementation;
+
+  @Param({"1024"})
+  public int bound;
+
+  private ChannelBoundedConcurrent<Integer> channel;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Transfers {
+    public long offered;
+    public long polled;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      offered = polled = 0;
+    }
+  }
+
+  private static final Integer VALUE = 42;
+
+  @Setup(Level.Iteration)
+  public void setup() {
+    switch (implementation) {
+      case "Spsc":
+        channel = new ChannelBoundedSpsc<>(bound);
+        break;
+      case "LockFree":
+        channel = new ChannelBoundedLockFree<>(bound);
+        break;
+      case "Locking":
+        channel = new ChannelBoundedLocking<>(bound);
+        break;
+      default:
+        throw new IllegalArgumentException("unknown implementation: " + implementation);
+    }
+  }
+
+  @Benchmark
+  @Group("spsc")
+  @GroupThreads(1)
+  public boolean offer(final Transfers transfers) {
+    final boolean offered = channel.offer(VALUE);
+    if (offered) {
+      transfers.offered++;
+    }
+    return offered;
+  }
+
+  @Benchmark
+  @Group("spsc")
+  @GroupThreads(1)
+  public Object poll(final Transfers transfers) {
+    final Object value = channel.poll();
+    if (value != EMPTY) {
+      transfers.polled++;
+    }
+    return value;
+  }
+}
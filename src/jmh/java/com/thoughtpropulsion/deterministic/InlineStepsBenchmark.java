@@ -0,0 +1,60 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Continuation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.sequence;
+import static com.thoughtpropulsion.ControlStructures.statement;
+
+/*
+ Cost per step of a straight-line sequence of statements under TestScheduler, with inlining off
+ (maxInlineSteps 0: every step is a Task) and on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InlineStepsBenchmark {
+
+  private static final int STEPS = 100;
+
+  @Param({"0", "16", "64"})
+  public int maxInlineSteps;
+
+  private TestScheduler scheduler;
+  private Continuation sequence;
+  private long count;
+
+  @Setup
+  public void setup() {
+    scheduler = new TestScheduler(new VirtualTime(), 0, maxInlineSteps);
+    final Continuation[] steps = new Continuation[STEPS];
+    for (int i = 0; i < STEPS; i++) {
+      steps[i] = statement(() -> {count++;});
+    }
+    sequence = sequence(steps);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(STEPS)
+  public long sequenceStep() {
+    scheduler.schedule(sequence);
+    scheduler.triggerActions();
+    return count;
+  }
+}
@@ -0,0 +1,76 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.IntChannel;
+import com.thoughtpropulsion.SelectClause;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ Cost, and allocation, of moving an int through a channel: boxed ChannelBounded<Integer> vs.
+ IntChannel. Look at gc.alloc.rate.norm (the gc profiler is on in build.gradle): the IntChannel
+ benchmarks should allocate 0 bytes/op, the boxed ones one Integer per transfer.
+
+ Values start above the Integer cache, as counters and IDs soon do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimitiveChannelAllocationBenchmark {
+
+  private ChannelBiDirectional<Integer> boxed;
+  private IntChannel unboxed;
+  private SelectClause boxedReceive;
+  private SelectClause unboxedReceive;
+  private int next;
+  private long sum;
+
+  @Setup
+  public void setup() {
+    final TestScheduler scheduler = new TestScheduler(new VirtualTime());
+    boxed = scheduler.createBoundedChannel(Integer.class, 16);
+    unboxed = scheduler.createIntChannel(16);
+    boxedReceive = boxed.getReading().onReceive(value -> {sum += value;});
+    unboxedReceive = unboxed.getReading().onReceive(value -> {sum += value;});
+    next = 1_000_000;
+  }
+
+  @Benchmark
+  public int boxedPutGet() {
+    boxed.getWriting().put(next++);
+    return boxed.getReading().get();
+  }
+
+  @Benchmark
+  public int intPutGet() {
+    unboxed.getWriting().put(next++);
+    return unboxed.getReading().get();
+  }
+
+  @Benchmark
+  public long boxedReceiveClause() {
+    boxed.getWriting().put(next++);
+    boxedReceive.getClause().getAsBoolean();
+    return sum;
+  }
+
+  @Benchmark
+  public long intReceiveClause() {
+    unboxed.getWriting().put(next++);
+    unboxedReceive.getClause().getAsBoolean();
+    return sum;
+  }
+}
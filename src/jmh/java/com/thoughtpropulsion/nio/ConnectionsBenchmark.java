@@ -0,0 +1,111 @@
+package com.thoughtpropulsion.nio;
+
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.concurrent.WorkStealingScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+
+/*
+ Many concurrent connections over loopback, every one of them a pair of channels on one
+ NioSelectorLoop, with continuations on a WorkStealingScheduler and no thread per connection: an
+ echo server, and as many clients. One op is a round: every client sends a message and gets it
+ back. Divide by connections for the cost per echo.
+
+ Each connection is two sockets here, so 10,000 connections need ulimit -n above 20,000.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectionsBenchmark {
+
+  private static final int MESSAGE_SIZE = 64;
+
+  @Param({"1000", "10000"})
+  public int connections;
+
+  private WorkStealingScheduler scheduler;
+  private NioSelectorLoop loop;
+  private ServerSocketChannel server;
+  private List<NioConnection> clients;
+  private volatile CountDownLatch round;
+
+  @Setup
+  public void setup() throws IOException {
+    scheduler = new WorkStealingScheduler();
+    loop = new NioSelectorLoop();
+    server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress("127.0.0.1", 0), 1024);
+    final ChannelReading<NioConnection> accepted = loop.listen(server);
+    scheduler.schedule(whileSelect(accepted.onReceive(connection -> {
+      scheduler.schedule(echo(connection));
+    })));
+
+    clients = new ArrayList<>(connections);
+    for (int i = 0; i < connections; i++) {
+      final NioConnection client = loop.connect(server.getLocalAddress());
+      final int[] received = {0};
+      scheduler.schedule(whileSelect(client.getReading().onReceive(buffer -> {
+        received[0] += buffer.remaining();
+        if (received[0] >= MESSAGE_SIZE) {
+          received[0] -= MESSAGE_SIZE;
+          round.countDown();
+        }
+      })));
+      clients.add(client);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException, IOException {
+    loop.close();
+    server.close();
+    scheduler.close();
+  }
+
+  @Benchmark
+  public void echoRound() throws InterruptedException {
+    round = new CountDownLatch(connections);
+    for (final NioConnection client : clients) {
+      client.getWriting().put(ByteBuffer.allocate(MESSAGE_SIZE));
+    }
+    if (!round.await(60, TimeUnit.SECONDS)) {
+      throw new IllegalStateException("echoes didn't all come back in 60s");
+    }
+  }
+
+  private static Continuation echo(final NioConnection connection) {
+    final List<ByteBuffer> pending = new ArrayList<>();
+    final ChannelWriting<ByteBuffer> writing = connection.getWriting();
+    return whileSelect(
+        connection.getReading().onReceive(buffer -> {
+          pending.add(buffer);
+        }),
+        writing.onSendBatch(pending));
+  }
+}
@@ -0,0 +1,12 @@
+package com.thoughtpropulsion;
+
+/*
+ Elements taken from a channel in one clause activation (see ChannelReading.onReceiveBatch()),
+ oldest first. A view: it's only valid during the call it's passed to, after which the channel
+ reuses it and the storage behind it. Copy out anything you want to keep.
+ */
+public interface Batch<T> {
+  int size();
+
+  T get(int i);
+}
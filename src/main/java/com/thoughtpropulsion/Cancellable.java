@@ -0,0 +1,22 @@
+package com.thoughtpropulsion;
+
+/*
+ What TaskScheduler.schedule() returns: a way to withdraw the continuation before it runs, e.g.
+ a retry or a timeout that's no longer wanted.
+
+ Cancelling is O(1): the scheduler flags the entry and drops it when it comes to it. A scheduler
+ purges its timers once cancelled ones are most of them, so abandoned timers don't pile up.
+ */
+public interface Cancellable {
+
+  /*
+   For what can't be withdrawn: NoOp, or a continuation the scheduler dropped.
+   */
+  Cancellable NONE = () -> false;
+
+  /*
+   Withdraw it: it won't run. Returns false if it has started (or run, or been cancelled)
+   already, or can't be withdrawn.
+   */
+  boolean cancel();
+}
@@ -3,4 +3,16 @@ package com.thoughtpropulsion;
 public interface ChannelBiDirectional<T> {
   ChannelReading<T> getReading();
   ChannelWriting<T> getWriting();
+
+  /*
+   How many elements are buffered. On a channel shared between threads it may be out of date
+   by the time you look at it: good for metrics, not for deciding whether put() will succeed.
+   */
+  int size();
+
+  /*
+   Report full (empty) channel hits to listener. Set it before sharing the channel. A channel
+   made by a scheduler starts with the scheduler's listener.
+   */
+  void setMetricsListener(MetricsListener listener);
 }
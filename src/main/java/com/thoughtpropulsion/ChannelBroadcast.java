@@ -0,0 +1,31 @@
+package com.thoughtpropulsion;
+
+/*
+ A channel that delivers every element to every subscriber. There is one ring buffer, however
+ many subscribers there are: each subscriber just has its own read position in it. The writer
+ is held back (the channel is full) by the slowest subscriber, so subscribers that stop reading
+ should unsubscribe. With no subscribers, put() succeeds and the element is dropped.
+
+ Each subscription is a ChannelReading of its own, for select, onReceive() and the rest, and
+ each sees (and consumes) the close after it has read everything put before it.
+ */
+public interface ChannelBroadcast<T> {
+  ChannelWriting<T> getWriting();
+
+  /*
+   A new subscriber. It sees the elements put from now on.
+   */
+  ChannelReading<T> subscribe();
+
+  /*
+   Stop subscription holding the writer back. Don't read from it afterwards.
+   */
+  void unsubscribe(ChannelReading<T> subscription);
+
+  /*
+   How many elements the slowest subscriber has yet to read. See ChannelBiDirectional.size().
+   */
+  int size();
+
+  void setMetricsListener(MetricsListener listener);
+}
@@ -0,0 +1,18 @@
+package com.thoughtpropulsion;
+
+/*
+ A channel whose writer never waits: when it's full, a put() drops the oldest element to make
+ room. A sliding channel keeps the newest n elements; a conflated one (n = 1) keeps only the
+ latest value. While the channel is open its writing side is always ready, so a fast producer
+ runs at full speed however slow its readers are, and readers see the freshest data.
+
+ Closing works as for any channel: elements still buffered are delivered, then the close.
+ */
+public interface ChannelDropping<T> extends ChannelBiDirectional<T> {
+
+  /*
+   How many elements have been dropped, in total. On a channel shared between threads it may be
+   out of date by the time you look at it.
+   */
+  long getDropped();
+}
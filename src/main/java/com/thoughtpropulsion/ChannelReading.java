@@ -16,6 +16,16 @@ public interface ChannelReading<T> extends Readiness {
 
   ReceiveOrClosedClause<T> onReceiveOrClosed(BiPredicate<T,Boolean> receiver);
 
+  /*
+   Like onReceive(), but takes every element that's there, up to maxN, in one activation.
+   Once the channel is closed and drained, consumes the close without calling receiver.
+   */
+  ReceiveClause<T> onReceiveBatch(int maxN, Predicate<Batch<T>> receiver);
+
+  default ReceiveClause<T> onReceiveBatch(final int maxN, final Consumer<Batch<T>> receiver) {
+    return onReceiveBatch(maxN, batch -> {receiver.accept(batch); return true;});
+  }
+
   /*
    Low-level get on channel. Prefer non-blocking select/whileSelect with ReceiveClause over this.
    */
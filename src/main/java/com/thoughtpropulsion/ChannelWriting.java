@@ -1,5 +1,6 @@
 package com.thoughtpropulsion;
 
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -13,6 +14,25 @@ public interface ChannelWriting<T> extends Readiness, Closeable {
 
   SendClause<T> onSend(final Runnable predicate);
 
+  /*
+   A clause that moves elements from pending (oldest first) to the channel, as many as fit, in one
+   activation, and removes them from pending. It is only ready when pending isn't empty. Returns
+   what afterwards returns.
+
+   Fill pending from the same continuation (e.g. another clause of the same whileSelect): a
+   continuation parked on this clause is woken when the channel changes, not when pending does.
+   */
+  SendClause<T> onSendBatch(List<T> pending, Predicate<ChannelWriting<T>> afterwards);
+
+  default SendClause<T> onSendBatch(final List<T> pending) {
+    return onSendBatch(pending, channelWriting -> true);
+  }
+
+  /*
+   Low-level put of as many of values (from the first) as there's room for. Returns how many.
+   */
+  int putAll(List<? extends T> values);
+
   /*
    Low-level put on channel. Prefer non-blocking select/whileSelect with SendClause over this.
   */
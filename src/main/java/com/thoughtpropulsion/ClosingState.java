@@ -0,0 +1,25 @@
+package com.thoughtpropulsion;
+
+public enum ClosingState {
+  /*
+   initial state. If close() is never called on channelWriting we'll stay in this state
+   and coroutines will have to stop due to some other signal
+   */
+  Open,
+
+  /*
+   This is an intermediate state after receiving close() on channelWriting.
+   In this state:
+     * no more writes are allowed
+     * we're always ready for reading
+     * first subsequent read results in: onReceiveOrClosed receiver gets false as second arg
+       then state moves immediately to Closed
+       also: onReceive receiver is never called in this state
+   */
+  Closing,
+
+  /*
+   final closed state
+   */
+  Closed
+}
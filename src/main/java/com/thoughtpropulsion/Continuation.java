@@ -29,6 +29,16 @@ public interface Continuation {
      */
   boolean isReady();
 
+  /*
+    Called by the scheduler after isReady() has returned false. A continuation that knows
+    which channels it is waiting for registers the waker with them and returns true. Then the
+    scheduler won't call isReady() again until the waker is woken. The default returns false,
+    so the scheduler keeps polling isReady().
+   */
+  default boolean awaitReadiness(final Waker waker) {
+    return false;
+  }
+
   /*
    Compute. Won't be called until after isReady() returns true.
    */
@@ -1,6 +1,6 @@
 package com.thoughtpropulsion;
 
-import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
 
@@ -19,7 +19,7 @@ public class ControlStructures {
       @Override
       public void compute(final TaskScheduler scheduler) {
         if ( condition.getAsBoolean()) {
-          scheduler.schedule(
+          scheduler.continueWith(
             sequence(loopBody, this)
           );
         } // else we're done!
@@ -80,10 +80,15 @@ public class ControlStructures {
               return currentStep.isReady();
             }
 
+            @Override
+            public boolean awaitReadiness(final Waker waker) {
+              return currentStep.awaitReadiness(waker);
+            }
+
             @Override
             public void compute(final TaskScheduler scheduler) {
               currentStep.compute(scheduler);
-              scheduler.schedule(subsequentSteps);
+              scheduler.continueWith(subsequentSteps);
             }
 
             @Override
@@ -104,16 +109,24 @@ public class ControlStructures {
    */
   public static Continuation select(
     final SelectClause... clauses) {
+    final boolean timed = hasTimeout(clauses);
     return new Continuation() {
       @Override
       public boolean isReady() {
-        return Arrays.stream(clauses).map(SelectClause::getChannel)
-          .anyMatch(Readiness::isReady);
+        return anyReady(clauses);
+      }
+
+      @Override
+      public boolean awaitReadiness(final Waker waker) {
+        return awaitAnyClause(clauses, waker);
       }
 
       @Override
       public void compute(final TaskScheduler scheduler) {
         scheduler.runReadyClauses(clauses);
+        if (timed) {
+          resetTimeouts(clauses);
+        }
       }
 
       @Override
@@ -125,17 +138,26 @@ public class ControlStructures {
 
   public static Continuation whileSelect(
     final SelectClause... clauses) {
+    final boolean timed = hasTimeout(clauses);
     return new Continuation() {
       @Override
       public boolean isReady() {
-        return Arrays.stream(clauses).map(SelectClause::getChannel)
-          .anyMatch(Readiness::isReady);
+        return anyReady(clauses);
+      }
+
+      @Override
+      public boolean awaitReadiness(final Waker waker) {
+        return awaitAnyClause(clauses, waker);
       }
 
       @Override
       public void compute(final TaskScheduler scheduler) {
-        if (scheduler.runReadyClauses(clauses)) {
-          scheduler.schedule(this);
+        final boolean again = scheduler.runReadyClauses(clauses);
+        if (timed) {
+          resetTimeouts(clauses); // each iteration waits afresh
+        }
+        if (again) {
+          scheduler.continueWith(this);
         } // else we're done!
       }
 
@@ -146,4 +168,58 @@ public class ControlStructures {
     };
   }
 
+  /*
+   A clause for select() and whileSelect() that's ready once the select has waited delay (by
+   scheduler's clock) without any other clause running. For a whileSelect, every iteration waits
+   afresh. action's result is what the clause returns: whether a whileSelect goes on.
+   */
+  public static SelectClause onTimeout(final TaskScheduler scheduler, final long delay, final TimeUnit delayUnit,
+                                       final BooleanSupplier action) {
+    return new Timeout(scheduler, delay, delayUnit, action);
+  }
+
+  public static SelectClause onTimeout(final TaskScheduler scheduler, final long delay, final TimeUnit delayUnit,
+                                       final Runnable action) {
+    return onTimeout(scheduler, delay, delayUnit, () -> {action.run(); return true;});
+  }
+
+  private static boolean hasTimeout(final SelectClause[] clauses) {
+    for (final SelectClause clause : clauses) {
+      if (clause instanceof Timeout) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void resetTimeouts(final SelectClause[] clauses) {
+    for (final SelectClause clause : clauses) {
+      if (clause instanceof Timeout) {
+        ((Timeout) clause).reset();
+      }
+    }
+  }
+
+  // a plain loop: this runs on every scheduling decision, so it mustn't allocate
+  private static boolean anyReady(final SelectClause[] clauses) {
+    for (final SelectClause clause : clauses) {
+      if (clause.isReady()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   A select is woken by whichever of its clauses becomes ready first (see
+   SelectClause.awaitReadiness()).
+   */
+  private static boolean awaitAnyClause(final SelectClause[] clauses, final Waker waker) {
+    boolean canNotify = true;
+    for (final SelectClause clause : clauses) {
+      canNotify &= clause.awaitReadiness(waker);
+    }
+    return canNotify;
+  }
+
 }
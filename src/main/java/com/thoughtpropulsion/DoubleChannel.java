@@ -0,0 +1,117 @@
+package com.thoughtpropulsion;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoublePredicate;
+import java.util.function.Predicate;
+
+/*
+ A bounded channel of doubles, stored unboxed. See LongChannel: this is a view of one.
+ */
+public interface DoubleChannel {
+  Reading getReading();
+  Writing getWriting();
+
+  interface Reading extends Readiness {
+    SelectClause onReceive(DoublePredicate receiver);
+
+    SelectClause onReceive(DoubleConsumer receiver);
+
+    SelectClause onReceiveOrClosed(DoublePredicate receiver, BooleanSupplier onClosed);
+
+    double get();
+  }
+
+  interface Writing extends Readiness, Closeable {
+    SelectClause onSend(Predicate<Writing> predicate);
+
+    SelectClause onSend(Runnable predicate);
+
+    void put(double value);
+  }
+
+  /*
+   Doubles are stored as their raw bits, so every value (NaNs included) comes out as it went in.
+   */
+  static DoubleChannel of(final LongChannel longs) {
+    final LongChannel.Reading longReading = longs.getReading();
+    final LongChannel.Writing longWriting = longs.getWriting();
+
+    final Reading reading = new Reading() {
+      @Override
+      public boolean isReady() {
+        return longReading.isReady();
+      }
+
+      @Override
+      public boolean awaitReadiness(final Waker waker) {
+        return longReading.awaitReadiness(waker);
+      }
+
+      @Override
+      public SelectClause onReceive(final DoublePredicate receiver) {
+        return longReading.onReceive((long value) -> receiver.test(Double.longBitsToDouble(value)));
+      }
+
+      @Override
+      public SelectClause onReceive(final DoubleConsumer receiver) {
+        return longReading.onReceive((long value) -> receiver.accept(Double.longBitsToDouble(value)));
+      }
+
+      @Override
+      public SelectClause onReceiveOrClosed(final DoublePredicate receiver, final BooleanSupplier onClosed) {
+        return longReading.onReceiveOrClosed(value -> receiver.test(Double.longBitsToDouble(value)), onClosed);
+      }
+
+      @Override
+      public double get() {
+        return Double.longBitsToDouble(longReading.get());
+      }
+    };
+
+    final Writing writing = new Writing() {
+      @Override
+      public boolean isReady() {
+        return longWriting.isReady();
+      }
+
+      @Override
+      public boolean awaitReadiness(final Waker waker) {
+        return longWriting.awaitReadiness(waker);
+      }
+
+      @Override
+      public void close() {
+        longWriting.close();
+      }
+
+      @Override
+      public SelectClause onSend(final Predicate<Writing> predicate) {
+        final Writing self = this;
+        return longWriting.onSend(ignored -> predicate.test(self));
+      }
+
+      @Override
+      public SelectClause onSend(final Runnable predicate) {
+        return longWriting.onSend(predicate);
+      }
+
+      @Override
+      public void put(final double value) {
+        longWriting.put(Double.doubleToRawLongBits(value));
+      }
+    };
+
+    return new DoubleChannel() {
+      @Override
+      public Reading getReading() {
+        return reading;
+      }
+
+      @Override
+      public Writing getWriting() {
+        return writing;
+      }
+    };
+  }
+}
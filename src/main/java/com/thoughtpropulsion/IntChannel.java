@@ -0,0 +1,117 @@
+package com.thoughtpropulsion;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/*
+ A bounded channel of ints, stored unboxed. See LongChannel: this is a view of one.
+ */
+public interface IntChannel {
+  Reading getReading();
+  Writing getWriting();
+
+  interface Reading extends Readiness {
+    SelectClause onReceive(IntPredicate receiver);
+
+    SelectClause onReceive(IntConsumer receiver);
+
+    SelectClause onReceiveOrClosed(IntPredicate receiver, BooleanSupplier onClosed);
+
+    int get();
+  }
+
+  interface Writing extends Readiness, Closeable {
+    SelectClause onSend(Predicate<Writing> predicate);
+
+    SelectClause onSend(Runnable predicate);
+
+    void put(int value);
+  }
+
+  /*
+   Ints are stored widened, so every long the channel holds came from an int.
+   */
+  static IntChannel of(final LongChannel longs) {
+    final LongChannel.Reading longReading = longs.getReading();
+    final LongChannel.Writing longWriting = longs.getWriting();
+
+    final Reading reading = new Reading() {
+      @Override
+      public boolean isReady() {
+        return longReading.isReady();
+      }
+
+      @Override
+      public boolean awaitReadiness(final Waker waker) {
+        return longReading.awaitReadiness(waker);
+      }
+
+      @Override
+      public SelectClause onReceive(final IntPredicate receiver) {
+        return longReading.onReceive((long value) -> receiver.test((int) value));
+      }
+
+      @Override
+      public SelectClause onReceive(final IntConsumer receiver) {
+        return longReading.onReceive((long value) -> receiver.accept((int) value));
+      }
+
+      @Override
+      public SelectClause onReceiveOrClosed(final IntPredicate receiver, final BooleanSupplier onClosed) {
+        return longReading.onReceiveOrClosed(value -> receiver.test((int) value), onClosed);
+      }
+
+      @Override
+      public int get() {
+        return (int) longReading.get();
+      }
+    };
+
+    final Writing writing = new Writing() {
+      @Override
+      public boolean isReady() {
+        return longWriting.isReady();
+      }
+
+      @Override
+      public boolean awaitReadiness(final Waker waker) {
+        return longWriting.awaitReadiness(waker);
+      }
+
+      @Override
+      public void close() {
+        longWriting.close();
+      }
+
+      @Override
+      public SelectClause onSend(final Predicate<Writing> predicate) {
+        final Writing self = this;
+        return longWriting.onSend(ignored -> predicate.test(self));
+      }
+
+      @Override
+      public SelectClause onSend(final Runnable predicate) {
+        return longWriting.onSend(predicate);
+      }
+
+      @Override
+      public void put(final int value) {
+        longWriting.put(value);
+      }
+    };
+
+    return new IntChannel() {
+      @Override
+      public Reading getReading() {
+        return reading;
+      }
+
+      @Override
+      public Writing getWriting() {
+        return writing;
+      }
+    };
+  }
+}
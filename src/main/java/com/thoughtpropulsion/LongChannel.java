@@ -0,0 +1,45 @@
+package com.thoughtpropulsion;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/*
+ A bounded channel of longs, stored unboxed. Putting, getting and running a clause allocate
+ nothing, so a steady stream of values through one is garbage-free.
+
+ The same protocol as ChannelBiDirectional. A receive clause delivers elements still buffered
+ when the channel was closed; once the channel is drained it consumes the close. onReceive()
+ does that silently (returning true), onReceiveOrClosed() calls onClosed.
+
+ IntChannel and DoubleChannel are views of a LongChannel.
+ */
+public interface LongChannel {
+  Reading getReading();
+  Writing getWriting();
+
+  interface Reading extends Readiness {
+    SelectClause onReceive(LongPredicate receiver);
+
+    SelectClause onReceive(LongConsumer receiver);
+
+    SelectClause onReceiveOrClosed(LongPredicate receiver, BooleanSupplier onClosed);
+
+    /*
+     Low-level get on channel. Prefer select/whileSelect with a receive clause over this.
+     */
+    long get();
+  }
+
+  interface Writing extends Readiness, Closeable {
+    SelectClause onSend(Predicate<Writing> predicate);
+
+    SelectClause onSend(Runnable predicate);
+
+    /*
+     Low-level put on channel. Prefer select/whileSelect with a send clause over this.
+     */
+    void put(long value);
+  }
+}
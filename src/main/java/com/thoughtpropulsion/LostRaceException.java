@@ -0,0 +1,20 @@
+package com.thoughtpropulsion;
+
+/*
+ A scheduler running continuations on more than one thread throws this from runReadyClauses()
+ when every clause that looked ready was claimed by some other thread first. The select hasn't
+ run, so the scheduler catches this and parks the task again, to be re-run from the start.
+
+ For that to be safe a continuation mustn't have any other effect before runReadyClauses():
+ select() and whileSelect() don't.
+
+ Thrown a lot under contention, so there's one instance and no stack trace.
+ */
+public final class LostRaceException extends RuntimeException {
+
+  public static final LostRaceException INSTANCE = new LostRaceException();
+
+  private LostRaceException() {
+    super("lost the race for every ready select clause", null, false, false);
+  }
+}
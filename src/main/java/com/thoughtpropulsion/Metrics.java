@@ -0,0 +1,91 @@
+package com.thoughtpropulsion;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ A MetricsListener that counts. The counters are striped (LongAdder), so threads reporting at
+ the same time don't contend; reading them, with snapshot(), is the slow part.
+
+ Pass the scheduler's clock: under TestScheduler, rates come out per virtual second, which is
+ what lets a simulation predict where production will saturate.
+ */
+public class Metrics implements MetricsListener {
+
+  public static final String SCHEDULED = "scheduler.scheduled";
+  public static final String RAN = "scheduler.ran";
+  public static final String NOT_READY = "scheduler.notReady";
+  public static final String FOUND_FULL = "channel.foundFull";
+  public static final String FOUND_EMPTY = "channel.foundEmpty";
+  public static final String DROPPED = "channel.dropped";
+
+  private final NanoTime nanoTime;
+  private final LongAdder scheduled = new LongAdder();
+  private final LongAdder ran = new LongAdder();
+  private final LongAdder notReady = new LongAdder();
+  private final LongAdder foundFull = new LongAdder();
+  private final LongAdder foundEmpty = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+  public Metrics(final NanoTime nanoTime) {
+    this.nanoTime = nanoTime;
+  }
+
+  @Override
+  public void scheduled() {
+    scheduled.increment();
+  }
+
+  @Override
+  public void ran() {
+    ran.increment();
+  }
+
+  @Override
+  public void notReady() {
+    notReady.increment();
+  }
+
+  @Override
+  public void foundFull() {
+    foundFull.increment();
+  }
+
+  @Override
+  public void foundEmpty() {
+    foundEmpty.increment();
+  }
+
+  @Override
+  public void dropped() {
+    dropped.increment();
+  }
+
+  /*
+   Register (or replace) a gauge. The names above are taken by the counters.
+   */
+  @Override
+  public void gauge(final String name, final LongSupplier value) {
+    gauges.put(name, value);
+  }
+
+  /*
+   The counters' totals and the gauges' current values. Not atomic: events reported while it's
+   being taken may or may not be in it.
+   */
+  public MetricsSnapshot snapshot() {
+    final Map<String, Long> values = new TreeMap<>();
+    gauges.forEach((name, value) -> values.put(name, value.getAsLong()));
+    values.put(SCHEDULED, scheduled.sum());
+    values.put(RAN, ran.sum());
+    values.put(NOT_READY, notReady.sum());
+    values.put(FOUND_FULL, foundFull.sum());
+    values.put(FOUND_EMPTY, foundEmpty.sum());
+    values.put(DROPPED, dropped.sum());
+    return new MetricsSnapshot(nanoTime.nanoTime(), values);
+  }
+}
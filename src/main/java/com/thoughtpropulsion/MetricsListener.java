@@ -0,0 +1,43 @@
+package com.thoughtpropulsion;
+
+import java.util.function.LongSupplier;
+
+/*
+ What a scheduler and its channels report as they run. Attach one with
+ TaskScheduler.setMetricsListener(); Metrics is the implementation that counts.
+
+ These are called on the hot path, from whichever threads the scheduler uses: implementations
+ must be thread-safe and cheap. NONE, the default, does nothing, so that costs a call the JIT
+ can inline away.
+ */
+public interface MetricsListener {
+
+  MetricsListener NONE = new MetricsListener() {};
+
+  // a continuation was handed to the scheduler, to run now, later or inline
+  default void scheduled() {}
+
+  // a continuation (one step) ran
+  default void ran() {}
+
+  // the scheduler found a continuation it had picked (or that was handed over) wasn't ready
+  default void notReady() {}
+
+  // a put() (putAll()) found the channel full
+  default void foundFull() {}
+
+  // a get() found the channel empty
+  default void foundEmpty() {}
+
+  /*
+   A sliding (conflated) channel dropped its oldest element to make room for a put, or a
+   SimulatedNetwork link lost a message.
+   */
+  default void dropped() {}
+
+  /*
+   A value to sample whenever metrics are read, e.g. a scheduler's queue depth, or a channel's
+   occupancy (ChannelBiDirectional.size()).
+   */
+  default void gauge(final String name, final LongSupplier value) {}
+}
@@ -0,0 +1,54 @@
+package com.thoughtpropulsion;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ Metrics as of one moment, by name, for export. See Metrics.
+ */
+public final class MetricsSnapshot {
+
+  private final long nanoTime;
+  private final Map<String, Long> values;
+
+  MetricsSnapshot(final long nanoTime, final Map<String, Long> values) {
+    this.nanoTime = nanoTime;
+    this.values = Collections.unmodifiableMap(values);
+  }
+
+  // when it was taken, on the scheduler's clock
+  public long nanoTime() {
+    return nanoTime;
+  }
+
+  public long get(final String name) {
+    final Long value = values.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException("No such metric: " + name);
+    }
+    return value;
+  }
+
+  // every metric, sorted by name
+  public Map<String, Long> asMap() {
+    return values;
+  }
+
+  /*
+   How fast a counter went up between earlier and this snapshot, per second of the scheduler's
+   clock (virtual seconds, under TestScheduler).
+   */
+  public double perSecond(final String name, final MetricsSnapshot earlier) {
+    final long elapsed = nanoTime - earlier.nanoTime;
+    if (elapsed <= 0) {
+      throw new IllegalArgumentException("earlier snapshot isn't earlier");
+    }
+    return (get(name) - earlier.get(name)) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("Metrics at %dns: %s", nanoTime, values);
+  }
+}
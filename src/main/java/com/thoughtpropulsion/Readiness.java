@@ -2,4 +2,12 @@ package com.thoughtpropulsion;
 
 public interface Readiness {
   boolean isReady(); // ready for reading or ready for writing
+
+  /*
+   Ask to be woken (once) when this becomes ready. Call only after isReady() has returned false.
+   Returns false if this implementation can't notify, in which case the caller has to poll isReady().
+   */
+  default boolean awaitReadiness(final Waker waker) {
+    return false;
+  }
 }
@@ -0,0 +1,426 @@
+package com.thoughtpropulsion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/*
+ Structured concurrency: continuations launched in a scope, and every step they go on to
+ schedule, belong to it. The scope completes once all of them, and all its child scopes, have
+ finished. Cancelling it cancels its children too: steps that haven't started never run (their
+ state is released at once), continuations parked on channels are woken so the scheduler drops
+ them, and nothing more can be launched in it. A step that's running when the scope is cancelled
+ finishes, but whatever it schedules is dropped.
+
+ A step's follow-ons (the rest of a sequence(), the next iteration of a whileLoop() or
+ whileSelect()) stay in the scope because steps are handed a TaskScheduler that launches in the
+ scope. Continuations a step schedules on some other TaskScheduler it holds don't: launch those
+ with Scope.launch() (or launchChild()).
+
+ A scope is Readiness: ready once it's complete, and it stays complete (launching in it then
+ throws). So onComplete() is a clause to select on, to wait for a scope's work to finish. Works
+ under any scheduler, and from any thread.
+ */
+public final class Scope implements Readiness {
+
+  private final TaskScheduler scheduler;
+  private final Scope parent;
+  private final TaskScheduler scoped = new ScopedScheduler();
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private Task first; // live tasks, oldest first: guarded by lock
+  private Task last;
+  private final List<Scope> children = new ArrayList<>(); // incomplete ones: guarded by lock
+  private volatile boolean cancelled;
+  private volatile boolean complete;
+
+  // continuations waiting for completion
+  private final Queue<Waker> completionWaiters = new ConcurrentLinkedQueue<>();
+
+  private Scope(final TaskScheduler scheduler, final Scope parent) {
+    this.scheduler = scheduler;
+    this.parent = parent;
+  }
+
+  /*
+   A new (root) scope, running body on scheduler.
+   */
+  public static Scope launch(final TaskScheduler scheduler, final Continuation body) {
+    final Scope scope = new Scope(scheduler, null);
+    scope.launch(body);
+    return scope;
+  }
+
+  /*
+   A scope within this one, running body. This one doesn't complete before it, and cancelling
+   this one cancels it. If this one is cancelled already, so is the child.
+   */
+  public Scope launchChild(final Continuation body) {
+    final Scope child = new Scope(scheduler, this);
+    lock.lock();
+    try {
+      checkNotComplete();
+      children.add(child);
+    } finally {
+      lock.unlock();
+    }
+    child.launch(body);
+    if (cancelled) {
+      child.cancel();
+    }
+    return child;
+  }
+
+  public Cancellable launch(final Continuation continuation) {
+    return launch(continuation, 0, TimeUnit.SECONDS);
+  }
+
+  /*
+   Schedule continuation in this scope. Does nothing once the scope is cancelled. The result
+   withdraws it (and, where the scheduler can, its timer) if it hasn't started.
+   */
+  public Cancellable launch(final Continuation continuation, final long afterDelay, final TimeUnit delayUnit) {
+    final Task task = track(continuation);
+    if (task == null) {
+      completeIfDone(); // a scope launched with nothing to do is done
+      return Cancellable.NONE;
+    }
+    task.scheduled = scheduler.schedule(task, afterDelay, delayUnit);
+    return task;
+  }
+
+  public void cancel() {
+    final List<Task> withdrawn = new ArrayList<>();
+    final List<Scope> cancelling;
+    lock.lock();
+    try {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      for (Task task = first; task != null; task = task.next) {
+        if (!task.running) {
+          task.continuation = null; // nobody will run it: let it go
+          withdrawn.add(task);
+          unlink(task);
+        }
+      }
+      cancelling = new ArrayList<>(children);
+    } finally {
+      lock.unlock();
+    }
+    withdrawn.forEach(Task::withdrawn);
+    cancelling.forEach(Scope::cancel);
+    completeIfDone();
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+
+  @Override
+  public boolean isReady() {
+    return complete;
+  }
+
+  @Override
+  public boolean awaitReadiness(final Waker waker) {
+    completionWaiters.add(waker);
+    if (complete) {
+      waker.wake(); // completed before we were on the list
+    }
+    return true;
+  }
+
+  /*
+   A clause that runs onComplete once this scope is complete.
+   */
+  public SelectClause onComplete(final Runnable onComplete) {
+    final Readiness self = this;
+    return new SelectClause() {
+      private final BooleanSupplier clause = () -> {
+        onComplete.run();
+        return true;
+      };
+
+      @Override
+      public Readiness getChannel() {
+        return self;
+      }
+
+      @Override
+      public BooleanSupplier getClause() {
+        return clause;
+      }
+    };
+  }
+
+  // a task for continuation, or null if it won't run
+  private Task track(final Continuation continuation) {
+    if (continuation == Continuation.NoOp) {
+      return null;
+    }
+    lock.lock();
+    try {
+      checkNotComplete();
+      if (cancelled) {
+        return null;
+      }
+      final Task task = new Task(continuation);
+      task.previous = last;
+      if (last == null) {
+        first = task;
+      } else {
+        last.next = task;
+      }
+      last = task;
+      return task;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // under the lock
+  private void checkNotComplete() {
+    if (complete) {
+      throw new IllegalStateException("Scope is complete: nothing more can be launched in it");
+    }
+  }
+
+  // under the lock
+  private void unlink(final Task task) {
+    if (task.previous == null) {
+      first = task.next;
+    } else {
+      task.previous.next = task.next;
+    }
+    if (task.next == null) {
+      last = task.previous;
+    } else {
+      task.next.previous = task.previous;
+    }
+  }
+
+  private void childCompleted(final Scope child) {
+    lock.lock();
+    try {
+      children.remove(child);
+    } finally {
+      lock.unlock();
+    }
+    completeIfDone();
+  }
+
+  private void completeIfDone() {
+    lock.lock();
+    try {
+      if (complete || first != null || !children.isEmpty()) {
+        return;
+      }
+      complete = true;
+    } finally {
+      lock.unlock();
+    }
+    Waker waker;
+    while ((waker = completionWaiters.poll()) != null) {
+      waker.wake();
+    }
+    if (parent != null) {
+      parent.childCompleted(this);
+    }
+  }
+
+  /*
+   One scheduled step of the scope. It leaves the live list once it has run, or when the scope
+   is cancelled before it runs.
+   */
+  private final class Task implements Continuation, Cancellable {
+    volatile Continuation continuation; // null once it won't run
+    volatile Waker waker; // if parked
+    volatile Cancellable scheduled; // the scheduler's handle on it, once schedule() returns
+    boolean running; // guarded by lock
+    Task previous; // guarded by lock
+    Task next;
+
+    Task(final Continuation continuation) {
+      this.continuation = continuation;
+    }
+
+    @Override
+    public boolean isReady() {
+      final Continuation c = continuation;
+      return c == null || c.isReady(); // cancelled tasks are ready to be dropped
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      this.waker = waker;
+      final Continuation c = continuation;
+      if (c == null) {
+        waker.wake();
+        return true;
+      }
+      final boolean canNotify = c.awaitReadiness(waker);
+      if (continuation == null) {
+        waker.wake(); // cancelled while we were parking
+      }
+      return canNotify;
+    }
+
+    @Override
+    public boolean cancel() {
+      lock.lock();
+      try {
+        if (running || continuation == null) {
+          return false;
+        }
+        continuation = null;
+        unlink(this);
+      } finally {
+        lock.unlock();
+      }
+      withdrawn();
+      completeIfDone();
+      return true;
+    }
+
+    // it won't run: take it off the scheduler's timers, or have the scheduler drop it
+    void withdrawn() {
+      final Cancellable handle = scheduled;
+      final Waker parked = waker;
+      if ((handle == null || !handle.cancel()) && parked != null) {
+        parked.wake(); // so the scheduler finds it ready, runs it (doing nothing) and drops it
+      }
+    }
+
+    @Override
+    public void compute(final TaskScheduler ignored) {
+      final Continuation c;
+      lock.lock();
+      try {
+        c = continuation;
+        if (c == null) {
+          return; // cancelled
+        }
+        running = true;
+        waker = null;
+      } finally {
+        lock.unlock();
+      }
+      boolean rerun = false;
+      try {
+        c.compute(scoped);
+      } catch (final LostRaceException e) {
+        rerun = lostRace();
+        throw e;
+      } finally {
+        if (!rerun) {
+          lock.lock();
+          try {
+            continuation = null;
+            unlink(this);
+          } finally {
+            lock.unlock();
+          }
+          completeIfDone();
+        }
+      }
+    }
+
+    /*
+     The step had no effect, and the scheduler parks it to run again: it stays live, unless the
+     scope was cancelled while it ran. True if it's to run again.
+     */
+    private boolean lostRace() {
+      lock.lock();
+      try {
+        running = false;
+        return !cancelled;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "Scoped: " + continuation;
+    }
+  }
+
+  /*
+   What a step in the scope sees as its scheduler: what it schedules is launched in the scope.
+   */
+  private final class ScopedScheduler implements TaskScheduler {
+
+    @Override
+    public Cancellable schedule(final Continuation continuation) {
+      return launch(continuation);
+    }
+
+    @Override
+    public Cancellable schedule(final Continuation continuation, final long afterDelay, final TimeUnit delayUnit) {
+      return launch(continuation, afterDelay, delayUnit);
+    }
+
+    @Override
+    public void continueWith(final Continuation next) {
+      final Task task = track(next);
+      if (task != null) {
+        scheduler.continueWith(task);
+      }
+    }
+
+    @Override
+    public <T> ChannelBiDirectional<T> createBoundedChannel(final Class<T> clazz, final int n) {
+      return scheduler.createBoundedChannel(clazz, n);
+    }
+
+    @Override
+    public <T> ChannelBiDirectional<T> createBoundedChannel(final Class<T> clazz, final int n, final Topology topology) {
+      return scheduler.createBoundedChannel(clazz, n, topology);
+    }
+
+    @Override
+    public <T> ChannelBiDirectional<T> createUnboundedChannel(final Class<T> clazz) {
+      return scheduler.createUnboundedChannel(clazz);
+    }
+
+    @Override
+    public <T> ChannelDropping<T> createSlidingChannel(final Class<T> clazz, final int n) {
+      return scheduler.createSlidingChannel(clazz, n);
+    }
+
+    @Override
+    public <T> ChannelDropping<T> createConflatedChannel(final Class<T> clazz) {
+      return scheduler.createConflatedChannel(clazz);
+    }
+
+    @Override
+    public <T> ChannelBroadcast<T> createBroadcastChannel(final Class<T> clazz, final int n) {
+      return scheduler.createBroadcastChannel(clazz, n);
+    }
+
+    @Override
+    public LongChannel createLongChannel(final int n) {
+      return scheduler.createLongChannel(n);
+    }
+
+    @Override
+    public boolean runReadyClauses(final SelectClause... clauses) {
+      return scheduler.runReadyClauses(clauses);
+    }
+
+    @Override
+    public void setMetricsListener(final MetricsListener listener) {
+      scheduler.setMetricsListener(listener);
+    }
+  }
+}
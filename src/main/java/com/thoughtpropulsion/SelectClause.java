@@ -5,4 +5,37 @@ import java.util.function.BooleanSupplier;
 public interface SelectClause {
   Readiness getChannel();
   BooleanSupplier getClause();
+
+  /*
+   Whether the clause can run now. Usually that's whether its channel is ready, but a clause may
+   add a condition of its own (see ChannelWriting.onSendBatch()).
+   */
+  default boolean isReady() {
+    return getChannel().isReady();
+  }
+
+  /*
+   Have waker woken when the clause may have become ready, as Continuation.awaitReadiness()
+   does. Usually that's when its channel does. A clause with a condition of its own that only
+   its continuation changes (see ChannelWriting.onSendBatch()) has nothing to wait for while
+   that condition is false: waiting on the channel would only wake it straight back up.
+   */
+  default boolean awaitReadiness(final Waker waker) {
+    return getChannel().awaitReadiness(waker);
+  }
+
+  /*
+   A scheduler running clauses on more than one thread calls claim() before it runs a clause and
+   release() after. A successful claim means the channel was ready, and no other clause on that
+   channel (side) can be claimed until release(). So a select can't lose its element (or its free
+   slot) to another select between the readiness check and the clause running.
+
+   Single-threaded channels have nothing to guard, so by default a claim just checks readiness.
+   */
+  default boolean claim() {
+    return isReady();
+  }
+
+  default void release() {
+  }
 }
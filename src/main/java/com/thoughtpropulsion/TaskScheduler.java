@@ -4,10 +4,76 @@ import java.util.concurrent.TimeUnit;
 
 public interface TaskScheduler {
 
-  void schedule(final Continuation continuation);
-  void schedule(final Continuation continuation, final long afterDelay, final TimeUnit delayUnit);
+  /*
+   Run continuation (once afterDelay has passed). The result withdraws it, if it hasn't started.
+   Under the production schedulers only delayed continuations can be withdrawn: one scheduled to
+   run now is as good as started.
+   */
+  Cancellable schedule(final Continuation continuation);
+  Cancellable schedule(final Continuation continuation, final long afterDelay, final TimeUnit delayUnit);
+
+  /*
+   Schedule what comes after the step that's running now: the next step of a sequence, the next
+   iteration of a loop. A scheduler may run next straight after the current step, without
+   queueing it, if it's ready.
+   */
+  default void continueWith(final Continuation next) {
+    schedule(next);
+  }
 
   <T> ChannelBiDirectional<T> createBoundedChannel(Class<T> clazz, int n);
 
+  /*
+   A channel used only as topology says. Using it any other way is a bug, which a scheduler may
+   (but needn't) detect when assertions are enabled.
+   */
+  default <T> ChannelBiDirectional<T> createBoundedChannel(final Class<T> clazz, final int n, final Topology topology) {
+    return createBoundedChannel(clazz, n);
+  }
+
+  /*
+   A channel that's never full, whose memory follows how much it holds. Nothing holds its writer
+   back, so only use it where something else bounds how far ahead of the reader the writer gets.
+   */
+  <T> ChannelBiDirectional<T> createUnboundedChannel(Class<T> clazz);
+
+  /*
+   A channel that keeps the newest n elements, dropping the oldest to make room: see
+   ChannelDropping.
+   */
+  <T> ChannelDropping<T> createSlidingChannel(Class<T> clazz, int n);
+
+  /*
+   A channel that keeps only the latest value.
+   */
+  default <T> ChannelDropping<T> createConflatedChannel(final Class<T> clazz) {
+    return createSlidingChannel(clazz, 1);
+  }
+
+  /*
+   A channel whose every element goes to every subscriber.
+   */
+  <T> ChannelBroadcast<T> createBroadcastChannel(Class<T> clazz, int n);
+
+  /*
+   Channels of unboxed primitives, for streams of counters, IDs, samples...
+   */
+  LongChannel createLongChannel(int n);
+
+  default IntChannel createIntChannel(final int n) {
+    return IntChannel.of(createLongChannel(n));
+  }
+
+  default DoubleChannel createDoubleChannel(final int n) {
+    return DoubleChannel.of(createLongChannel(n));
+  }
+
   boolean runReadyClauses(SelectClause... clauses);
+
+  /*
+   Report to listener from now on: this scheduler's continuations, and the channels it creates
+   from now on. It also gets the scheduler's gauges. MetricsListener.NONE, the default, turns
+   reporting off.
+   */
+  void setMetricsListener(MetricsListener listener);
 }
@@ -0,0 +1,107 @@
+package com.thoughtpropulsion;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/*
+ The clause ControlStructures.onTimeout() makes. It's its own channel: ready once delay has
+ passed since its select started waiting.
+
+ The wait starts when the select first asks whether the clause is ready. That arms it: one
+ timer, scheduled on the scheduler, so time is whatever the scheduler's NanoTime says (virtual
+ or real). When any clause of the select runs, the select resets it: the timer is cancelled (a
+ timer that fires anyway wakes nobody), and the next wait (the next iteration of a whileSelect)
+ arms a new one.
+ */
+final class Timeout implements SelectClause, Readiness {
+
+  private final TaskScheduler scheduler;
+  private final long delay;
+  private final TimeUnit delayUnit;
+  private final BooleanSupplier clause;
+
+  private final AtomicReference<Timer> armed = new AtomicReference<>(); // null between waits
+  private final Queue<Waker> waiters = new ConcurrentLinkedQueue<>();
+
+  Timeout(final TaskScheduler scheduler, final long delay, final TimeUnit delayUnit, final BooleanSupplier action) {
+    if (delay < 0) {
+      throw new IllegalArgumentException("Illegal timeout: " + delay + ". Must not be negative.");
+    }
+    this.scheduler = scheduler;
+    this.delay = delay;
+    this.delayUnit = delayUnit;
+    this.clause = action;
+  }
+
+  @Override
+  public Readiness getChannel() {
+    return this;
+  }
+
+  @Override
+  public BooleanSupplier getClause() {
+    return clause;
+  }
+
+  @Override
+  public boolean isReady() {
+    final Timer timer = armed.get();
+    if (timer != null) {
+      return timer.fired;
+    }
+    final Timer arming = new Timer();
+    if (armed.compareAndSet(null, arming)) {
+      arming.scheduled = scheduler.schedule(arming, delay, delayUnit);
+      return false;
+    }
+    return armed.get().fired; // someone else armed it
+  }
+
+  @Override
+  public boolean awaitReadiness(final Waker waker) {
+    waiters.add(waker);
+    final Timer timer = armed.get();
+    if (timer != null && timer.fired) {
+      waker.wake(); // fired before we were on the list
+    }
+    return true;
+  }
+
+  // a clause of the select ran: this wait is over
+  void reset() {
+    final Timer timer = armed.getAndSet(null);
+    waiters.clear();
+    if (timer != null && timer.scheduled != null) {
+      timer.scheduled.cancel(); // so it doesn't linger until it's due
+    }
+  }
+
+  private final class Timer implements Continuation {
+    volatile boolean fired;
+    volatile Cancellable scheduled;
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void compute(final TaskScheduler ignored) {
+      fired = true;
+      if (armed.get() == this) {
+        Waker waker;
+        while ((waker = waiters.poll()) != null) {
+          waker.wake();
+        }
+      } // else the wait it was for is over
+    }
+
+    @Override
+    public String toString() {
+      return "Timeout timer: " + System.identityHashCode(this);
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package com.thoughtpropulsion;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/*
+ A hierarchical timing wheel for holding elements until their (NanoTime) due time.
+
+ Time is kept relative to an origin, in nanoseconds, and split into 6-bit digits. Level L has
+ 64 slots, each one 64^L nanoseconds wide. An element is placed on the level of the highest
+ digit in which its due time differs from the wheel's current time. When time reaches a slot
+ its elements cascade down to lower levels (or expire). Since an element can only move down,
+ and there are 11 levels, add() and expiry are O(1) amortised. A bitmap of occupied slots per
+ level lets the wheel jump straight over empty stretches of time.
+
+ Elements due at the same instant expire in an order determined only by the sequence of calls
+ made on the wheel, so a deterministic scheduler stays deterministic.
+
+ Not thread-safe.
+ */
+public class TimingWheel<T> {
+
+  private static final int BITS = 6;
+  private static final int SLOTS = 1 << BITS;
+  private static final int LEVELS = (Long.SIZE - 1 + BITS - 1) / BITS; // enough for any positive long
+
+  private final long originNanos;
+  private final ToLongFunction<T> dueNanos;
+  private final ArrayDeque<T>[][] slots;
+  private final long[] occupied; // bit s of occupied[L] is set iff slots[L][s] is non-empty
+  private final ArrayDeque<T> overdue; // due at (or before) now, waiting to be expired
+  private long now; // relative to originNanos
+  private int size;
+
+  @SuppressWarnings("unchecked")
+  public TimingWheel(final long originNanos, final ToLongFunction<T> dueNanos) {
+    this.originNanos = originNanos;
+    this.dueNanos = dueNanos;
+    slots = (ArrayDeque<T>[][]) new ArrayDeque[LEVELS][];
+    occupied = new long[LEVELS];
+    overdue = new ArrayDeque<>();
+    now = 0;
+    size = 0;
+  }
+
+  public void add(final T element) {
+    place(element);
+    size += 1;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /*
+   Advance the wheel to nowNanos, passing every element due at or before then to expired,
+   in due time order. expired may add() more elements: any that are already due are expired
+   in this same call.
+   */
+  public void expire(final long nowNanos, final Consumer<? super T> expired) {
+    final long target = nowNanos - originNanos;
+    drainOverdue(expired);
+    int level = lowestOccupiedLevel();
+    while (level < LEVELS) {
+      final int slot = Long.numberOfTrailingZeros(occupied[level]);
+      final long slotStart = slotStart(level, slot);
+      if (slotStart > target) {
+        break;
+      }
+      now = slotStart;
+      occupied[level] &= ~(1L << slot);
+      final ArrayDeque<T> cascading = slots[level][slot];
+      T element;
+      while ((element = cascading.poll()) != null) {
+        place(element); // lands on a lower level, or in overdue
+      }
+      drainOverdue(expired);
+      level = lowestOccupiedLevel();
+    }
+    now = Math.max(now, target);
+  }
+
+  /*
+   Remove every element filter matches, returning how many. O(size): this is for purging
+   elements that have been abandoned (e.g. cancelled timers), not for routine removal.
+   */
+  public int removeIf(final Predicate<? super T> filter) {
+    int removed = removeFrom(overdue, filter);
+    for (int level = 0; level < LEVELS; level++) {
+      long remaining = occupied[level];
+      while (remaining != 0) {
+        final int slot = Long.numberOfTrailingZeros(remaining);
+        remaining &= remaining - 1;
+        final ArrayDeque<T> elements = slots[level][slot];
+        removed += removeFrom(elements, filter);
+        if (elements.isEmpty()) {
+          occupied[level] &= ~(1L << slot);
+        }
+      }
+    }
+    size -= removed;
+    return removed;
+  }
+
+  /*
+   Due time of the earliest element, or Long.MAX_VALUE if the wheel is empty.
+   */
+  public long nextDueNanos() {
+    if (!overdue.isEmpty()) {
+      return earliestDue(overdue);
+    }
+    final int level = lowestOccupiedLevel();
+    if (level == LEVELS) {
+      return Long.MAX_VALUE;
+    }
+    /*
+     Everything in the first occupied slot of the lowest occupied level comes before
+     everything in later slots, and before everything on higher levels.
+     */
+    return earliestDue(slots[level][Long.numberOfTrailingZeros(occupied[level])]);
+  }
+
+  private void place(final T element) {
+    final long due = dueNanos.applyAsLong(element) - originNanos;
+    if (due <= now) {
+      overdue.add(element);
+      return;
+    }
+    final int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(due ^ now)) / BITS;
+    final int slot = (int) (due >>> (level * BITS)) & (SLOTS - 1);
+    slot(level, slot).add(element);
+    occupied[level] |= 1L << slot;
+  }
+
+  private void drainOverdue(final Consumer<? super T> expired) {
+    T element;
+    while ((element = overdue.poll()) != null) {
+      size -= 1;
+      expired.accept(element);
+    }
+  }
+
+  private static <E> int removeFrom(final ArrayDeque<E> elements, final Predicate<? super E> filter) {
+    final int before = elements.size();
+    elements.removeIf(filter);
+    return before - elements.size();
+  }
+
+  private ArrayDeque<T> slot(final int level, final int slot) {
+    if (slots[level] == null) {
+      slots[level] = newLevel();
+    }
+    final ArrayDeque<T> deque = slots[level][slot];
+    if (deque != null) {
+      return deque;
+    }
+    return slots[level][slot] = new ArrayDeque<>();
+  }
+
+  @SuppressWarnings("unchecked")
+  private ArrayDeque<T>[] newLevel() {
+    return (ArrayDeque<T>[]) new ArrayDeque[SLOTS];
+  }
+
+  private int lowestOccupiedLevel() {
+    int level = 0;
+    while (level < LEVELS && occupied[level] == 0) {
+      ++level;
+    }
+    return level;
+  }
+
+  /*
+   Start of the slot on the given level, in the current rotation of that level. Only
+   meaningful for occupied slots: those are always ahead of now.
+   */
+  private long slotStart(final int level, final int slot) {
+    final int shift = (level + 1) * BITS;
+    final long higherDigits = shift >= Long.SIZE ? 0 : now & -(1L << shift);
+    return higherDigits | ((long) slot << (level * BITS));
+  }
+
+  private long earliestDue(final ArrayDeque<T> elements) {
+    long earliest = Long.MAX_VALUE;
+    for (final T element : elements) {
+      earliest = Math.min(earliest, dueNanos.applyAsLong(element));
+    }
+    return earliest;
+  }
+}
@@ -0,0 +1,15 @@
+package com.thoughtpropulsion;
+
+/*
+ Who may use a channel: how many continuations write to it (put(), onSend()) and how many read
+ from it (get(), onReceive(), onReceiveOrClosed()). A scheduler may pick a cheaper channel
+ for a more restrictive topology.
+
+ "Single" means one at a time: successive writers (readers) must be ordered, e.g. by being
+ steps of one sequence(), not that they run on one thread.
+ */
+public enum Topology {
+  SPSC, // single producer, single consumer
+  MPSC, // multiple producers, single consumer
+  MPMC  // multiple producers, multiple consumers
+}
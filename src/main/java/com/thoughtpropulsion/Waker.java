@@ -0,0 +1,17 @@
+package com.thoughtpropulsion;
+
+/*
+ A scheduler's handle on a parked (blocked) continuation. A channel keeps the wakers that are
+ waiting on it and calls wake() when its readiness changes.
+
+ A waker is armed until it has been woken. Since a continuation may wait on several channels at
+ once (e.g. a select()) the first channel to wake it disarms it, and the others may discard it.
+ */
+public interface Waker {
+  boolean isArmed();
+
+  /*
+   Move the continuation back to the scheduler's ready set. Does nothing if no longer armed.
+   */
+  void wake();
+}
@@ -0,0 +1,31 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.Batch;
+
+/*
+ A Batch of the first size elements of a clause's own buffer, which the clause refills on every
+ activation.
+ */
+final class ArrayBatch<T> implements Batch<T> {
+
+  final Object[] elements;
+  int size;
+
+  ArrayBatch(final int capacity) {
+    elements = new Object[capacity];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get(final int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+    }
+    return (T) elements[i];
+  }
+}
@@ -0,0 +1,381 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.Batch;
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.MetricsListener;
+import com.thoughtpropulsion.ReceiveClause;
+import com.thoughtpropulsion.ReceiveOrClosedClause;
+import com.thoughtpropulsion.SendClause;
+import com.thoughtpropulsion.Waker;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/*
+ The parts of a bounded channel that are the same regardless of how the elements are stored:
+ the typed operations and clauses, on top of ConcurrentChannelState. Subclasses provide
+ thread-safe storage.
+
+ Unlike the deterministic ChannelBounded, onReceive() delivers elements still buffered when
+ the channel was closed, the same as onReceiveOrClosed() does. Only once the channel is drained
+ does a receive clause consume the close (moving to Closed) without calling its receiver.
+ */
+abstract class ChannelBoundedConcurrent<T> extends ConcurrentChannelState implements ChannelBiDirectional<T> {
+
+  // returned by poll() when there's nothing to take. (null is a legal element.)
+  static final Object EMPTY = new Object();
+
+  private MetricsListener metricsListener = MetricsListener.NONE;
+
+  ChannelBoundedConcurrent(final boolean blocking) {
+    super(blocking);
+  }
+
+  /*
+   Add value unless full. Must be linearizable with poll(), isEmpty() and isFull().
+   */
+  abstract boolean offer(T value);
+
+  /*
+   Take the oldest value, or return EMPTY.
+   */
+  abstract Object poll();
+
+  /*
+   Take up to maxN of the oldest values into buffer, returning how many. Storage that can take
+   several elements for the price of one should override this.
+   */
+  int pollInto(final Object[] buffer, final int maxN) {
+    int n = 0;
+    Object value;
+    while (n < maxN && (value = poll()) != EMPTY) {
+      buffer[n++] = value;
+    }
+    return n;
+  }
+
+  /*
+   Add as many of values (from the first) as fit, returning how many.
+   */
+  int offerAll(final List<? extends T> values) {
+    int n = 0;
+    while (n < values.size() && offer(values.get(n))) {
+      ++n;
+    }
+    return n;
+  }
+
+  private final ChannelReading<T> channelReading = new ChannelReading<T>() {
+    @Override
+    public boolean isReady() {
+      return readable();
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      return awaitReadable(waker);
+    }
+
+    @Override
+    public ReceiveClause<T> onReceive(final Predicate<T> receiver) {
+      final ChannelReading<T> self = this;
+      return new ReceiveClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          final Object value = take();
+          if (value != EMPTY) {
+            return receiver.test((T) value);
+          }
+          if (consumeClose()) {
+            return true;
+          }
+          throw new IllegalStateException("activated onReceive clause when channel wasn't ready");
+        };
+
+        @Override
+        public ChannelReading<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean claim() {
+          return claimReading();
+        }
+
+        @Override
+        public void release() {
+          releaseReading();
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public ReceiveClause<T> onReceive(final Consumer<T> receiver) {
+      return onReceive( value -> {receiver.accept(value); return true;});
+    }
+
+    @Override
+    public ReceiveOrClosedClause<T> onReceiveOrClosed(final BiPredicate<T, Boolean> receiver) {
+      final ChannelReading<T> self = this;
+      return new ReceiveOrClosedClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          final Object value = take();
+          if (value != EMPTY) {
+            return receiver.test((T) value, false);
+          }
+          if (consumeClose()) {
+            /*
+             Receive the synthetic "closing" value. Receiver should ignore the first argument,
+             but we have to pass something.
+             */
+            return receiver.test(null, true);
+          }
+          throw new IllegalStateException("activated onReceiveOrClosed clause when channel wasn't ready");
+        };
+
+        @Override
+        public ChannelReading<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean claim() {
+          return claimReading();
+        }
+
+        @Override
+        public void release() {
+          releaseReading();
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public ReceiveClause<T> onReceiveBatch(final int maxN, final Predicate<Batch<T>> receiver) {
+      if (maxN < 1) {
+        throw new IllegalArgumentException("Illegal batch size: " + maxN + ". Must be greater than zero.");
+      }
+      final ChannelReading<T> self = this;
+      final ArrayBatch<T> batch = new ArrayBatch<>(maxN);
+      return new ReceiveClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          final int n = pollInto(batch.elements, maxN);
+          if (n > 0) {
+            removed();
+            batch.size = n;
+            try {
+              return receiver.test(batch);
+            } finally {
+              Arrays.fill(batch.elements, 0, n, null); // don't keep them reachable
+              batch.size = 0;
+            }
+          }
+          if (consumeClose()) {
+            return true;
+          }
+          throw new IllegalStateException("activated onReceiveBatch clause when channel wasn't ready");
+        };
+
+        @Override
+        public ChannelReading<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean claim() {
+          return claimReading();
+        }
+
+        @Override
+        public void release() {
+          releaseReading();
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public T get() {
+      Object value = take();
+      if (value != EMPTY) {
+        return (T) value;
+      }
+      metricsListener.foundEmpty();
+      do {
+        awaitElement();
+        value = take();
+      } while (value == EMPTY);
+      removedAfterBlocking();
+      return (T) value;
+    }
+  };
+
+  private final ChannelWriting<T> channelWriting = new ChannelWriting<>() {
+    @Override
+    public void close() {
+      ChannelBoundedConcurrent.this.close();
+    }
+
+    @Override
+    public boolean isReady() {
+      return writable();
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      return awaitWritable(waker);
+    }
+
+    @Override
+    public SendClause<T> onSend(final Predicate<ChannelWriting<T>> predicate) {
+      final ChannelWriting<T> self = this;
+
+      return new SendClause<>() {
+        private final BooleanSupplier clause = () -> predicate.test(getChannel());
+
+        @Override
+        public ChannelWriting<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean claim() {
+          return claimWriting();
+        }
+
+        @Override
+        public void release() {
+          releaseWriting();
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public SendClause<T> onSend(final Runnable predicate) {
+      return onSend(channelWriting -> {predicate.run(); return true;});
+    }
+
+    @Override
+    public SendClause<T> onSendBatch(final List<T> pending, final Predicate<ChannelWriting<T>> afterwards) {
+      final ChannelWriting<T> self = this;
+
+      return new SendClause<>() {
+        private final BooleanSupplier clause = () -> {
+          pending.subList(0, putAll(pending)).clear();
+          return afterwards.test(self);
+        };
+
+        @Override
+        public ChannelWriting<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean isReady() {
+          return !pending.isEmpty() && writable();
+        }
+
+        // only this continuation fills pending: see SelectClause.awaitReadiness()
+        @Override
+        public boolean awaitReadiness(final Waker waker) {
+          return pending.isEmpty() || self.awaitReadiness(waker);
+        }
+
+        @Override
+        public boolean claim() {
+          return !pending.isEmpty() && claimWriting();
+        }
+
+        @Override
+        public void release() {
+          releaseWriting();
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public int putAll(final List<? extends T> values) {
+      checkOpen();
+      final int n = offerAll(values);
+      if (n > 0) {
+        added(false);
+      }
+      if (n < values.size()) {
+        metricsListener.foundFull();
+      }
+      return n;
+    }
+
+    @Override
+    public void put(final T value) {
+      boolean blocked = false;
+      checkOpen();
+      while (!offer(value)) {
+        if (!blocked) {
+          metricsListener.foundFull();
+        }
+        awaitRoom();
+        blocked = true;
+        checkOpen();
+      }
+      added(blocked);
+    }
+  };
+
+  @Override
+  public void setMetricsListener(final MetricsListener listener) {
+    metricsListener = listener;
+  }
+
+  // for storage that reports events of its own, e.g. drops
+  final MetricsListener getMetricsListener() {
+    return metricsListener;
+  }
+
+  @Override
+  public ChannelReading<T> getReading() {
+    return channelReading;
+  }
+
+  @Override
+  public ChannelWriting<T> getWriting() {
+    return channelWriting;
+  }
+
+  private Object take() {
+    final Object value = poll();
+    if (value != EMPTY) {
+      removed();
+    }
+    return value;
+  }
+}
@@ -0,0 +1,110 @@
+package com.thoughtpropulsion.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ A bounded multi-producer/multi-consumer channel, safe to share between threads, that never
+ takes a lock.
+
+ This is Dmitry Vyukov's bounded MPMC queue. Each slot carries a sequence number saying whose
+ turn it is. Producers (consumers) race for a position with one CAS on the enqueue (dequeue)
+ position and then own the slot. The sequence number is stored doubled (2 * position for "empty,
+ waiting for the producer of position", 2 * position + 1 for "full, waiting for the consumer")
+ so that a slot's states are distinct even when the bound is 1.
+ */
+public class ChannelBoundedLockFree<T> extends ChannelBoundedConcurrent<T> {
+
+  private final int capacity;
+  private final Object[] content;
+  private final AtomicLongArray sequences;
+  private final PaddedAtomicLong enqueuePosition;
+  private final PaddedAtomicLong dequeuePosition;
+
+  public ChannelBoundedLockFree(final int bound) {
+    this(bound, false);
+  }
+
+  /*
+   See ConcurrentChannelState for what blocking means.
+   */
+  public ChannelBoundedLockFree(final int bound, final boolean blocking) {
+    super(blocking);
+    if (bound < 1) {
+      throw new IllegalArgumentException("Illegal channel size: " + bound + ". Must be greater than zero.");
+    }
+    capacity = bound;
+    content = new Object[bound];
+    sequences = new AtomicLongArray(bound);
+    for (int i = 0; i < bound; i++) {
+      sequences.set(i, 2L * i);
+    }
+    enqueuePosition = new PaddedAtomicLong(0);
+    dequeuePosition = new PaddedAtomicLong(0);
+  }
+
+  @Override
+  boolean offer(final T value) {
+    long position = enqueuePosition.get();
+    while (true) {
+      final int i = index(position);
+      final long difference = sequences.get(i) - 2 * position;
+      if (difference == 0) {
+        if (enqueuePosition.compareAndSet(position, position + 1)) {
+          content[i] = value;
+          sequences.set(i, 2 * position + 1);
+          return true;
+        }
+        position = enqueuePosition.get();
+      } else if (difference < 0) {
+        return false; // the slot still holds the element from the previous lap
+      } else {
+        position = enqueuePosition.get(); // another producer got here first
+      }
+    }
+  }
+
+  @Override
+  Object poll() {
+    long position = dequeuePosition.get();
+    while (true) {
+      final int i = index(position);
+      final long difference = sequences.get(i) - (2 * position + 1);
+      if (difference == 0) {
+        if (dequeuePosition.compareAndSet(position, position + 1)) {
+          final Object value = content[i];
+          content[i] = null; // don't keep it reachable
+          sequences.set(i, 2 * (position + capacity));
+          return value;
+        }
+        position = dequeuePosition.get();
+      } else if (difference < 0) {
+        return EMPTY; // the producer of this position hasn't been (or hasn't finished)
+      } else {
+        position = dequeuePosition.get(); // another consumer got here first
+      }
+    }
+  }
+
+  @Override
+  boolean isEmpty() {
+    final long position = dequeuePosition.get();
+    return sequences.get(index(position)) != 2 * position + 1;
+  }
+
+  @Override
+  boolean isFull() {
+    final long position = enqueuePosition.get();
+    return sequences.get(index(position)) < 2 * position;
+  }
+
+  // counts slots reserved for writing (reading) whose element isn't there (gone) yet
+  @Override
+  public int size() {
+    final long size = enqueuePosition.get() - dequeuePosition.get();
+    return (int) Math.max(0, Math.min(capacity, size));
+  }
+
+  private int index(final long position) {
+    return (int) (position % capacity);
+  }
+}
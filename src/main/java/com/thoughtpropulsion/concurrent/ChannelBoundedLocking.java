@@ -0,0 +1,108 @@
+package com.thoughtpropulsion.concurrent;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ A bounded channel, safe to share between threads, that guards a plain ring buffer with a lock.
+ Simple, and the baseline that ChannelBoundedLockFree is measured against.
+ */
+public class ChannelBoundedLocking<T> extends ChannelBoundedConcurrent<T> {
+
+  private final ReentrantLock lock;
+  private final Object[] content;
+  private int nextRead;
+  private int nextWrite;
+  private volatile int size; // number of elements currently stored in channel
+
+  public ChannelBoundedLocking(final int bound) {
+    super(false);
+    if (bound < 1) {
+      throw new IllegalArgumentException("Illegal channel size: " + bound + ". Must be greater than zero.");
+    }
+    lock = new ReentrantLock();
+    content = new Object[bound];
+    nextRead = nextWrite = size = 0;
+  }
+
+  @Override
+  boolean offer(final T value) {
+    lock.lock();
+    try {
+      if (size == content.length) {
+        return false;
+      }
+      content[nextWrite] = value;
+      nextWrite = (nextWrite + 1) % content.length;
+      size += 1;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  Object poll() {
+    lock.lock();
+    try {
+      if (size == 0) {
+        return EMPTY;
+      }
+      final Object value = content[nextRead];
+      content[nextRead] = null; // don't keep it reachable
+      nextRead = (nextRead + 1) % content.length;
+      size -= 1;
+      return value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  int pollInto(final Object[] buffer, final int maxN) {
+    lock.lock();
+    try {
+      final int n = Math.min(maxN, size);
+      for (int k = 0; k < n; k++) {
+        buffer[k] = content[nextRead];
+        content[nextRead] = null; // don't keep it reachable
+        nextRead = (nextRead + 1) % content.length;
+      }
+      size -= n;
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  int offerAll(final List<? extends T> values) {
+    lock.lock();
+    try {
+      final int n = Math.min(values.size(), content.length - size);
+      for (int k = 0; k < n; k++) {
+        content[nextWrite] = values.get(k);
+        nextWrite = (nextWrite + 1) % content.length;
+      }
+      size += n;
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  boolean isFull() {
+    return size == content.length;
+  }
+}
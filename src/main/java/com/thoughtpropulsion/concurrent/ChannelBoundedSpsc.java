@@ -0,0 +1,170 @@
+package com.thoughtpropulsion.concurrent;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ A bounded channel for one writer and one reader at a time (Topology.SPSC): a ring buffer with
+ no CAS on the way in or out.
+
+ Each side owns its position and keeps a cached copy of the other side's, so it only reads the
+ other side's (contended) cache line when the cached copy says the buffer is full (empty).
+ Positions are written with volatile stores, not lazySet(): waking parked continuations relies
+ on the store being visible before we look at the wait list (see ConcurrentWaitList).
+
+ With assertions enabled, two writers (readers) overlapping is detected and reported with an
+ AssertionError. Writers that merely run on different threads, one after another, are fine.
+ */
+public class ChannelBoundedSpsc<T> extends ChannelBoundedConcurrent<T> {
+
+  private final int capacity;
+  private final Object[] content;
+  private final Position tail; // next position to write
+  private final Position head; // next position to read
+
+  // the thread in offer() (poll()), when assertions are enabled. Package-private for tests.
+  final AtomicReference<Thread> writer = new AtomicReference<>();
+  final AtomicReference<Thread> reader = new AtomicReference<>();
+
+  public ChannelBoundedSpsc(final int bound) {
+    this(bound, false);
+  }
+
+  /*
+   See ConcurrentChannelState for what blocking means.
+   */
+  public ChannelBoundedSpsc(final int bound, final boolean blocking) {
+    super(blocking);
+    if (bound < 1) {
+      throw new IllegalArgumentException("Illegal channel size: " + bound + ". Must be greater than zero.");
+    }
+    capacity = bound;
+    content = new Object[bound];
+    tail = new Position();
+    head = new Position();
+  }
+
+  @Override
+  boolean offer(final T value) {
+    assert enter(writer, "writer");
+    try {
+      final long position = tail.get();
+      if (position - tail.otherSide >= capacity) {
+        tail.otherSide = head.get();
+        if (position - tail.otherSide >= capacity) {
+          return false;
+        }
+      }
+      content[index(position)] = value;
+      tail.set(position + 1);
+      return true;
+    } finally {
+      assert exit(writer);
+    }
+  }
+
+  @Override
+  Object poll() {
+    assert enter(reader, "reader");
+    try {
+      final long position = head.get();
+      if (position >= head.otherSide) {
+        head.otherSide = tail.get();
+        if (position >= head.otherSide) {
+          return EMPTY;
+        }
+      }
+      final int i = index(position);
+      final Object value = content[i];
+      content[i] = null; // don't keep it reachable
+      head.set(position + 1);
+      return value;
+    } finally {
+      assert exit(reader);
+    }
+  }
+
+  // one store of the head publishes the whole batch
+  @Override
+  int pollInto(final Object[] buffer, final int maxN) {
+    assert enter(reader, "reader");
+    try {
+      final long position = head.get();
+      head.otherSide = tail.get();
+      final int n = (int) Math.min(maxN, head.otherSide - position);
+      for (int k = 0; k < n; k++) {
+        final int i = index(position + k);
+        buffer[k] = content[i];
+        content[i] = null;
+      }
+      if (n > 0) {
+        head.set(position + n);
+      }
+      return n;
+    } finally {
+      assert exit(reader);
+    }
+  }
+
+  // one store of the tail publishes the whole batch
+  @Override
+  int offerAll(final List<? extends T> values) {
+    assert enter(writer, "writer");
+    try {
+      final long position = tail.get();
+      tail.otherSide = head.get();
+      final int n = (int) Math.min(values.size(), capacity - (position - tail.otherSide));
+      for (int k = 0; k < n; k++) {
+        content[index(position + k)] = values.get(k);
+      }
+      if (n > 0) {
+        tail.set(position + n);
+      }
+      return n;
+    } finally {
+      assert exit(writer);
+    }
+  }
+
+  @Override
+  boolean isEmpty() {
+    return head.get() >= tail.get();
+  }
+
+  @Override
+  boolean isFull() {
+    return tail.get() - head.get() >= capacity;
+  }
+
+  @Override
+  public int size() {
+    final long size = tail.get() - head.get();
+    return (int) Math.max(0, Math.min(capacity, size));
+  }
+
+  private int index(final long position) {
+    return (int) (position % capacity);
+  }
+
+  private static boolean enter(final AtomicReference<Thread> side, final String role) {
+    final Thread current = Thread.currentThread();
+    if (!side.compareAndSet(null, current)) {
+      throw new AssertionError(String.format("second %s on an SPSC channel: %s, while %s is still in it",
+        role, current.getName(), side.get()));
+    }
+    return true;
+  }
+
+  private static boolean exit(final AtomicReference<Thread> side) {
+    side.set(null);
+    return true;
+  }
+
+  private static final class Position extends PaddedAtomicLong {
+    long otherSide; // the other side's position, as last seen by the owner of this one
+
+    Position() {
+      super(0);
+    }
+  }
+}
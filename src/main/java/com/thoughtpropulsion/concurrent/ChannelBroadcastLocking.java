@@ -0,0 +1,628 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.Batch;
+import com.thoughtpropulsion.ChannelBroadcast;
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.ClosingState;
+import com.thoughtpropulsion.MetricsListener;
+import com.thoughtpropulsion.ReceiveClause;
+import com.thoughtpropulsion.ReceiveOrClosedClause;
+import com.thoughtpropulsion.SendClause;
+import com.thoughtpropulsion.Waker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/*
+ A broadcast channel, safe to share between threads, that guards its ring buffer and positions
+ with a lock. Positions and the gate work as in the deterministic ChannelBroadcastBounded: put()
+ costs the same however many subscribers there are.
+
+ Readiness is read without the lock (positions are volatile) and re-checked under it, and
+ clauses are claimed per subscription (per writing side), as in ConcurrentChannelState. All
+ subscriptions share one list of parked readers: a put() makes every subscriber that was
+ waiting ready, and only the waiting ones are on it. A continuation parked because another held
+ its subscription's claim waits on that subscription's own list, so releasing a claim doesn't
+ wake every other subscriber's.
+
+ A blocking channel's get() (put()) waits until there's an element (room) instead of throwing.
+ */
+public class ChannelBroadcastLocking<T> implements ChannelBroadcast<T> {
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition(); // for blocked get() and put()
+  private final Object[] content; // sized as in ChannelBroadcastBounded
+  private final int bound;
+  private final int mask;
+  private final boolean blocking;
+  private volatile long written; // position of the next element put
+  private volatile long gate; // lowest position of any subscriber (written, if there are none)
+  private int atGate; // subscribers whose position is gate
+  private final List<Subscription> subscriptions = new ArrayList<>();
+  private volatile boolean closed;
+  private MetricsListener metricsListener = MetricsListener.NONE;
+
+  // continuations parked until some subscription (the writing side) becomes ready
+  private final ConcurrentWaitList readers = new ConcurrentWaitList();
+  private final ConcurrentWaitList writers = new ConcurrentWaitList();
+  private final AtomicBoolean writeClaimed = new AtomicBoolean(false);
+
+  public ChannelBroadcastLocking(final int bound) {
+    this(bound, false);
+  }
+
+  public ChannelBroadcastLocking(final int bound, final boolean blocking) {
+    if (bound < 1) {
+      throw new IllegalArgumentException("Illegal channel size: " + bound + ". Must be greater than zero.");
+    }
+    this.bound = bound;
+    content = new Object[ceilingPowerOfTwo(bound)];
+    mask = content.length - 1;
+    this.blocking = blocking;
+  }
+
+  private static int ceilingPowerOfTwo(final int n) {
+    if (n > 1 << 30) {
+      throw new IllegalArgumentException("Illegal channel size: " + n + ". Must be at most " + (1 << 30) + ".");
+    }
+    return n == 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+  }
+
+  private boolean writable() {
+    return !closed && written - gate < bound;
+  }
+
+  private final ChannelWriting<T> channelWriting = new ChannelWriting<>() {
+    @Override
+    public void close() {
+      lock.lock();
+      try {
+        closed = true;
+        changed.signalAll(); // so blocked threads see the close
+      } finally {
+        lock.unlock();
+      }
+      readers.wakeAll(); // the synthetic "closing" value is ready for every subscriber
+    }
+
+    @Override
+    public boolean isReady() {
+      return writable();
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      writers.add(waker);
+      if (writable() && !writeClaimed.get()) {
+        waker.wake(); // became ready before we were on the list
+      }
+      return true;
+    }
+
+    @Override
+    public SendClause<T> onSend(final Predicate<ChannelWriting<T>> predicate) {
+      final ChannelWriting<T> self = this;
+
+      return new SendClause<>() {
+        private final BooleanSupplier clause = () -> predicate.test(getChannel());
+
+        @Override
+        public ChannelWriting<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean claim() {
+          return claimWriting();
+        }
+
+        @Override
+        public void release() {
+          releaseWriting();
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public SendClause<T> onSend(final Runnable predicate) {
+      return onSend(channelWriting -> {predicate.run(); return true;});
+    }
+
+    @Override
+    public SendClause<T> onSendBatch(final List<T> pending, final Predicate<ChannelWriting<T>> afterwards) {
+      final ChannelWriting<T> self = this;
+
+      return new SendClause<>() {
+        private final BooleanSupplier clause = () -> {
+          pending.subList(0, putAll(pending)).clear();
+          return afterwards.test(self);
+        };
+
+        @Override
+        public ChannelWriting<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean isReady() {
+          return !pending.isEmpty() && writable();
+        }
+
+        // only this continuation fills pending: see SelectClause.awaitReadiness()
+        @Override
+        public boolean awaitReadiness(final Waker waker) {
+          return pending.isEmpty() || self.awaitReadiness(waker);
+        }
+
+        @Override
+        public boolean claim() {
+          return !pending.isEmpty() && claimWriting();
+        }
+
+        @Override
+        public void release() {
+          releaseWriting();
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public int putAll(final List<? extends T> values) {
+      final int n;
+      lock.lock();
+      try {
+        checkOpen();
+        n = (int) Math.min(values.size(), bound - (written - gate));
+        for (int i = 0; i < n; i++) {
+          append(values.get(i));
+        }
+      } finally {
+        lock.unlock();
+      }
+      if (n < values.size()) {
+        metricsListener.foundFull();
+      }
+      if (n > 0) {
+        readers.wakeAll();
+      }
+      return n;
+    }
+
+    @Override
+    public void put(final T value) {
+      lock.lock();
+      try {
+        checkOpen();
+        if (written - gate == bound) {
+          metricsListener.foundFull();
+          if (!blocking) {
+            throw new IllegalStateException("Channel is full.");
+          }
+          do {
+            await();
+            checkOpen();
+          } while (written - gate == bound);
+        }
+        append(value);
+      } finally {
+        lock.unlock();
+      }
+      readers.wakeAll();
+    }
+  };
+
+  // under the lock
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("can't put in state: " + ClosingState.Closing);
+    }
+  }
+
+  // under the lock
+  private void append(final T value) {
+    if (subscriptions.isEmpty()) {
+      gate = written + 1; // nobody to read it
+    } else {
+      content[(int) (written & mask)] = value;
+    }
+    written = written + 1;
+    changed.signalAll();
+  }
+
+  // under the lock
+  private void await() {
+    try {
+      changed.await();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while blocked on a channel");
+    }
+  }
+
+  private boolean claimWriting() {
+    if (!writeClaimed.compareAndSet(false, true)) {
+      return false;
+    }
+    if (writable()) {
+      return true;
+    }
+    releaseWriting();
+    return false;
+  }
+
+  private void releaseWriting() {
+    writeClaimed.set(false);
+    writers.wakeAll(); // anyone who parked because we held the claim
+  }
+
+  @Override
+  public ChannelWriting<T> getWriting() {
+    return channelWriting;
+  }
+
+  @Override
+  public ChannelReading<T> subscribe() {
+    lock.lock();
+    try {
+      final Subscription subscription = new Subscription(written);
+      if (subscriptions.isEmpty()) {
+        gate = written;
+        atGate = 0;
+      }
+      if (subscription.position == gate) {
+        ++atGate;
+      }
+      subscriptions.add(subscription);
+      return subscription;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void unsubscribe(final ChannelReading<T> reading) {
+    final Subscription subscription = (Subscription) reading;
+    final boolean roomMade;
+    lock.lock();
+    try {
+      roomMade = subscriptions.remove(subscription) && subscription.position == gate && --atGate == 0
+        && advanceGate();
+    } finally {
+      lock.unlock();
+    }
+    if (roomMade) {
+      writers.wakeAll();
+    }
+  }
+
+  @Override
+  public int size() {
+    return (int) Math.max(0, written - gate);
+  }
+
+  @Override
+  public void setMetricsListener(final MetricsListener listener) {
+    metricsListener = listener;
+  }
+
+  /*
+   Under the lock. The last subscriber at the gate moved on: find the new gate, and clear the
+   slots behind it. Returns true if the writer was held back and now isn't.
+   */
+  private boolean advanceGate() {
+    final boolean wasFull = written - gate == bound;
+    long lowest = written;
+    for (final Subscription subscription : subscriptions) {
+      lowest = Math.min(lowest, subscription.position);
+    }
+    atGate = 0;
+    for (final Subscription subscription : subscriptions) {
+      if (subscription.position == lowest) {
+        ++atGate;
+      }
+    }
+    for (long s = gate; s < lowest; s++) {
+      content[(int) (s & mask)] = null; // everyone has read it: don't keep it reachable
+    }
+    gate = lowest;
+    if (wasFull) {
+      changed.signalAll();
+    }
+    return wasFull && !closed;
+  }
+
+  // returned by take() when there's nothing to take. (null is a legal element.)
+  private static final Object EMPTY = new Object();
+
+  private final class Subscription implements ChannelReading<T> {
+    private volatile long position; // of the next element to read
+    private volatile boolean closeConsumed;
+    private final AtomicBoolean readClaimed = new AtomicBoolean(false);
+
+    // continuations parked while this subscription was readable but claimed
+    private final ConcurrentWaitList claimWaiters = new ConcurrentWaitList();
+
+    Subscription(final long position) {
+      this.position = position;
+    }
+
+    private boolean readable() {
+      // once closed and drained it is as if we have an (one) extra element
+      return position < written || (closed && !closeConsumed);
+    }
+
+    @Override
+    public boolean isReady() {
+      return readable();
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      readers.add(waker);
+      if (readable()) {
+        if (readClaimed.get()) {
+          claimWaiters.add(waker);
+          if (!readClaimed.get()) {
+            waker.wake(); // released before we were on the list
+          }
+        } else {
+          waker.wake(); // became ready before we were on the list
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public ReceiveClause<T> onReceive(final Predicate<T> receiver) {
+      final ChannelReading<T> self = this;
+      return new ReceiveClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          final Object value = take();
+          if (value != EMPTY) {
+            return receiver.test((T) value);
+          }
+          if (consumeClose()) {
+            return true;
+          }
+          throw new IllegalStateException("activated onReceive clause when channel wasn't ready");
+        };
+
+        @Override
+        public ChannelReading<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean claim() {
+          return claimReading();
+        }
+
+        @Override
+        public void release() {
+          releaseReading();
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public ReceiveClause<T> onReceive(final Consumer<T> receiver) {
+      return onReceive( value -> {receiver.accept(value); return true;});
+    }
+
+    @Override
+    public ReceiveOrClosedClause<T> onReceiveOrClosed(final BiPredicate<T, Boolean> receiver) {
+      final ChannelReading<T> self = this;
+      return new ReceiveOrClosedClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          final Object value = take();
+          if (value != EMPTY) {
+            return receiver.test((T) value, false);
+          }
+          if (consumeClose()) {
+            /*
+             Receive the synthetic "closing" value. Receiver should ignore the first argument,
+             but we have to pass something.
+             */
+            return receiver.test(null, true);
+          }
+          throw new IllegalStateException("activated onReceiveOrClosed clause when channel wasn't ready");
+        };
+
+        @Override
+        public ChannelReading<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean claim() {
+          return claimReading();
+        }
+
+        @Override
+        public void release() {
+          releaseReading();
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public ReceiveClause<T> onReceiveBatch(final int maxN, final Predicate<Batch<T>> receiver) {
+      if (maxN < 1) {
+        throw new IllegalArgumentException("Illegal batch size: " + maxN + ". Must be greater than zero.");
+      }
+      final ChannelReading<T> self = this;
+      final ArrayBatch<T> batch = new ArrayBatch<>(maxN);
+      return new ReceiveClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          final int n = takeInto(batch.elements, maxN);
+          if (n > 0) {
+            batch.size = n;
+            try {
+              return receiver.test(batch);
+            } finally {
+              Arrays.fill(batch.elements, 0, n, null); // don't keep them reachable
+              batch.size = 0;
+            }
+          }
+          if (consumeClose()) {
+            return true;
+          }
+          throw new IllegalStateException("activated onReceiveBatch clause when channel wasn't ready");
+        };
+
+        @Override
+        public ChannelReading<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean claim() {
+          return claimReading();
+        }
+
+        @Override
+        public void release() {
+          releaseReading();
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public T get() {
+      Object value = take();
+      if (value != EMPTY) {
+        return (T) value;
+      }
+      metricsListener.foundEmpty();
+      if (!blocking) {
+        throw new IllegalStateException("Channel is empty.");
+      }
+      boolean roomMade;
+      lock.lock();
+      try {
+        while (position == written) {
+          if (closed) {
+            throw new IllegalStateException("Channel is closed.");
+          }
+          await();
+        }
+        value = content[(int) (position & mask)];
+        roomMade = advance(1);
+      } finally {
+        lock.unlock();
+      }
+      if (roomMade) {
+        writers.wakeAll();
+      }
+      return (T) value;
+    }
+
+    private Object take() {
+      final Object value;
+      final boolean roomMade;
+      lock.lock();
+      try {
+        if (position == written) {
+          return EMPTY;
+        }
+        value = content[(int) (position & mask)];
+        roomMade = advance(1);
+      } finally {
+        lock.unlock();
+      }
+      if (roomMade) {
+        writers.wakeAll();
+      }
+      return value;
+    }
+
+    private int takeInto(final Object[] buffer, final int maxN) {
+      final int n;
+      final boolean roomMade;
+      lock.lock();
+      try {
+        n = (int) Math.min(written - position, maxN);
+        for (int k = 0; k < n; k++) {
+          buffer[k] = content[(int) ((position + k) & mask)];
+        }
+        roomMade = n > 0 && advance(n);
+      } finally {
+        lock.unlock();
+      }
+      if (roomMade) {
+        writers.wakeAll();
+      }
+      return n;
+    }
+
+    // under the lock. Returns true if the writer was held back and now isn't.
+    private boolean advance(final int n) {
+      final boolean wasAtGate = position == gate;
+      position = position + n;
+      return wasAtGate && --atGate == 0 && advanceGate();
+    }
+
+    private boolean consumeClose() {
+      lock.lock();
+      try {
+        if (closed && !closeConsumed && position == written) {
+          closeConsumed = true;
+          return true;
+        }
+        return false;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private boolean claimReading() {
+      if (!readClaimed.compareAndSet(false, true)) {
+        return false;
+      }
+      if (readable()) {
+        return true;
+      }
+      releaseReading();
+      return false;
+    }
+
+    private void releaseReading() {
+      readClaimed.set(false);
+      claimWaiters.wakeAll(); // anyone who parked because we held the claim
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.ChannelDropping;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ A conflated channel, safe to share between threads, that never takes a lock: one slot, which
+ put() overwrites with getAndSet() and get() empties with getAndSet(). Whatever a put() finds
+ there was never read, so it's counted as dropped. Any number of writers and readers.
+ */
+public class ChannelConflated<T> extends ChannelBoundedConcurrent<T> implements ChannelDropping<T> {
+
+  private final AtomicReference<Object> slot = new AtomicReference<>(EMPTY);
+  private final LongAdder dropped = new LongAdder(); // writers drop concurrently
+
+  public ChannelConflated() {
+    this(false);
+  }
+
+  /*
+   See ConcurrentChannelState for what blocking means. put() never blocks.
+   */
+  public ChannelConflated(final boolean blocking) {
+    super(blocking);
+  }
+
+  @Override
+  boolean offer(final T value) {
+    if (slot.getAndSet(value) != EMPTY) {
+      dropped.increment();
+      getMetricsListener().dropped();
+    }
+    return true;
+  }
+
+  @Override
+  Object poll() {
+    return slot.get() == EMPTY ? EMPTY : slot.getAndSet(EMPTY);
+  }
+
+  @Override
+  boolean isEmpty() {
+    return slot.get() == EMPTY;
+  }
+
+  @Override
+  boolean isFull() {
+    return false;
+  }
+
+  @Override
+  public int size() {
+    return isEmpty() ? 0 : 1;
+  }
+
+  @Override
+  public long getDropped() {
+    return dropped.sum();
+  }
+}
@@ -0,0 +1,460 @@
+package com.thoughtpropulsion.concurrent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/*
+ A bounded channel, safe to share between threads, whose elements outlive the process: they're
+ appended to a log of memory-mapped segment files in a directory, and the reader's offset is
+ kept there too. Open a ChannelDurable on the same directory after a crash (or closeLog()) and it
+ holds what was there, less what was taken.
+
+ A Serializer writes each element straight into the mapped segment, and reads it back from
+ there: no streams, no copies. Durability is by group commit: every syncEvery puts and takes,
+ the segments written since the last sync are forced to disk, and then the reader's offset is.
+ So a put is durable once the sync after it is done, and sync() does one now. syncEvery 1
+ forces every put; 0 leaves it to sync(), closeLog() and the OS. Takes are at-least-once: after
+ a crash, elements taken since the last sync are there to take again.
+
+ Segments the reader has left behind are deleted once a sync has recorded that.
+
+ The bound is on elements stored, not bytes. Java can't unmap a file, so a segment's memory is
+ returned when its buffer's collected.
+ */
+public class ChannelDurable<T> extends ChannelBoundedConcurrent<T> {
+
+  public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+
+  /*
+   Writes (reads) an element at a buffer's position: the bytes belong to the channel's log.
+   write() may run out of room (BufferOverflowException), in which case the element goes into
+   the next segment. read() gets a buffer holding exactly what write() wrote.
+   */
+  public interface Serializer<T> {
+    void write(T value, ByteBuffer buffer);
+
+    T read(ByteBuffer buffer);
+  }
+
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String OFFSET_FILE = "reader.offset";
+
+  // an entry: its length plus one (0 marks the end of a segment), the CRC32 of its bytes, its bytes
+  private static final int HEADER_BYTES = 8;
+
+  private final Path directory;
+  private final Serializer<T> serializer;
+  private final int bound;
+  private final int syncEvery;
+  private final int segmentBytes;
+  private final ReentrantLock lock;
+  private final CRC32 crc;
+  private final MappedByteBuffer readerOffset;
+
+  // segments from the oldest not yet deleted, through the one being read, to the one being written
+  private Segment oldest;
+  private Segment reading;
+  private Segment writing;
+  private Segment unsynced; // the first written to since the last sync
+
+  private int readPosition; // in reading
+  private long nextRead; // offset of the next element to take
+  private long nextWrite;
+  private long syncedRead; // what the offset file says
+  private volatile int size;
+  private int changes; // puts and takes since the last sync
+  private boolean logClosed;
+
+  public ChannelDurable(final Path directory, final Serializer<T> serializer, final int bound,
+                        final int syncEvery) throws IOException {
+    this(directory, serializer, bound, syncEvery, DEFAULT_SEGMENT_BYTES, false);
+  }
+
+  /*
+   blocking: see ConcurrentChannelState. segmentBytes: the size of each segment file, which
+   bounds the size of an element.
+   */
+  public ChannelDurable(final Path directory, final Serializer<T> serializer, final int bound,
+                        final int syncEvery, final int segmentBytes, final boolean blocking) throws IOException {
+    super(blocking);
+    if (bound < 1) {
+      throw new IllegalArgumentException("Illegal channel size: " + bound + ". Must be greater than zero.");
+    }
+    if (syncEvery < 0) {
+      throw new IllegalArgumentException("Illegal sync batch: " + syncEvery + ". Must not be negative.");
+    }
+    if (segmentBytes <= HEADER_BYTES) {
+      throw new IllegalArgumentException("Illegal segment size: " + segmentBytes + ". Must be greater than " + HEADER_BYTES + ".");
+    }
+    this.directory = directory;
+    this.serializer = serializer;
+    this.bound = bound;
+    this.syncEvery = syncEvery;
+    this.segmentBytes = segmentBytes;
+    lock = new ReentrantLock();
+    crc = new CRC32();
+    Files.createDirectories(directory);
+    readerOffset = map(directory.resolve(OFFSET_FILE), Long.BYTES);
+    syncedRead = readerOffset.getLong(0);
+    recover();
+  }
+
+  @Override
+  boolean offer(final T value) {
+    lock.lock();
+    try {
+      if (size >= bound) {
+        return false;
+      }
+      append(value);
+      size += 1;
+      changed(1);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  Object poll() {
+    lock.lock();
+    try {
+      if (size == 0) {
+        return EMPTY;
+      }
+      final Object value = next();
+      size -= 1;
+      changed(1);
+      return value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  int pollInto(final Object[] buffer, final int maxN) {
+    lock.lock();
+    try {
+      final int n = Math.min(maxN, size);
+      for (int k = 0; k < n; k++) {
+        buffer[k] = next();
+        size -= 1;
+      }
+      changed(n);
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  int offerAll(final List<? extends T> values) {
+    lock.lock();
+    try {
+      final int n = Math.min(values.size(), bound - size);
+      for (int k = 0; k < n; k++) {
+        append(values.get(k));
+        size += 1;
+      }
+      changed(n); // one sync for the lot: the batch is the group
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  boolean isFull() {
+    return size >= bound;
+  }
+
+  /*
+   Force what's been put to disk, then record what's been taken, and delete the segments the
+   reader is done with.
+   */
+  public void sync() {
+    lock.lock();
+    try {
+      checkLogOpen();
+      syncLocked();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /*
+   Sync, and stop using the files. The channel can't be used afterwards: open another on the
+   directory to carry on. (This isn't close(), which closes the channel for writing.)
+   */
+  public void closeLog() {
+    lock.lock();
+    try {
+      if (!logClosed) {
+        syncLocked();
+        logClosed = true;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void checkLogOpen() {
+    if (logClosed) {
+      throw new IllegalStateException("log is closed: " + directory);
+    }
+  }
+
+  private void changed(final int n) {
+    changes += n;
+    if (syncEvery > 0 && changes >= syncEvery) {
+      syncLocked();
+    }
+  }
+
+  private void syncLocked() {
+    for (Segment segment = unsynced; segment != null; segment = segment.next) {
+      segment.buffer.force();
+    }
+    unsynced = null;
+    if (syncedRead != nextRead) {
+      readerOffset.putLong(0, nextRead);
+      readerOffset.force();
+      syncedRead = nextRead;
+    }
+    changes = 0;
+    // only now is it safe to drop what's been read: the offset file says it has
+    while (oldest != reading && oldest.next.baseOffset <= syncedRead) {
+      delete(oldest);
+      oldest = oldest.next;
+    }
+  }
+
+  private void append(final T value) {
+    checkLogOpen();
+    if (!appended(writing, value)) {
+      if (writing.entries > 0) {
+        roll();
+      }
+      if (!appended(writing, value)) {
+        throw new IllegalArgumentException("Element doesn't fit in a segment of " + segmentBytes + " bytes.");
+      }
+    }
+    nextWrite += 1;
+    if (unsynced == null) {
+      unsynced = writing;
+    }
+  }
+
+  /*
+   Serialize value after segment's last entry, if it fits. The header goes in last: if it
+   doesn't fit, whatever the serializer got written is after the end of the segment, where
+   nothing reads it.
+   */
+  private boolean appended(final Segment segment, final T value) {
+    final ByteBuffer view = segment.writeView;
+    final int start = segment.end;
+    if (start + HEADER_BYTES > view.capacity()) {
+      return false;
+    }
+    view.limit(view.capacity()).position(start + HEADER_BYTES);
+    try {
+      serializer.write(value, view);
+    } catch (final BufferOverflowException e) {
+      return false;
+    }
+    final int length = view.position() - start - HEADER_BYTES;
+    segment.buffer.putInt(start + Integer.BYTES, checksum(segment, start + HEADER_BYTES, length));
+    segment.buffer.putInt(start, length + 1);
+    segment.end = view.position();
+    segment.entries += 1;
+    return true;
+  }
+
+  private Object next() {
+    checkLogOpen();
+    if (readPosition == reading.end) {
+      // reading.next exists: there's an element to take
+      reading = reading.next;
+      readPosition = 0;
+    }
+    final int length = reading.buffer.getInt(readPosition) - 1;
+    final ByteBuffer view = reading.readView;
+    view.limit(readPosition + HEADER_BYTES + length).position(readPosition + HEADER_BYTES);
+    final T value = serializer.read(view);
+    readPosition += HEADER_BYTES + length;
+    nextRead += 1;
+    return value;
+  }
+
+  private int checksum(final Segment segment, final int position, final int length) {
+    final ByteBuffer view = segment.readView;
+    view.limit(position + length).position(position);
+    crc.reset();
+    crc.update(view);
+    return (int) crc.getValue();
+  }
+
+  // start a new segment after writing
+  private void roll() {
+    final Segment segment = openSegment(nextWrite);
+    writing.next = segment;
+    writing = segment;
+  }
+
+  private Segment openSegment(final long baseOffset) {
+    try {
+      return new Segment(baseOffset, segmentPath(baseOffset), map(segmentPath(baseOffset), segmentBytes));
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void delete(final Segment segment) {
+    try {
+      Files.deleteIfExists(segment.path);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Path segmentPath(final long baseOffset) {
+    return directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+  }
+
+  private static MappedByteBuffer map(final Path path, final int bytes) throws IOException {
+    try (FileChannel file = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // an existing file is never shrunk
+      return file.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(bytes, file.size()));
+    }
+  }
+
+  /*
+   Find the elements the directory holds: from the offset file's, through each segment's
+   entries, up to the first that's missing or torn. Anything after that was never synced, so it
+   goes.
+   */
+  private void recover() throws IOException {
+    final List<Path> paths = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().forEach(paths::add);
+    }
+    final List<Segment> segments = new ArrayList<>();
+    boolean broken = false;
+    for (final Path path : paths) {
+      final String name = path.getFileName().toString();
+      final long baseOffset = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+      broken |= !segments.isEmpty() && baseOffset != end(last(segments));
+      if (broken) {
+        Files.delete(path);
+        continue;
+      }
+      final Segment segment = new Segment(baseOffset, path, map(path, segmentBytes));
+      scan(segment);
+      segments.add(segment);
+    }
+    while (segments.size() > 1 && end(segments.get(0)) <= syncedRead) {
+      delete(segments.remove(0)); // read, and synced as read, before the crash
+    }
+    if (segments.isEmpty() || segments.get(0).baseOffset > syncedRead || end(last(segments)) < syncedRead) {
+      // nothing left, or not what the offset file says: start afresh from there
+      for (final Segment segment : segments) {
+        delete(segment);
+      }
+      segments.clear();
+      segments.add(openSegment(syncedRead));
+    }
+    for (int i = 1; i < segments.size(); i++) {
+      segments.get(i - 1).next = segments.get(i);
+    }
+    oldest = reading = segments.get(0);
+    writing = last(segments);
+    nextWrite = end(writing);
+    nextRead = syncedRead;
+    readPosition = 0;
+    for (long offset = reading.baseOffset; offset < nextRead; offset++) {
+      readPosition += HEADER_BYTES + reading.buffer.getInt(readPosition) - 1;
+    }
+    size = (int) (nextWrite - nextRead);
+  }
+
+  /*
+   Count segment's good entries, and clear anything after them: a crash can leave entries there
+   that followed a torn one, and one written there later mustn't be followed by them.
+   */
+  private void scan(final Segment segment) {
+    final MappedByteBuffer buffer = segment.buffer;
+    int position = 0;
+    while (position + HEADER_BYTES <= buffer.capacity()) {
+      final int length = buffer.getInt(position) - 1;
+      if (length < 0 || length > buffer.capacity() - position - HEADER_BYTES
+          || buffer.getInt(position + Integer.BYTES) != checksum(segment, position + HEADER_BYTES, length)) {
+        break;
+      }
+      position += HEADER_BYTES + length;
+      segment.entries += 1;
+    }
+    segment.end = position;
+    boolean cleared = false;
+    for (int i = position; i < buffer.capacity(); i++) {
+      if (buffer.get(i) != 0) {
+        buffer.put(i, (byte) 0);
+        cleared = true;
+      }
+    }
+    if (cleared) {
+      buffer.force();
+    }
+  }
+
+  // offset of the entry after segment's last
+  private static long end(final Segment segment) {
+    return segment.baseOffset + segment.entries;
+  }
+
+  private static Segment last(final List<Segment> segments) {
+    return segments.get(segments.size() - 1);
+  }
+
+  private static final class Segment {
+    final long baseOffset; // of its first entry
+    final Path path;
+    final MappedByteBuffer buffer;
+    // for serializing: the buffer's own position and limit stay put
+    final ByteBuffer writeView;
+    final ByteBuffer readView;
+    int end; // where the next entry goes
+    long entries;
+    Segment next;
+
+    Segment(final long baseOffset, final Path path, final MappedByteBuffer buffer) {
+      this.baseOffset = baseOffset;
+      this.path = path;
+      this.buffer = buffer;
+      writeView = buffer.duplicate();
+      readView = buffer.duplicate();
+    }
+  }
+}
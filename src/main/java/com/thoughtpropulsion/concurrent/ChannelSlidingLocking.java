@@ -0,0 +1,140 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.ChannelDropping;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ A sliding channel, safe to share between threads: ChannelBoundedLocking's ring buffer, except
+ that a put() when it's full overwrites the oldest element instead of failing. Dropping moves the
+ read position, which a lock-free ring can't do without racing its readers, hence the lock.
+ */
+public class ChannelSlidingLocking<T> extends ChannelBoundedConcurrent<T> implements ChannelDropping<T> {
+
+  private final ReentrantLock lock;
+  private final Object[] content;
+  private int nextRead;
+  private int nextWrite;
+  private volatile int size; // number of elements currently stored in channel
+  private volatile long dropped; // written under the lock
+
+  public ChannelSlidingLocking(final int bound) {
+    this(bound, false);
+  }
+
+  /*
+   See ConcurrentChannelState for what blocking means. put() never blocks.
+   */
+  public ChannelSlidingLocking(final int bound, final boolean blocking) {
+    super(blocking);
+    if (bound < 1) {
+      throw new IllegalArgumentException("Illegal channel size: " + bound + ". Must be greater than zero.");
+    }
+    lock = new ReentrantLock();
+    content = new Object[bound];
+    nextRead = nextWrite = size = 0;
+  }
+
+  @Override
+  boolean offer(final T value) {
+    final boolean dropping;
+    lock.lock();
+    try {
+      dropping = append(value);
+    } finally {
+      lock.unlock();
+    }
+    if (dropping) {
+      getMetricsListener().dropped();
+    }
+    return true;
+  }
+
+  @Override
+  int offerAll(final List<? extends T> values) {
+    int drops = 0;
+    lock.lock();
+    try {
+      for (int k = 0; k < values.size(); k++) {
+        if (append(values.get(k))) {
+          ++drops;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    for (int k = 0; k < drops; k++) {
+      getMetricsListener().dropped();
+    }
+    return values.size();
+  }
+
+  // under the lock. Returns whether it dropped the oldest element to make room.
+  private boolean append(final Object value) {
+    final boolean dropping = size == content.length;
+    if (dropping) {
+      nextRead = (nextRead + 1) % content.length;
+      dropped = dropped + 1;
+    } else {
+      size += 1;
+    }
+    content[nextWrite] = value;
+    nextWrite = (nextWrite + 1) % content.length;
+    return dropping;
+  }
+
+  @Override
+  Object poll() {
+    lock.lock();
+    try {
+      if (size == 0) {
+        return EMPTY;
+      }
+      final Object value = content[nextRead];
+      content[nextRead] = null; // don't keep it reachable
+      nextRead = (nextRead + 1) % content.length;
+      size -= 1;
+      return value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  int pollInto(final Object[] buffer, final int maxN) {
+    lock.lock();
+    try {
+      final int n = Math.min(maxN, size);
+      for (int k = 0; k < n; k++) {
+        buffer[k] = content[nextRead];
+        content[nextRead] = null; // don't keep it reachable
+        nextRead = (nextRead + 1) % content.length;
+      }
+      size -= n;
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public long getDropped() {
+    return dropped;
+  }
+
+  @Override
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  boolean isFull() {
+    return false;
+  }
+}
@@ -0,0 +1,65 @@
+package com.thoughtpropulsion.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ An unbounded channel, safe to share between threads, on a ConcurrentLinkedQueue (Michael and
+ Scott's lock-free linked queue). It's never full: put() always succeeds at once, and memory
+ follows occupancy, at the price of a node per element.
+
+ Its writer is never held back, so only use it where something else limits how far ahead of the
+ reader the writer can get, e.g. request/reply.
+ */
+public class ChannelUnbounded<T> extends ChannelBoundedConcurrent<T> {
+
+  // stands for a null element: the queue can't hold null
+  private static final Object NULL = new Object();
+
+  private final Queue<Object> content = new ConcurrentLinkedQueue<>();
+  private final LongAdder size = new LongAdder(); // queue.size() is O(n)
+
+  public ChannelUnbounded() {
+    this(false);
+  }
+
+  /*
+   See ConcurrentChannelState for what blocking means. put() never blocks.
+   */
+  public ChannelUnbounded(final boolean blocking) {
+    super(blocking);
+  }
+
+  @Override
+  boolean offer(final T value) {
+    content.offer(value == null ? NULL : value);
+    size.increment();
+    return true;
+  }
+
+  @Override
+  Object poll() {
+    final Object value = content.poll();
+    if (value == null) {
+      return EMPTY;
+    }
+    size.decrement();
+    return value == NULL ? null : value;
+  }
+
+  @Override
+  boolean isEmpty() {
+    return content.isEmpty();
+  }
+
+  @Override
+  boolean isFull() {
+    return false;
+  }
+
+  @Override
+  public int size() {
+    return (int) Math.max(0, size.sum());
+  }
+}
@@ -0,0 +1,49 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.LostRaceException;
+import com.thoughtpropulsion.SelectClause;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ runReadyClauses() for schedulers that run selects on more than one thread.
+ */
+final class ClaimedClauses {
+
+  private ClaimedClauses() {}
+
+  /*
+   Pick a ready clause at random and run it. The clause is claimed first, so no other thread
+   can take its element (slot) in the meantime. If other threads claimed every ready clause
+   first, this throws LostRaceException: the caller should wait for readiness and re-run
+   the whole continuation.
+   */
+  static boolean run(final SelectClause[] clauses) {
+    final int n = clauses.length;
+    int ready = 0;
+    for (final SelectClause clause : clauses) {
+      if (clause.isReady()) {
+        ++ready;
+      }
+    }
+    int first = 0;
+    if (ready > 0) {
+      int k = ThreadLocalRandom.current().nextInt(ready);
+      while (first < n && !(clauses[first].isReady() && k-- == 0)) {
+        ++first;
+      }
+      first %= n; // readiness changed under us: any start will do
+    }
+    for (int i = 0; i < n; i++) {
+      final SelectClause clause = clauses[(first + i) % n];
+      if (clause.claim()) {
+        try {
+          return clause.getClause().getAsBoolean();
+        } finally {
+          clause.release();
+        }
+      }
+    }
+    throw LostRaceException.INSTANCE;
+  }
+}
@@ -0,0 +1,206 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.ClosingState;
+import com.thoughtpropulsion.Waker;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ What a thread-safe channel does besides storing elements, whatever the type of its elements:
+ the Open -> Closing -> Closed protocol, waking parked continuations (and blocked threads), and
+ claims. Subclasses provide storage and the typed operations and clauses, calling back here
+ around every change.
+
+ A put() racing with close() may be lost. Close a channel from the (last) writer, after its puts.
+
+ A blocking channel's get() (put()) parks the calling thread until there's an element (room)
+ instead of throwing. Blocked threads wait on lists of their own and are woken one per element
+ (slot), so a thousand threads blocked on one channel don't all wake for each element. Only use
+ blocking channels on threads that are allowed to block, e.g. VirtualThreadScheduler's.
+ */
+abstract class ConcurrentChannelState {
+
+  private final AtomicReference<ClosingState> closingState = new AtomicReference<>(ClosingState.Open);
+
+  // continuations parked until the reading (writing) side becomes ready
+  private final ConcurrentWaitList readers = new ConcurrentWaitList();
+  private final ConcurrentWaitList writers = new ConcurrentWaitList();
+
+  // at most one claimed clause per side: see SelectClause.claim()
+  private final AtomicBoolean readClaimed = new AtomicBoolean(false);
+  private final AtomicBoolean writeClaimed = new AtomicBoolean(false);
+
+  private final boolean blocking;
+
+  // threads blocked in get() (put()), on a blocking channel
+  private final ConcurrentWaitList blockedReaders = new ConcurrentWaitList();
+  private final ConcurrentWaitList blockedWriters = new ConcurrentWaitList();
+
+  ConcurrentChannelState(final boolean blocking) {
+    this.blocking = blocking;
+  }
+
+  /*
+   Must be linearizable with the subclass's adds and removes.
+   */
+  abstract boolean isEmpty();
+
+  abstract boolean isFull();
+
+  final boolean readable() {
+    // in closing state it is as if we have an (one) extra element
+    return !isEmpty() || closingState.get() == ClosingState.Closing;
+  }
+
+  final boolean writable() {
+    return !isFull() && closingState.get() == ClosingState.Open;
+  }
+
+  final boolean awaitReadable(final Waker waker) {
+    readers.add(waker);
+    if (readable() && !readClaimed.get()) {
+      waker.wake(); // became ready before we were on the list
+    }
+    return true;
+  }
+
+  final boolean awaitWritable(final Waker waker) {
+    writers.add(waker);
+    if (writable() && !writeClaimed.get()) {
+      waker.wake(); // became ready before we were on the list
+    }
+    return true;
+  }
+
+  /*
+   Before adding an element for put().
+   */
+  final void checkOpen() {
+    final ClosingState state = closingState.get();
+    if (state != ClosingState.Open) {
+      throw new IllegalStateException("can't put in state: " + state);
+    }
+  }
+
+  /*
+   After get() found nothing: throw or, if blocking, park until it's worth another try.
+   */
+  final void awaitElement() {
+    if (!blocking) {
+      throw new IllegalStateException("Channel is empty.");
+    }
+    if (closingState.get() != ClosingState.Open) {
+      throw new IllegalStateException("Channel is closed.");
+    }
+    block(blockedReaders, true);
+  }
+
+  /*
+   After put() found no room: throw or, if blocking, park until it's worth another try.
+   */
+  final void awaitRoom() {
+    if (!blocking) {
+      throw new IllegalStateException("Channel is full.");
+    }
+    block(blockedWriters, false);
+  }
+
+  /*
+   After adding an element. afterBlocking says whether the put() had to wait for room.
+   */
+  final void added(final boolean afterBlocking) {
+    readers.wakeAll();
+    if (blocking) {
+      blockedReaders.wakeOne();
+      if (afterBlocking && !isFull()) {
+        blockedWriters.wakeOne(); // pass it on
+      }
+    }
+  }
+
+  /*
+   After removing an element.
+   */
+  final void removed() {
+    writers.wakeAll();
+    if (blocking) {
+      blockedWriters.wakeOne();
+    }
+  }
+
+  /*
+   After a get() that had to wait for its element.
+   */
+  final void removedAfterBlocking() {
+    if (!isEmpty()) {
+      blockedReaders.wakeOne(); // pass it on
+    }
+  }
+
+  /*
+   A receive clause found the channel drained: consume the synthetic "closing" value.
+   */
+  final boolean consumeClose() {
+    return closingState.compareAndSet(ClosingState.Closing, ClosingState.Closed);
+  }
+
+  final void close() {
+    if (closingState.compareAndSet(ClosingState.Open, ClosingState.Closing)) {
+      readers.wakeAll(); // the synthetic "closing" value is ready for reading
+      if (blocking) {
+        // so blocked threads see the close
+        blockedReaders.wakeAll();
+        blockedWriters.wakeAll();
+      }
+    }
+  }
+
+  final boolean claimReading() {
+    if (!readClaimed.compareAndSet(false, true)) {
+      return false;
+    }
+    if (readable()) {
+      return true;
+    }
+    releaseReading();
+    return false;
+  }
+
+  final void releaseReading() {
+    readClaimed.set(false);
+    readers.wakeAll(); // anyone who parked because we held the claim
+  }
+
+  final boolean claimWriting() {
+    if (!writeClaimed.compareAndSet(false, true)) {
+      return false;
+    }
+    if (writable()) {
+      return true;
+    }
+    releaseWriting();
+    return false;
+  }
+
+  final void releaseWriting() {
+    writeClaimed.set(false);
+    writers.wakeAll();
+  }
+
+  /*
+   Park this thread until the side looks ready (or we're woken spuriously: callers re-check).
+   */
+  private void block(final ConcurrentWaitList blocked, final boolean reading) {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new IllegalStateException("interrupted while blocked on a channel");
+    }
+    final ThreadWaker waker = new ThreadWaker();
+    blocked.add(waker);
+    if (!(reading ? readable() : writable())) {
+      LockSupport.park(this);
+    }
+    waker.disarm();
+  }
+}
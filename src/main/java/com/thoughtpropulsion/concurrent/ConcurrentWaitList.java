@@ -0,0 +1,76 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.Waker;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ The wakers waiting on one side (reading or writing) of a channel that is shared between threads.
+
+ To avoid lost wake-ups a channel must change its state before calling wakeAll(), and a waiter
+ must add() itself before re-checking the channel's state (see awaitReadiness() in
+ ChannelBoundedConcurrent). Both sides use volatile accesses, so at least one of them sees the other.
+ */
+class ConcurrentWaitList {
+
+  private static final int MIN_PURGE_THRESHOLD = 16;
+
+  private final ConcurrentLinkedQueue<Waker> waiting = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger(); // approximate
+  private volatile int purgeThreshold = MIN_PURGE_THRESHOLD;
+
+  void add(final Waker waker) {
+    if (size.incrementAndGet() > purgeThreshold) {
+      purge();
+    }
+    waiting.add(waker);
+  }
+
+  void wakeAll() {
+    if (waiting.isEmpty()) { // the common case: keep it cheap
+      return;
+    }
+    Waker waker;
+    while ((waker = waiting.poll()) != null) {
+      size.decrementAndGet();
+      waker.wake();
+    }
+  }
+
+  /*
+   Wake the first waker that is still armed. For waiters that will take what's ready, and pass
+   the wake-up on (with another wakeOne()) if there's more.
+   */
+  void wakeOne() {
+    if (waiting.isEmpty()) {
+      return;
+    }
+    Waker waker;
+    while ((waker = waiting.poll()) != null) {
+      size.decrementAndGet();
+      if (waker.isArmed()) {
+        waker.wake();
+        return;
+      }
+    }
+  }
+
+  /*
+   A continuation waiting on several channels is woken by one of them and its waker is left
+   (disarmed) on the others. Drop those now and then.
+   */
+  private void purge() {
+    int remaining = 0;
+    for (final Iterator<Waker> it = waiting.iterator(); it.hasNext(); ) {
+      if (it.next().isArmed()) {
+        ++remaining;
+      } else {
+        it.remove();
+        size.decrementAndGet();
+      }
+    }
+    purgeThreshold = Math.max(MIN_PURGE_THRESHOLD, 2 * remaining);
+  }
+}
@@ -0,0 +1,285 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.LongChannel;
+import com.thoughtpropulsion.Readiness;
+import com.thoughtpropulsion.SelectClause;
+import com.thoughtpropulsion.Waker;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/*
+ ChannelBoundedLockFree for longs: the same bounded MPMC queue, with the elements in a long[].
+ A slot's value is written before, and read after, the volatile store of its sequence number,
+ so plain array accesses are enough.
+
+ Clauses are their own BooleanSupplier, so running one allocates nothing.
+ */
+public class LongChannelLockFree extends ConcurrentChannelState implements LongChannel {
+
+  private static final long NONE = -1; // no position reserved
+  private static final BooleanSupplier CLOSED = () -> true;
+
+  private final int capacity;
+  private final long[] content;
+  private final AtomicLongArray sequences;
+  private final PaddedAtomicLong enqueuePosition;
+  private final PaddedAtomicLong dequeuePosition;
+
+  public LongChannelLockFree(final int bound) {
+    this(bound, false);
+  }
+
+  /*
+   See ConcurrentChannelState for what blocking means.
+   */
+  public LongChannelLockFree(final int bound, final boolean blocking) {
+    super(blocking);
+    if (bound < 1) {
+      throw new IllegalArgumentException("Illegal channel size: " + bound + ". Must be greater than zero.");
+    }
+    capacity = bound;
+    content = new long[bound];
+    sequences = new AtomicLongArray(bound);
+    for (int i = 0; i < bound; i++) {
+      sequences.set(i, 2L * i);
+    }
+    enqueuePosition = new PaddedAtomicLong(0);
+    dequeuePosition = new PaddedAtomicLong(0);
+  }
+
+  private final Reading reading = new Reading() {
+    @Override
+    public boolean isReady() {
+      return readable();
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      return awaitReadable(waker);
+    }
+
+    @Override
+    public SelectClause onReceive(final LongPredicate receiver) {
+      return new ReceiveClause(receiver, CLOSED);
+    }
+
+    @Override
+    public SelectClause onReceive(final LongConsumer receiver) {
+      return onReceive(value -> {receiver.accept(value); return true;});
+    }
+
+    @Override
+    public SelectClause onReceiveOrClosed(final LongPredicate receiver, final BooleanSupplier onClosed) {
+      return new ReceiveClause(receiver, onClosed);
+    }
+
+    @Override
+    public long get() {
+      long position = reserveRead();
+      if (position != NONE) {
+        return take(position);
+      }
+      do {
+        awaitElement();
+        position = reserveRead();
+      } while (position == NONE);
+      final long value = take(position);
+      removedAfterBlocking();
+      return value;
+    }
+  };
+
+  private final Writing writing = new Writing() {
+    @Override
+    public void close() {
+      LongChannelLockFree.this.close();
+    }
+
+    @Override
+    public boolean isReady() {
+      return writable();
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      return awaitWritable(waker);
+    }
+
+    @Override
+    public SelectClause onSend(final Predicate<Writing> predicate) {
+      return new SendClause(predicate);
+    }
+
+    @Override
+    public SelectClause onSend(final Runnable predicate) {
+      return onSend(writing -> {predicate.run(); return true;});
+    }
+
+    @Override
+    public void put(final long value) {
+      boolean blocked = false;
+      checkOpen();
+      while (!offer(value)) {
+        awaitRoom();
+        blocked = true;
+        checkOpen();
+      }
+      added(blocked);
+    }
+  };
+
+  @Override
+  public Reading getReading() {
+    return reading;
+  }
+
+  @Override
+  public Writing getWriting() {
+    return writing;
+  }
+
+  private boolean offer(final long value) {
+    long position = enqueuePosition.get();
+    while (true) {
+      final int i = index(position);
+      final long difference = sequences.get(i) - 2 * position;
+      if (difference == 0) {
+        if (enqueuePosition.compareAndSet(position, position + 1)) {
+          content[i] = value;
+          sequences.set(i, 2 * position + 1);
+          return true;
+        }
+        position = enqueuePosition.get();
+      } else if (difference < 0) {
+        return false; // the slot still holds the element from the previous lap
+      } else {
+        position = enqueuePosition.get(); // another producer got here first
+      }
+    }
+  }
+
+  /*
+   Reserve the oldest element for reading, returning its position, or NONE if there's none.
+   take() it straight after.
+   */
+  private long reserveRead() {
+    long position = dequeuePosition.get();
+    while (true) {
+      final int i = index(position);
+      final long difference = sequences.get(i) - (2 * position + 1);
+      if (difference == 0) {
+        if (dequeuePosition.compareAndSet(position, position + 1)) {
+          return position;
+        }
+        position = dequeuePosition.get();
+      } else if (difference < 0) {
+        return NONE; // the producer of this position hasn't been (or hasn't finished)
+      } else {
+        position = dequeuePosition.get(); // another consumer got here first
+      }
+    }
+  }
+
+  private long take(final long position) {
+    final int i = index(position);
+    final long value = content[i];
+    sequences.set(i, 2 * (position + capacity));
+    removed();
+    return value;
+  }
+
+  @Override
+  boolean isEmpty() {
+    final long position = dequeuePosition.get();
+    return sequences.get(index(position)) != 2 * position + 1;
+  }
+
+  @Override
+  boolean isFull() {
+    final long position = enqueuePosition.get();
+    return sequences.get(index(position)) < 2 * position;
+  }
+
+  private int index(final long position) {
+    return (int) (position % capacity);
+  }
+
+  private final class ReceiveClause implements SelectClause, BooleanSupplier {
+    private final LongPredicate receiver;
+    private final BooleanSupplier onClosed;
+
+    ReceiveClause(final LongPredicate receiver, final BooleanSupplier onClosed) {
+      this.receiver = receiver;
+      this.onClosed = onClosed;
+    }
+
+    @Override
+    public Readiness getChannel() {
+      return reading;
+    }
+
+    @Override
+    public boolean claim() {
+      return claimReading();
+    }
+
+    @Override
+    public void release() {
+      releaseReading();
+    }
+
+    @Override
+    public BooleanSupplier getClause() {
+      return this;
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+      final long position = reserveRead();
+      if (position != NONE) {
+        return receiver.test(take(position));
+      }
+      if (consumeClose()) {
+        return onClosed.getAsBoolean();
+      }
+      throw new IllegalStateException("activated receive clause when channel wasn't ready");
+    }
+  }
+
+  private final class SendClause implements SelectClause, BooleanSupplier {
+    private final Predicate<Writing> predicate;
+
+    SendClause(final Predicate<Writing> predicate) {
+      this.predicate = predicate;
+    }
+
+    @Override
+    public Readiness getChannel() {
+      return writing;
+    }
+
+    @Override
+    public boolean claim() {
+      return claimWriting();
+    }
+
+    @Override
+    public void release() {
+      releaseWriting();
+    }
+
+    @Override
+    public BooleanSupplier getClause() {
+      return this;
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+      return predicate.test(writing);
+    }
+  }
+}
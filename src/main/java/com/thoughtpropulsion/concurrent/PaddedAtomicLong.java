@@ -0,0 +1,16 @@
+package com.thoughtpropulsion.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ An AtomicLong that keeps a cache line to itself, so two hot counters (e.g. a queue's head and tail
+ positions) don't falsely share one.
+ */
+@SuppressWarnings("unused")
+class PaddedAtomicLong extends AtomicLong {
+  private long p1, p2, p3, p4, p5, p6, p7;
+
+  PaddedAtomicLong(final long initialValue) {
+    super(initialValue);
+  }
+}
@@ -0,0 +1,56 @@
+package com.thoughtpropulsion.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ A scheduler's count of work that is scheduled or running, which threads can wait to see reach
+ zero. What counts is up to the scheduler.
+ */
+final class PendingCount {
+
+  private final AtomicLong pending = new AtomicLong(0);
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition zero = lock.newCondition();
+
+  long get() {
+    return pending.get();
+  }
+
+  void increment() {
+    pending.incrementAndGet();
+  }
+
+  void decrement() {
+    if (pending.decrementAndGet() == 0) {
+      lock.lock();
+      try {
+        zero.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /*
+   Returns false if the timeout elapsed before the count reached zero.
+   */
+  boolean awaitZero(final long timeout, final TimeUnit unit) throws InterruptedException {
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    lock.lock();
+    try {
+      while (pending.get() != 0) {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        zero.awaitNanos(remaining);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.Waker;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ Wakes the thread that created it. Used by code that blocks a thread (rather than parking a
+ continuation) until a channel is ready.
+
+ onWake runs on the waking thread, before the unpark: it's how VirtualThreadScheduler counts the
+ woken thread as pending again without a window where nothing is.
+ */
+final class ThreadWaker extends AtomicBoolean implements Waker {
+
+  private static final Runnable NOTHING = () -> {};
+
+  private final Thread thread;
+  private final Runnable onWake;
+
+  ThreadWaker() {
+    this(NOTHING);
+  }
+
+  ThreadWaker(final Runnable onWake) {
+    super(true);
+    thread = Thread.currentThread();
+    this.onWake = onWake;
+  }
+
+  @Override
+  public boolean isArmed() {
+    return get();
+  }
+
+  @Override
+  public void wake() {
+    if (disarm()) {
+      onWake.run();
+      LockSupport.unpark(thread);
+    }
+  }
+
+  boolean disarm() {
+    return compareAndSet(true, false);
+  }
+}
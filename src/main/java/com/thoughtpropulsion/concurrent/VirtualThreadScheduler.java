@@ -0,0 +1,316 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.Cancellable;
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.ChannelBroadcast;
+import com.thoughtpropulsion.ChannelDropping;
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.LongChannel;
+import com.thoughtpropulsion.LostRaceException;
+import com.thoughtpropulsion.MetricsListener;
+import com.thoughtpropulsion.NanoTime;
+import com.thoughtpropulsion.SelectClause;
+import com.thoughtpropulsion.TaskScheduler;
+import com.thoughtpropulsion.Topology;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.thoughtpropulsion.Continuation.NoOp;
+
+/*
+ A TaskScheduler that gives each chain of continuations its own thread: a virtual thread when
+ the JVM has them (Java 21 and later), otherwise a daemon platform thread.
+
+ A chain starts with a continuation scheduled from outside the chain. The first continuation a
+ step schedules with no delay (the rest of a sequence(), the next whileLoop() iteration) runs
+ next on the same thread, with no trip through a queue. Anything else a step schedules, delayed
+ continuations included, is independent of it, so it starts a chain of its own. A new chain can
+ be cancelled until its first step starts: its thread stops sleeping and ends.
+
+ A thread whose continuation isn't ready parks until one of the continuation's channels wakes
+ it. Since every chain can afford to block, channels created here are blocking: get() (put())
+ parks the thread until there's an element (room) instead of throwing. A select is still the
+ way to wait on more than one channel.
+ */
+public class VirtualThreadScheduler implements TaskScheduler, AutoCloseable {
+
+  private static final long POLL_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  private static final ThreadLocal<Chain> currentChain = new ThreadLocal<>();
+
+  private final NanoTime nanoTime;
+  private final ThreadFactory threadFactory;
+  private final Set<Thread> threads;
+
+  /*
+   Chains that are running or sleeping until a delayed continuation is due. Chains parked on
+   channels in a select (or whose continuation isn't ready) don't count; ones blocked in get()
+   or put() do.
+   */
+  private final PendingCount pending;
+
+  private volatile boolean closed;
+
+  private volatile MetricsListener metricsListener;
+
+  public VirtualThreadScheduler() {
+    this(System::nanoTime);
+  }
+
+  public VirtualThreadScheduler(final NanoTime nanoTime) {
+    this(nanoTime, defaultThreadFactory());
+  }
+
+  public VirtualThreadScheduler(final NanoTime nanoTime, final ThreadFactory threadFactory) {
+    this.nanoTime = nanoTime;
+    this.threadFactory = threadFactory;
+    threads = ConcurrentHashMap.newKeySet();
+    pending = new PendingCount();
+    closed = false;
+    metricsListener = MetricsListener.NONE;
+  }
+
+  /*
+   Thread.ofVirtual().factory() if this JVM has virtual threads. Looked up reflectively, so this
+   class still compiles, and runs on platform threads, on older JVMs.
+   */
+  public static ThreadFactory defaultThreadFactory() {
+    try {
+      final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+    } catch (final ReflectiveOperationException | RuntimeException e) {
+      return runnable -> {
+        final Thread thread = new Thread(runnable, "puffing-billy-chain");
+        thread.setDaemon(true);
+        return thread;
+      };
+    }
+  }
+
+  @Override
+  public Cancellable schedule(final Continuation continuation) {
+    return schedule(continuation, 0, TimeUnit.SECONDS);
+  }
+
+  /*
+   A continuation that runs next in the current chain can't be withdrawn: the chain is running.
+   Only one scheduled with no delay does. A delayed one sleeps on a chain of its own, so it can.
+   */
+  @Override
+  public Cancellable schedule(final Continuation continuation, final long afterDelay, final TimeUnit delayUnit) {
+    if (continuation == NoOp || closed) {
+      return Cancellable.NONE;
+    }
+    metricsListener.scheduled();
+    final long dueNanos = nanoTime.nanoTime() + delayUnit.toNanos(afterDelay);
+    final Chain chain = currentChain.get();
+    if (afterDelay <= 0 && chain != null && chain.belongsTo(this) && chain.computing && chain.next == null) {
+      chain.next = continuation;
+      return Cancellable.NONE;
+    }
+    pending.increment();
+    final Chain started = new Chain(continuation, dueNanos);
+    final Thread thread = threadFactory.newThread(started);
+    started.thread = thread;
+    threads.add(thread);
+    thread.start();
+    return started;
+  }
+
+  @Override
+  public <T> ChannelBiDirectional<T> createBoundedChannel(final Class<T> clazz, final int n) {
+    return instrumented(new ChannelBoundedLockFree<>(n, true));
+  }
+
+  @Override
+  public <T> ChannelBiDirectional<T> createBoundedChannel(final Class<T> clazz, final int n, final Topology topology) {
+    if (topology == Topology.SPSC) {
+      return instrumented(new ChannelBoundedSpsc<>(n, true));
+    }
+    return createBoundedChannel(clazz, n); // nothing cheaper for MPSC yet
+  }
+
+  @Override
+  public <T> ChannelBiDirectional<T> createUnboundedChannel(final Class<T> clazz) {
+    return instrumented(new ChannelUnbounded<>(true));
+  }
+
+  @Override
+  public <T> ChannelDropping<T> createSlidingChannel(final Class<T> clazz, final int n) {
+    final ChannelDropping<T> channel = n == 1 ? new ChannelConflated<>(true) : new ChannelSlidingLocking<>(n, true);
+    channel.setMetricsListener(metricsListener);
+    return channel;
+  }
+
+  @Override
+  public <T> ChannelBroadcast<T> createBroadcastChannel(final Class<T> clazz, final int n) {
+    final ChannelBroadcast<T> channel = new ChannelBroadcastLocking<>(n, true);
+    channel.setMetricsListener(metricsListener);
+    return channel;
+  }
+
+  @Override
+  public LongChannel createLongChannel(final int n) {
+    return new LongChannelLockFree(n, true);
+  }
+
+  private <T> ChannelBiDirectional<T> instrumented(final ChannelBiDirectional<T> channel) {
+    channel.setMetricsListener(metricsListener);
+    return channel;
+  }
+
+  /*
+   Ready clauses are claimed before they run, so no other thread can take their element
+   (slot) in the meantime. See LostRaceException.
+   */
+  @Override
+  public boolean runReadyClauses(final SelectClause... clauses) {
+    return ClaimedClauses.run(clauses);
+  }
+
+  /*
+   Gauges: scheduler.pending, the chains running or sleeping until they're due (see pending).
+   */
+  @Override
+  public void setMetricsListener(final MetricsListener listener) {
+    metricsListener = listener;
+    listener.gauge("scheduler.pending", pending::get);
+  }
+
+  /*
+   Wait until no chain is running. Returns false if the timeout elapsed first.
+   */
+  public boolean awaitQuiescence(final long timeout, final TimeUnit unit) throws InterruptedException {
+    return pending.awaitZero(timeout, unit);
+  }
+
+  /*
+   Stop every chain. Chains blocked on a channel see an IllegalStateException from get() (put()).
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (final Thread thread : threads) {
+      thread.interrupt();
+    }
+  }
+
+  /*
+   Park this thread until continuation is ready. It doesn't count as pending meanwhile.
+   */
+  private void awaitReady(final Continuation continuation) {
+    while (!closed && !continuation.isReady()) {
+      metricsListener.notReady();
+      // whoever wakes us counts us back in, before the unpark: otherwise the count could touch
+      // zero between their finishing and our resuming
+      final ThreadWaker waker = new ThreadWaker(pending::increment);
+      pending.decrement();
+      try {
+        if (continuation.awaitReadiness(waker)) {
+          while (!closed && waker.isArmed()) {
+            LockSupport.park(this);
+          }
+        } else {
+          LockSupport.parkNanos(this, POLL_INTERVAL_NANOS); // can't be woken: poll
+        }
+      } finally {
+        if (waker.disarm()) {
+          pending.increment(); // nobody woke us
+        }
+      }
+    }
+  }
+
+  // claimed (true) once its first step starts, or it's cancelled: whichever comes first wins
+  private final class Chain extends AtomicBoolean implements Runnable, Cancellable {
+
+    private final Continuation first;
+    private final long firstDueNanos;
+    volatile Thread thread;
+
+    // the continuation to run after the current one, if it scheduled any
+    Continuation next;
+
+    /*
+     Whether the current step is computing. What's scheduled otherwise (e.g. a timer armed by
+     isReady()) isn't the step's follow-on.
+     */
+    boolean computing;
+
+    Chain(final Continuation first, final long firstDueNanos) {
+      this.first = first;
+      this.firstDueNanos = firstDueNanos;
+    }
+
+    boolean belongsTo(final VirtualThreadScheduler scheduler) {
+      return scheduler == VirtualThreadScheduler.this;
+    }
+
+    @Override
+    public void run() {
+      currentChain.set(this);
+      try {
+        Continuation continuation = awaitFirst() ? first : null;
+        while (continuation != null && !closed) {
+          next = null;
+          runStep(continuation);
+          continuation = next;
+        }
+      } catch (final Throwable t) {
+        if (!closed) {
+          final Thread thread = Thread.currentThread();
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+        }
+      } finally {
+        currentChain.remove();
+        threads.remove(Thread.currentThread());
+        pending.decrement();
+      }
+    }
+
+    // sleep until the first step is due: false if the chain was cancelled meanwhile
+    private boolean awaitFirst() {
+      long remaining;
+      while (!closed && !get() && (remaining = firstDueNanos - nanoTime.nanoTime()) > 0) {
+        LockSupport.parkNanos(this, remaining);
+      }
+      return compareAndSet(false, true);
+    }
+
+    @Override
+    public boolean cancel() {
+      if (!compareAndSet(false, true)) {
+        return false;
+      }
+      LockSupport.unpark(thread);
+      return true;
+    }
+
+    private void runStep(final Continuation continuation) {
+      while (true) {
+        awaitReady(continuation);
+        if (closed) {
+          return;
+        }
+        try {
+          metricsListener.ran();
+          computing = true;
+          try {
+            continuation.compute(VirtualThreadScheduler.this);
+          } finally {
+            computing = false;
+          }
+          return;
+        } catch (final LostRaceException e) {
+          metricsListener.notReady();
+          next = null; // the step did nothing: wait and run it again
+        }
+      }
+    }
+  }
+}
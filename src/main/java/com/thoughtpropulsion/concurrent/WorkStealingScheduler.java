@@ -0,0 +1,492 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.Cancellable;
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.ChannelBroadcast;
+import com.thoughtpropulsion.ChannelDropping;
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.LongChannel;
+import com.thoughtpropulsion.LostRaceException;
+import com.thoughtpropulsion.MetricsListener;
+import com.thoughtpropulsion.NanoTime;
+import com.thoughtpropulsion.SelectClause;
+import com.thoughtpropulsion.TaskScheduler;
+import com.thoughtpropulsion.TimingWheel;
+import com.thoughtpropulsion.Topology;
+import com.thoughtpropulsion.Waker;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.thoughtpropulsion.Continuation.NoOp;
+
+/*
+ A TaskScheduler for production: it runs continuations on a fixed pool of worker threads.
+
+ Each worker has its own deque. A continuation scheduled by a worker (the next step of a
+ sequence(), another whileLoop() iteration) goes on the front of that worker's deque, and the
+ worker takes its next task from the front too, so a chain of steps tends to stay on one core.
+ Continuations scheduled from outside the pool go on a shared submission queue.
+ A step that's ready when the previous one hands it over with continueWith() doesn't go on the
+ deque at all: the worker runs it straight away, up to MAX_INLINE_STEPS in a row. A worker that
+ runs out of work steals from the back of the other workers' deques, and parks when there is
+ nothing to steal.
+
+ A continuation that isn't ready is parked until one of its channels wakes it (see
+ Continuation.awaitReadiness()). One that can't be woken is polled every POLL_INTERVAL_NANOS.
+ Delayed continuations wait in a TimingWheel until some worker notices they're due. Cancelling
+ one just flags its timer, which is dropped when it expires, or purged with the other cancelled
+ ones once they're most of the wheel.
+ */
+public class WorkStealingScheduler implements TaskScheduler, AutoCloseable {
+
+  private static final long POLL_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  // steps a worker runs inline (see continueWith()) before it looks at its deque again
+  private static final int MAX_INLINE_STEPS = 64;
+
+  private static final int MIN_PURGE = 16;
+
+  private final NanoTime nanoTime;
+  private final Worker[] workers;
+  private final ConcurrentLinkedQueue<Continuation> submissions;
+  private final ConcurrentLinkedQueue<Worker> idleWorkers;
+
+  private final ReentrantLock timerLock;
+  private final TimingWheel<Timer> timers; // guarded by timerLock
+  private int cancelledTimers; // still in timers: guarded by timerLock
+  private volatile long nextTimerDueNanos;
+
+  /*
+   Continuations that are scheduled (on a deque, the submission queue or a timer) or running.
+   Parked continuations don't count: when this reaches zero nothing more can happen
+   unless some other thread puts to (gets from, closes) a channel.
+   */
+  private final PendingCount pending;
+
+  private volatile boolean closed;
+
+  private volatile MetricsListener metricsListener;
+
+  public WorkStealingScheduler() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public WorkStealingScheduler(final int parallelism) {
+    this(parallelism, System::nanoTime);
+  }
+
+  public WorkStealingScheduler(final int parallelism, final NanoTime nanoTime) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Illegal parallelism: " + parallelism + ". Must be greater than zero.");
+    }
+    this.nanoTime = nanoTime;
+    submissions = new ConcurrentLinkedQueue<>();
+    idleWorkers = new ConcurrentLinkedQueue<>();
+    timerLock = new ReentrantLock();
+    timers = new TimingWheel<>(nanoTime.nanoTime(), timer -> timer.dueNanos);
+    nextTimerDueNanos = Long.MAX_VALUE;
+    pending = new PendingCount();
+    closed = false;
+    metricsListener = MetricsListener.NONE;
+    workers = new Worker[parallelism];
+    for (int i = 0; i < parallelism; i++) {
+      workers[i] = new Worker(i);
+    }
+    for (final Worker worker : workers) {
+      worker.start();
+    }
+  }
+
+  /*
+   Can't be withdrawn: another worker may be running it already.
+   */
+  @Override
+  public Cancellable schedule(final Continuation continuation) {
+    if (continuation != NoOp) {
+      metricsListener.scheduled();
+      submit(continuation);
+    }
+    return Cancellable.NONE;
+  }
+
+  // what schedule() does, short of reporting it: also how a parked continuation is resumed
+  private void submit(final Continuation continuation) {
+    pending.increment();
+    enqueue(continuation);
+  }
+
+  @Override
+  public void continueWith(final Continuation next) {
+    final Worker worker = currentWorker();
+    if (worker != null && worker.inlineBudget > 0 && worker.inlineNext == null
+        && next != NoOp && next.isReady()) {
+      metricsListener.scheduled();
+      --worker.inlineBudget;
+      worker.inlineNext = next;
+    } else {
+      schedule(next);
+    }
+  }
+
+  @Override
+  public Cancellable schedule(final Continuation continuation, final long afterDelay, final TimeUnit delayUnit) {
+    if (afterDelay <= 0 || continuation == NoOp) {
+      return schedule(continuation);
+    }
+    metricsListener.scheduled();
+    pending.increment();
+    final Timer timer = new Timer(continuation, nanoTime.nanoTime() + delayUnit.toNanos(afterDelay), true);
+    addTimer(timer);
+    return timer;
+  }
+
+  @Override
+  public <T> ChannelBiDirectional<T> createBoundedChannel(final Class<T> clazz, final int n) {
+    return instrumented(new ChannelBoundedLockFree<>(n));
+  }
+
+  @Override
+  public <T> ChannelBiDirectional<T> createBoundedChannel(final Class<T> clazz, final int n, final Topology topology) {
+    if (topology == Topology.SPSC) {
+      return instrumented(new ChannelBoundedSpsc<>(n));
+    }
+    return createBoundedChannel(clazz, n); // nothing cheaper for MPSC yet
+  }
+
+  @Override
+  public <T> ChannelBiDirectional<T> createUnboundedChannel(final Class<T> clazz) {
+    return instrumented(new ChannelUnbounded<>());
+  }
+
+  @Override
+  public <T> ChannelDropping<T> createSlidingChannel(final Class<T> clazz, final int n) {
+    final ChannelDropping<T> channel = n == 1 ? new ChannelConflated<>() : new ChannelSlidingLocking<>(n);
+    channel.setMetricsListener(metricsListener);
+    return channel;
+  }
+
+  @Override
+  public <T> ChannelBroadcast<T> createBroadcastChannel(final Class<T> clazz, final int n) {
+    final ChannelBroadcast<T> channel = new ChannelBroadcastLocking<>(n);
+    channel.setMetricsListener(metricsListener);
+    return channel;
+  }
+
+  @Override
+  public LongChannel createLongChannel(final int n) {
+    return new LongChannelLockFree(n);
+  }
+
+  private <T> ChannelBiDirectional<T> instrumented(final ChannelBiDirectional<T> channel) {
+    channel.setMetricsListener(metricsListener);
+    return channel;
+  }
+
+  /*
+   Ready clauses are claimed before they run, so no other thread can take their element
+   (slot) in the meantime. See LostRaceException.
+   */
+  @Override
+  public boolean runReadyClauses(final SelectClause... clauses) {
+    return ClaimedClauses.run(clauses);
+  }
+
+  /*
+   Gauges: scheduler.pending, the continuations scheduled or running (see pending).
+   */
+  @Override
+  public void setMetricsListener(final MetricsListener listener) {
+    metricsListener = listener;
+    listener.gauge("scheduler.pending", pending::get);
+  }
+
+  /*
+   Wait until no continuation is scheduled or running. Returns false if the timeout elapsed first.
+   */
+  public boolean awaitQuiescence(final long timeout, final TimeUnit unit) throws InterruptedException {
+    return pending.awaitZero(timeout, unit);
+  }
+
+  /*
+   Stop the workers. Continuations still scheduled are dropped.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    closed = true;
+    for (final Worker worker : workers) {
+      LockSupport.unpark(worker);
+    }
+    for (final Worker worker : workers) {
+      if (worker != Thread.currentThread()) {
+        worker.join();
+      }
+    }
+  }
+
+  private void enqueue(final Continuation continuation) {
+    final Worker worker = currentWorker();
+    if (worker == null) {
+      submissions.add(continuation);
+      signalWork();
+    } else {
+      worker.deque.addFirst(continuation);
+      // the worker will take this one itself: only wake a thief if there's more than that
+      if (worker.deque.peekLast() != continuation) {
+        signalWork();
+      }
+    }
+  }
+
+  private void signalWork() {
+    final Worker idle = idleWorkers.poll();
+    if (idle != null) {
+      LockSupport.unpark(idle);
+    }
+  }
+
+  private Worker currentWorker() {
+    final Thread thread = Thread.currentThread();
+    if (thread instanceof Worker && ((Worker) thread).belongsTo(this)) {
+      return (Worker) thread;
+    }
+    return null;
+  }
+
+  private void addTimer(final Timer timer) {
+    timerLock.lock();
+    try {
+      timers.add(timer);
+      nextTimerDueNanos = timers.nextDueNanos();
+    } finally {
+      timerLock.unlock();
+    }
+    signalWork(); // an idle worker may need to wake sooner than it planned to
+  }
+
+  private void expireTimers(final Worker worker) {
+    final long now = nanoTime.nanoTime();
+    if (now < nextTimerDueNanos || !timerLock.tryLock()) {
+      return;
+    }
+    try {
+      timers.expire(now, timer -> {
+        if (!timer.claim()) {
+          --cancelledTimers;
+          return;
+        }
+        if (!timer.counted) {
+          pending.increment(); // a polled continuation: it's runnable now
+        }
+        worker.deque.addLast(timer.continuation);
+      });
+      nextTimerDueNanos = timers.nextDueNanos();
+    } finally {
+      timerLock.unlock();
+    }
+    if (worker.deque.peekFirst() != worker.deque.peekLast()) {
+      signalWork();
+    }
+  }
+
+  private void cancelled(final Timer timer) {
+    if (timer.counted) {
+      pending.decrement();
+    }
+    timerLock.lock();
+    try {
+      if (++cancelledTimers >= MIN_PURGE && cancelledTimers > timers.size() / 2) {
+        // what's claimed and still in the wheel was cancelled
+        cancelledTimers -= timers.removeIf(Timer::get);
+        nextTimerDueNanos = timers.nextDueNanos();
+      }
+    } finally {
+      timerLock.unlock();
+    }
+  }
+
+  /*
+   Run first, then whatever its steps hand over inline with continueWith(). It all counts as one
+   pending task.
+   */
+  private void runTask(final Worker worker, final Continuation first) {
+    Continuation continuation = first;
+    worker.inlineBudget = MAX_INLINE_STEPS;
+    try {
+      do {
+        worker.inlineNext = null;
+        if (!continuation.isReady()) {
+          metricsListener.notReady();
+          park(continuation);
+          return;
+        }
+        metricsListener.ran();
+        continuation.compute(this);
+        continuation = worker.inlineNext;
+      } while (continuation != null);
+    } catch (final LostRaceException e) {
+      metricsListener.notReady();
+      park(continuation);
+    } catch (final Throwable t) {
+      final Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+    } finally {
+      worker.inlineBudget = 0;
+      final Continuation handedOver = worker.inlineNext;
+      worker.inlineNext = null;
+      if (handedOver != null) {
+        submit(handedOver); // the step that handed it over threw
+      }
+      pending.decrement();
+    }
+  }
+
+  private void park(final Continuation continuation) {
+    final Parked parked = new Parked(continuation);
+    if (!continuation.awaitReadiness(parked) && parked.disarm()) {
+      // can't be woken: look again a little later
+      addTimer(new Timer(continuation, nanoTime.nanoTime() + POLL_INTERVAL_NANOS, false));
+    }
+  }
+
+  // claimed (true) once it has expired or been cancelled: whichever comes first wins
+  private final class Timer extends AtomicBoolean implements Cancellable {
+    final Continuation continuation;
+    final long dueNanos;
+    final boolean counted; // in pending: false for continuations we're polling
+
+    Timer(final Continuation continuation, final long dueNanos, final boolean counted) {
+      this.continuation = continuation;
+      this.dueNanos = dueNanos;
+      this.counted = counted;
+    }
+
+    boolean claim() {
+      return compareAndSet(false, true);
+    }
+
+    @Override
+    public boolean cancel() {
+      if (!claim()) {
+        return false;
+      }
+      cancelled(this);
+      return true;
+    }
+  }
+
+  private final class Parked extends AtomicBoolean implements Waker {
+
+    private final Continuation continuation;
+
+    Parked(final Continuation continuation) {
+      super(true);
+      this.continuation = continuation;
+    }
+
+    @Override
+    public boolean isArmed() {
+      return get();
+    }
+
+    @Override
+    public void wake() {
+      if (disarm()) {
+        submit(continuation);
+      }
+    }
+
+    boolean disarm() {
+      return compareAndSet(true, false);
+    }
+  }
+
+  private final class Worker extends Thread {
+
+    final ConcurrentLinkedDeque<Continuation> deque;
+
+    // only touched by this worker: see continueWith()
+    int inlineBudget;
+    Continuation inlineNext;
+
+    Worker(final int index) {
+      super("puffing-billy-worker-" + index);
+      setDaemon(true);
+      deque = new ConcurrentLinkedDeque<>();
+    }
+
+    boolean belongsTo(final WorkStealingScheduler scheduler) {
+      return scheduler == WorkStealingScheduler.this;
+    }
+
+    @Override
+    public void run() {
+      while (!closed) {
+        final Continuation continuation = findWork();
+        if (continuation == null) {
+          idle();
+        } else {
+          runTask(this, continuation);
+        }
+      }
+    }
+
+    private Continuation findWork() {
+      expireTimers(this);
+      Continuation continuation = deque.pollFirst();
+      if (continuation == null) {
+        continuation = submissions.poll();
+      }
+      if (continuation == null) {
+        continuation = steal();
+      }
+      return continuation;
+    }
+
+    private Continuation steal() {
+      final int n = workers.length;
+      final int start = ThreadLocalRandom.current().nextInt(n);
+      for (int i = 0; i < n; i++) {
+        final Worker victim = workers[(start + i) % n];
+        if (victim != this) {
+          final Continuation continuation = victim.deque.pollLast();
+          if (continuation != null) {
+            return continuation;
+          }
+        }
+      }
+      return null;
+    }
+
+    private void idle() {
+      idleWorkers.add(this);
+      // look again now we're on the idle list, so we can't miss a signalWork()
+      if (!closed && !workAvailable()) {
+        final long due = nextTimerDueNanos;
+        if (due == Long.MAX_VALUE) {
+          LockSupport.park(this);
+        } else {
+          LockSupport.parkNanos(this, due - nanoTime.nanoTime());
+        }
+      }
+      idleWorkers.remove(this);
+    }
+
+    private boolean workAvailable() {
+      if (!submissions.isEmpty() || nanoTime.nanoTime() >= nextTimerDueNanos) {
+        return true;
+      }
+      for (final Worker worker : workers) {
+        if (!worker.deque.isEmpty()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -1,60 +1,77 @@
 package com.thoughtpropulsion.deterministic;
 
-import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.Batch;
+import com.thoughtpropulsion.ChannelDropping;
 import com.thoughtpropulsion.ChannelReading;
 import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.ClosingState;
+import com.thoughtpropulsion.MetricsListener;
 import com.thoughtpropulsion.ReceiveClause;
 import com.thoughtpropulsion.ReceiveOrClosedClause;
 import com.thoughtpropulsion.SendClause;
+import com.thoughtpropulsion.Waker;
 
-import java.lang.reflect.Array;
+import java.util.List;
 import java.util.function.BiPredicate;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
-public class ChannelBounded<T> implements ChannelBiDirectional<T> {
+/*
+ Elements are stored in a SegmentedQueue, so a channel's memory follows how much it holds, not
+ its bound. An UNBOUNDED channel is never full.
 
-  private final T[] content;
-  private int nextRead;
-  private int nextWrite;
-  private int size; // number of elements currently stored in channel
-  private enum ClosingState {
-    /*
-     initial state. If close() is never called on channelWriting we'll stay in this state
-     and coroutines will have to stop due to some other signal
-     */
-    Open,
+ A sliding channel (see ChannelDropping) is a bounded one whose put() drops the oldest element
+ when it's full, instead of throwing; its writing side is ready whenever it's open. getDropped()
+ of a plain bounded channel is always zero.
+ */
+public class ChannelBounded<T> implements ChannelDropping<T> {
 
-    /*
-     This is an intermediate state after receiving close() on channelWriting.
-     In this state:
-       * no more writes are allowed
-       * we're always ready for reading
-       * first subsequent read results in: onReceiveOrClosed receiver gets false as second arg
-         then state moves immediately to Closed
-         also: onReceive receiver is never called in this state
-     */
-    Closing,
+  public static final int UNBOUNDED = Integer.MAX_VALUE;
 
-    /*
-     final closed state
-     */
-    Closed
-  };
+  private final SegmentedQueue<T> content;
+  private final int bound;
+  private final boolean sliding;
+  private long dropped;
   private ClosingState closingState;
+  private MetricsListener metricsListener = MetricsListener.NONE;
+
+  // continuations parked until the reading (writing) side becomes ready
+  private final WaitList readers = new WaitList();
+  private final WaitList writers = new WaitList();
 
   private final ChannelReading<T> channelReading = new ChannelReading<T>() {
     @Override
     public boolean isReady() {
       // in closing state it is as if we have an (one) extra element
-      return size > 0 || closingState == ClosingState.Closing;
+      return content.size() > 0 || closingState == ClosingState.Closing;
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      readers.add(waker);
+      return true;
     }
 
     @Override
     public ReceiveClause<T> onReceive(final Predicate<T> receiver) {
       final ChannelReading<T> self = this;
       return new ReceiveClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          assert isReady() : "activated onReceive clause when channel wasn't ready";
+          final T value = get();
+          switch(closingState) {
+            case Open:
+              return receiver.test(value);
+            case Closing:
+              closingState = ClosingState.Closed;
+              return true;
+            case Closed:
+              throw new IllegalStateException("Bug in scheduler: invoked onReceive() receiver for a closed channel");
+          }
+          return true; // never get here
+        };
+
         @Override
         public ChannelReading<T> getChannel() {
           return self;
@@ -62,20 +79,7 @@ public class ChannelBounded<T> implements ChannelBiDirectional<T> {
 
         @Override
         public BooleanSupplier getClause() {
-          return () -> {
-            assert isReady() : "activated onReceive clause when channel wasn't ready";
-            final T value = get();
-            switch(closingState) {
-              case Open:
-                return receiver.test(value);
-              case Closing:
-                closingState = ClosingState.Closed;
-                return true;
-              case Closed:
-                throw new IllegalStateException("Bug in scheduler: invoked onReceive() receiver for a closed channel");
-            }
-            return true; // never get here
-          };
+          return clause;
         }
       };
     }
@@ -89,45 +93,88 @@ public class ChannelBounded<T> implements ChannelBiDirectional<T> {
     public ReceiveOrClosedClause<T> onReceiveOrClosed(final BiPredicate<T, Boolean> receiver) {
       final ChannelReading<T> self = this;
       return new ReceiveOrClosedClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          assert isReady() : "activated onReceiveOrClosed clause when channel wasn't ready";
+          switch(closingState) {
+            case Open:
+              return receiver.test(get(), false);
+            case Closing:
+              if (content.size() > 0) {
+                return receiver.test(get(), false);
+              } else {
+                closingState = ClosingState.Closed;
+                /*
+                 Receive the synthetic "closing" value. Receiver should ignore the first argument,
+                 but we have to pass something.
+                 */
+                return receiver.test(null, true);
+              }
+            case Closed:
+              throw new IllegalStateException("Bug in scheduler: invoked onReceiveOrClosed() receiver for a closed channel");
+          }
+          return true; // never get here
+        };
+
         @Override
         public ChannelReading<T> getChannel() {
           return self;
         }
         @Override
         public BooleanSupplier getClause() {
-          return () -> {
-            assert isReady() : "activated onReceiveOrClosed clause when channel wasn't ready";
-            switch(closingState) {
-              case Open:
-                return receiver.test(get(), false);
-              case Closing:
-                if (size > 0) {
-                  return receiver.test(get(), false);
-                } else {
-                  closingState = ClosingState.Closed;
-                  /*
-                   Receive the synthetic "closing" value. Receiver should ignore the first argument,
-                   but we have to pass something.
-                   */
-                  return receiver.test(content[0], true);
-                }
-              case Closed:
-                throw new IllegalStateException("Bug in scheduler: invoked onReceiveOrClosed() receiver for a closed channel");
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public ReceiveClause<T> onReceiveBatch(final int maxN, final Predicate<Batch<T>> receiver) {
+      if (maxN < 1) {
+        throw new IllegalArgumentException("Illegal batch size: " + maxN + ". Must be greater than zero.");
+      }
+      final ChannelReading<T> self = this;
+      final RingView view = new RingView();
+      return new ReceiveClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          assert isReady() : "activated onReceiveBatch clause when channel wasn't ready";
+          if (content.size() > 0) {
+            // hand over the elements where they lie, and only then free their slots
+            final int n = Math.min(content.size(), maxN);
+            view.size = n;
+            try {
+              return receiver.test(view);
+            } finally {
+              view.size = 0;
+              content.remove(n);
+              removed(n);
             }
-            return true; // never get here
-          };
+          }
+          if (closingState == ClosingState.Closing) {
+            closingState = ClosingState.Closed;
+            return true;
+          }
+          throw new IllegalStateException("Bug in scheduler: invoked onReceiveBatch() receiver for a closed channel");
+        };
+
+        @Override
+        public ChannelReading<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
         }
       };
     }
 
     @Override
     public T get() {
-      if (size > 0) {
-        final T result = content[nextRead];
-        nextRead = (nextRead + 1) % content.length;
-        size -= 1;
+      if (content.size() > 0) {
+        final T result = content.remove();
+        removed(1);
         return result;
       } else {
+        metricsListener.foundEmpty();
         throw new IllegalStateException("Channel is empty.");
       }
     }
@@ -137,11 +184,18 @@ public class ChannelBounded<T> implements ChannelBiDirectional<T> {
     @Override
     public void close() {
       closingState = ClosingState.Closing;
+      readers.wakeAll(); // the synthetic "closing" value is ready for reading
     }
 
     @Override
     public boolean isReady() {
-      return size < content.length && closingState == ClosingState.Open;
+      return (content.size() < bound || sliding) && closingState == ClosingState.Open;
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      writers.add(waker);
+      return true;
     }
 
     @Override
@@ -149,6 +203,11 @@ public class ChannelBounded<T> implements ChannelBiDirectional<T> {
       final ChannelWriting<T> self = this;
 
       return new SendClause<>() {
+        private final BooleanSupplier clause = () -> {
+          assert isReady() : "activated onSend clause when channel wasn't ready";
+          return predicate.test(getChannel());
+        };
+
         @Override
         public ChannelWriting<T> getChannel() {
           return self;
@@ -156,10 +215,7 @@ public class ChannelBounded<T> implements ChannelBiDirectional<T> {
 
         @Override
         public BooleanSupplier getClause() {
-          return () -> {
-            assert isReady() : "activated onSend clause when channel wasn't ready";
-            return predicate.test(getChannel());
-          };
+          return clause;
         }
       };
     }
@@ -169,22 +225,88 @@ public class ChannelBounded<T> implements ChannelBiDirectional<T> {
       return onSend(channelWriting -> {predicate.run(); return true;});
     }
 
+    @Override
+    public SendClause<T> onSendBatch(final List<T> pending, final Predicate<ChannelWriting<T>> afterwards) {
+      final ChannelWriting<T> self = this;
+
+      return new SendClause<>() {
+        private final BooleanSupplier clause = () -> {
+          assert isReady() : "activated onSendBatch clause when it wasn't ready";
+          pending.subList(0, putAll(pending)).clear();
+          return afterwards.test(self);
+        };
+
+        @Override
+        public ChannelWriting<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean isReady() {
+          return !pending.isEmpty() && self.isReady();
+        }
+
+        // only this continuation fills pending: see SelectClause.awaitReadiness()
+        @Override
+        public boolean awaitReadiness(final Waker waker) {
+          return pending.isEmpty() || self.awaitReadiness(waker);
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public int putAll(final List<? extends T> values) {
+      if (closingState != ClosingState.Open) {
+        throw new IllegalStateException("can't put in state: " + closingState);
+      }
+      final int n = sliding ? values.size() : Math.min(values.size(), bound - content.size());
+      if (n < values.size()) {
+        metricsListener.foundFull();
+      }
+      final boolean wasEmpty = content.size() == 0;
+      for (int i = 0; i < n; i++) {
+        if (content.size() == bound) {
+          dropOldest();
+        }
+        content.add(values.get(i));
+      }
+      if (wasEmpty && n > 0) {
+        readers.wakeAll();
+      }
+      return n;
+    }
+
     @Override
     public void put(final T value) {
       if (closingState != ClosingState.Open) {
         throw new IllegalStateException("can't put in state: " + closingState);
       }
       if (storageAvailable()) {
-        content[nextWrite] = value;
-        nextWrite = (nextWrite + 1) % content.length;
-        size += 1;
+        if (content.size() == bound) {
+          dropOldest();
+        }
+        final boolean wasEmpty = content.size() == 0;
+        content.add(value);
+        if (wasEmpty) {
+          readers.wakeAll();
+        }
       } else {
+        metricsListener.foundFull();
         throw new IllegalStateException("Channel is full.");
       }
     }
   };
 
   public ChannelBounded(final Class<T> clazz, final int bound) {
+    this(clazz, bound, false);
+  }
+
+  public ChannelBounded(final Class<T> clazz, final int bound, final boolean sliding) {
     /*
      This framework has no blocking reads or writes. That's because we have no way to suspend a reader (writer.)
      As a result all channels must have capacity to store one content item.
@@ -192,11 +314,42 @@ public class ChannelBounded<T> implements ChannelBiDirectional<T> {
     if (bound < 1) {
       throw new IllegalArgumentException("Illegal channel size: " + bound + ". Must be greater than zero.");
     }
-    this.content = (T[]) Array.newInstance(clazz, bound);
-    nextRead = nextWrite = size = 0;
+    this.content = new SegmentedQueue<>(bound);
+    this.bound = bound;
+    this.sliding = sliding;
     closingState = ClosingState.Open;
   }
 
+  // after taking n elements
+  private void removed(final int n) {
+    final boolean wasFull = content.size() + n == bound;
+    if (wasFull && closingState == ClosingState.Open) {
+      writers.wakeAll();
+    }
+  }
+
+  // sliding, and full: make room for one more
+  private void dropOldest() {
+    content.remove();
+    ++dropped;
+    metricsListener.dropped();
+  }
+
+  @Override
+  public int size() {
+    return content.size();
+  }
+
+  @Override
+  public long getDropped() {
+    return dropped;
+  }
+
+  @Override
+  public void setMetricsListener(final MetricsListener listener) {
+    metricsListener = listener;
+  }
+
   @Override
   public ChannelReading<T> getReading() {
     return channelReading;
@@ -207,4 +360,21 @@ public class ChannelBounded<T> implements ChannelBiDirectional<T> {
     return channelWriting;
   }
 
+  // a run of elements still in content: see onReceiveBatch()
+  private final class RingView implements Batch<T> {
+    int size;
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public T get(final int i) {
+      if (i < 0 || i >= size) {
+        throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+      }
+      return content.get(i);
+    }
+  }
 }
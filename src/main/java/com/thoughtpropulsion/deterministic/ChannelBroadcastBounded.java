@@ -0,0 +1,398 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Batch;
+import com.thoughtpropulsion.ChannelBroadcast;
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.ClosingState;
+import com.thoughtpropulsion.MetricsListener;
+import com.thoughtpropulsion.ReceiveClause;
+import com.thoughtpropulsion.ReceiveOrClosedClause;
+import com.thoughtpropulsion.SendClause;
+import com.thoughtpropulsion.Waker;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/*
+ A broadcast channel for TestScheduler. Positions are sequence numbers: element s lives in
+ content[s & mask] (content is bound rounded up to a power of two, so that's a mask, not a
+ division, per element per subscriber). The gate is the lowest position of any subscriber; the writer may
+ run ahead of it by up to bound.
+
+ The gate is kept exact without a scan per put: we count the subscribers at the gate, and only
+ look for the new lowest position when the last of them moves on. So put() costs the same
+ however many subscribers there are, and slots are cleared as soon as everyone has read them.
+ */
+public class ChannelBroadcastBounded<T> implements ChannelBroadcast<T> {
+
+  private final T[] content;
+  private final int bound;
+  private final int mask;
+  private long written; // position of the next element put
+  private long gate; // lowest position of any subscriber (written, if there are none)
+  private int atGate; // subscribers whose position is gate
+  private final List<Subscription> subscriptions = new ArrayList<>();
+  private boolean closed;
+  private MetricsListener metricsListener = MetricsListener.NONE;
+
+  // continuations parked until some subscription (the writing side) becomes ready
+  private final WaitList readers = new WaitList();
+  private final WaitList writers = new WaitList();
+
+  public ChannelBroadcastBounded(final Class<T> clazz, final int bound) {
+    if (bound < 1) {
+      throw new IllegalArgumentException("Illegal channel size: " + bound + ". Must be greater than zero.");
+    }
+    this.bound = bound;
+    this.content = (T[]) Array.newInstance(clazz, ceilingPowerOfTwo(bound));
+    this.mask = content.length - 1;
+  }
+
+  private static int ceilingPowerOfTwo(final int n) {
+    if (n > 1 << 30) {
+      throw new IllegalArgumentException("Illegal channel size: " + n + ". Must be at most " + (1 << 30) + ".");
+    }
+    return n == 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+  }
+
+  private final ChannelWriting<T> channelWriting = new ChannelWriting<>() {
+    @Override
+    public void close() {
+      closed = true;
+      readers.wakeAll(); // the synthetic "closing" value is ready for every subscriber
+    }
+
+    @Override
+    public boolean isReady() {
+      return !closed && written - gate < bound;
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      writers.add(waker);
+      return true;
+    }
+
+    @Override
+    public SendClause<T> onSend(final Predicate<ChannelWriting<T>> predicate) {
+      final ChannelWriting<T> self = this;
+
+      return new SendClause<>() {
+        private final BooleanSupplier clause = () -> {
+          assert isReady() : "activated onSend clause when channel wasn't ready";
+          return predicate.test(getChannel());
+        };
+
+        @Override
+        public ChannelWriting<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public SendClause<T> onSend(final Runnable predicate) {
+      return onSend(channelWriting -> {predicate.run(); return true;});
+    }
+
+    @Override
+    public SendClause<T> onSendBatch(final List<T> pending, final Predicate<ChannelWriting<T>> afterwards) {
+      final ChannelWriting<T> self = this;
+
+      return new SendClause<>() {
+        private final BooleanSupplier clause = () -> {
+          assert isReady() : "activated onSendBatch clause when it wasn't ready";
+          pending.subList(0, putAll(pending)).clear();
+          return afterwards.test(self);
+        };
+
+        @Override
+        public ChannelWriting<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public boolean isReady() {
+          return !pending.isEmpty() && self.isReady();
+        }
+
+        // only this continuation fills pending: see SelectClause.awaitReadiness()
+        @Override
+        public boolean awaitReadiness(final Waker waker) {
+          return pending.isEmpty() || self.awaitReadiness(waker);
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public int putAll(final List<? extends T> values) {
+      if (closed) {
+        throw new IllegalStateException("can't put in state: " + ClosingState.Closing);
+      }
+      final int n = (int) Math.min(values.size(), bound - (written - gate));
+      if (n < values.size()) {
+        metricsListener.foundFull();
+      }
+      for (int i = 0; i < n; i++) {
+        append(values.get(i));
+      }
+      if (n > 0) {
+        readers.wakeAll();
+      }
+      return n;
+    }
+
+    @Override
+    public void put(final T value) {
+      if (closed) {
+        throw new IllegalStateException("can't put in state: " + ClosingState.Closing);
+      }
+      if (!storageAvailable()) {
+        metricsListener.foundFull();
+        throw new IllegalStateException("Channel is full.");
+      }
+      append(value);
+      readers.wakeAll();
+    }
+  };
+
+  private void append(final T value) {
+    if (subscriptions.isEmpty()) {
+      gate = ++written; // nobody to read it
+    } else {
+      content[(int) (written++ & mask)] = value;
+    }
+  }
+
+  @Override
+  public ChannelWriting<T> getWriting() {
+    return channelWriting;
+  }
+
+  @Override
+  public ChannelReading<T> subscribe() {
+    final Subscription subscription = new Subscription(written);
+    if (subscriptions.isEmpty()) {
+      gate = written;
+      atGate = 0;
+    }
+    if (subscription.position == gate) {
+      ++atGate;
+    }
+    subscriptions.add(subscription);
+    return subscription;
+  }
+
+  @Override
+  public void unsubscribe(final ChannelReading<T> reading) {
+    final Subscription subscription = (Subscription) reading;
+    if (subscriptions.remove(subscription) && subscription.position == gate && --atGate == 0) {
+      advanceGate();
+    }
+  }
+
+  @Override
+  public int size() {
+    return (int) (written - gate);
+  }
+
+  @Override
+  public void setMetricsListener(final MetricsListener listener) {
+    metricsListener = listener;
+  }
+
+  // the last subscriber at the gate moved on: find the new gate, and clear the slots behind it
+  private void advanceGate() {
+    final boolean wasFull = written - gate == bound;
+    long lowest = written;
+    for (final Subscription subscription : subscriptions) {
+      lowest = Math.min(lowest, subscription.position);
+    }
+    atGate = 0;
+    for (final Subscription subscription : subscriptions) {
+      if (subscription.position == lowest) {
+        ++atGate;
+      }
+    }
+    for (long s = gate; s < lowest; s++) {
+      content[(int) (s & mask)] = null; // everyone has read it: don't keep it reachable
+    }
+    gate = lowest;
+    if (wasFull && !closed) {
+      writers.wakeAll();
+    }
+  }
+
+  private final class Subscription implements ChannelReading<T> {
+    private long position; // of the next element to read
+    private boolean closeConsumed;
+    private final RingView view = new RingView();
+
+    Subscription(final long position) {
+      this.position = position;
+    }
+
+    @Override
+    public boolean isReady() {
+      // once closed and drained it is as if we have an (one) extra element
+      return position < written || (closed && !closeConsumed);
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      readers.add(waker);
+      return true;
+    }
+
+    @Override
+    public ReceiveClause<T> onReceive(final Predicate<T> receiver) {
+      final ChannelReading<T> self = this;
+      return new ReceiveClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          assert isReady() : "activated onReceive clause when channel wasn't ready";
+          if (position < written) {
+            return receiver.test(get());
+          }
+          closeConsumed = true;
+          return true;
+        };
+
+        @Override
+        public ChannelReading<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public ReceiveClause<T> onReceive(final Consumer<T> receiver) {
+      return onReceive( value -> {receiver.accept(value); return true;});
+    }
+
+    @Override
+    public ReceiveOrClosedClause<T> onReceiveOrClosed(final BiPredicate<T, Boolean> receiver) {
+      final ChannelReading<T> self = this;
+      return new ReceiveOrClosedClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          assert isReady() : "activated onReceiveOrClosed clause when channel wasn't ready";
+          if (position < written) {
+            return receiver.test(get(), false);
+          }
+          closeConsumed = true;
+          /*
+           Receive the synthetic "closing" value. Receiver should ignore the first argument,
+           but we have to pass something.
+           */
+          return receiver.test(null, true);
+        };
+
+        @Override
+        public ChannelReading<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public ReceiveClause<T> onReceiveBatch(final int maxN, final Predicate<Batch<T>> receiver) {
+      if (maxN < 1) {
+        throw new IllegalArgumentException("Illegal batch size: " + maxN + ". Must be greater than zero.");
+      }
+      final ChannelReading<T> self = this;
+      return new ReceiveClause<T>() {
+        private final BooleanSupplier clause = () -> {
+          assert isReady() : "activated onReceiveBatch clause when channel wasn't ready";
+          if (position < written) {
+            // hand over the elements where they lie, and only then move on past them
+            final int n = (int) Math.min(written - position, maxN);
+            view.start = position;
+            view.size = n;
+            try {
+              return receiver.test(view);
+            } finally {
+              view.size = 0;
+              advance(n);
+            }
+          }
+          closeConsumed = true;
+          return true;
+        };
+
+        @Override
+        public ChannelReading<T> getChannel() {
+          return self;
+        }
+
+        @Override
+        public BooleanSupplier getClause() {
+          return clause;
+        }
+      };
+    }
+
+    @Override
+    public T get() {
+      if (position < written) {
+        final T result = content[(int) (position & mask)];
+        advance(1);
+        return result;
+      } else {
+        metricsListener.foundEmpty();
+        throw new IllegalStateException("Channel is empty.");
+      }
+    }
+
+    private void advance(final int n) {
+      final boolean wasAtGate = position == gate;
+      position += n;
+      if (wasAtGate && --atGate == 0) {
+        advanceGate();
+      }
+    }
+  }
+
+  // a run of elements still in content: see onReceiveBatch()
+  private final class RingView implements Batch<T> {
+    long start;
+    int size;
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public T get(final int i) {
+      if (i < 0 || i >= size) {
+        throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+      }
+      return content[(int) ((start + i) & mask)];
+    }
+  }
+}
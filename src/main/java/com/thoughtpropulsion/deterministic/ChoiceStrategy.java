@@ -0,0 +1,45 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Random;
+
+import java.util.List;
+
+/*
+ TestScheduler's decisions: which ready task runs next, which ready clause a select runs, and
+ how many steps a turn may run inline.
+ The strategy decides how the state space gets searched. Each TestScheduler gets its own, made
+ by a Factory from the scheduler's seeded Random, so a strategy must be deterministic given that.
+ */
+public interface ChoiceStrategy {
+
+  /*
+   An index into ready (never empty): the task to run next. A task's chain identifies the
+   coroutine it's a step of. ready belongs to the scheduler: don't modify it.
+   */
+  int chooseTask(List<Task> ready);
+
+  // which of n (> 0) ready select clauses to run
+  int chooseClause(int n);
+
+  // how many steps (0 to max) the turn that's starting may run inline: see TestScheduler
+  int chooseInlineSteps(int max);
+
+  interface Factory {
+    ChoiceStrategy create(Random random);
+  }
+
+  // every choice uniformly at random: the default
+  Factory UNIFORM = UniformChoice::new;
+
+  // no randomness at all: ready chains take turns
+  Factory ROUND_ROBIN = random -> new RoundRobinChoice();
+
+  /*
+   Probabilistic concurrency testing: finds a bug that needs depth ordering constraints between
+   chains with probability at least 1/(n k^(depth-1)), for n chains and k steps, where uniform
+   random choice needs luck exponential in k. maxSteps estimates k.
+   */
+  static Factory pct(final int depth, final int maxSteps) {
+    return random -> new PctChoice(random, depth, maxSteps);
+  }
+}
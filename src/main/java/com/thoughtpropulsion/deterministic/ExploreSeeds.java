@@ -0,0 +1,31 @@
+package com.thoughtpropulsion.deterministic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ A JUnit 5 test run once per seed, by a SeedExplorer. The test method takes the seed as an int
+ parameter and builds its TestScheduler from it:
+
+   @ExploreSeeds(seeds = 10_000)
+   void handoff(final int seed) {
+     final TestScheduler scheduler = new TestScheduler(new VirtualTime(), seed);
+     ...
+   }
+
+ The runs share one test instance and happen concurrently, so keep the test's state local.
+ -DexploreSeeds=n overrides seeds, e.g. for a nightly sweep.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Test
+@ExtendWith(SeedExplorerExtension.class)
+public @interface ExploreSeeds {
+  int firstSeed() default 0;
+  int seeds() default 1000;
+}
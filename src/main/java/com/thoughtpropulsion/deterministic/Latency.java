@@ -0,0 +1,44 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Random;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ How long a message takes to cross a SimulatedNetwork link, once it's on the wire. Drawn from
+ the network's seeded Random, so a seed always produces the same delays.
+ */
+public interface Latency {
+
+  // resolution of the draws below: Random only deals in ints
+  int STEPS = 1 << 30;
+
+  long nextNanos(Random random);
+
+  static Latency fixed(final long delay, final TimeUnit unit) {
+    final long nanos = unit.toNanos(delay);
+    return random -> nanos;
+  }
+
+  /*
+   Anywhere from min to max, evenly.
+   */
+  static Latency uniform(final long min, final long max, final TimeUnit unit) {
+    final long minNanos = unit.toNanos(min);
+    final long spanNanos = unit.toNanos(max) - minNanos;
+    if (spanNanos < 0) {
+      throw new IllegalArgumentException("Illegal latency range: " + min + " to " + max + ".");
+    }
+    return random -> minNanos + (long) (spanNanos * (random.nextInt(STEPS) / (double) STEPS));
+  }
+
+  /*
+   At least min, plus an exponentially distributed delay with the given mean: mostly close to
+   min, with a long tail, as queueing in a real network gives.
+   */
+  static Latency exponential(final long min, final long mean, final TimeUnit unit) {
+    final long minNanos = unit.toNanos(min);
+    final double meanNanos = unit.toNanos(mean);
+    return random -> minNanos + (long) (-meanNanos * Math.log((random.nextInt(STEPS) + 1) / (double) STEPS));
+  }
+}
@@ -0,0 +1,56 @@
+package com.thoughtpropulsion.deterministic;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ What a SimulatedNetwork link does to the messages crossing it.
+
+ latency: how long each one takes on the wire. lossProbability: the chance each one is lost.
+ bytesPerSecond: how fast the link puts messages on the wire, one after another, so a burst
+ queues (zero: no limit). ordered: whether messages arrive in the order they were sent, as over
+ TCP (one held up holds up those behind it), or each in its own time, so jittery latency
+ reorders them, as with UDP.
+ */
+public final class LinkConditions {
+
+  /*
+   Instant, lossless, unlimited and ordered: like a channel.
+   */
+  public static final LinkConditions PERFECT =
+      new LinkConditions(Latency.fixed(0, TimeUnit.NANOSECONDS), 0, 0, true);
+
+  private final Latency latency;
+  private final double lossProbability;
+  private final long bytesPerSecond;
+  private final boolean ordered;
+
+  public LinkConditions(final Latency latency, final double lossProbability, final long bytesPerSecond,
+                        final boolean ordered) {
+    if (lossProbability < 0 || lossProbability > 1) {
+      throw new IllegalArgumentException("Illegal loss probability: " + lossProbability + ". Must be from 0 to 1.");
+    }
+    if (bytesPerSecond < 0) {
+      throw new IllegalArgumentException("Illegal bandwidth: " + bytesPerSecond + ". Must not be negative.");
+    }
+    this.latency = latency;
+    this.lossProbability = lossProbability;
+    this.bytesPerSecond = bytesPerSecond;
+    this.ordered = ordered;
+  }
+
+  public Latency getLatency() {
+    return latency;
+  }
+
+  public double getLossProbability() {
+    return lossProbability;
+  }
+
+  public long getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  public boolean isOrdered() {
+    return ordered;
+  }
+}
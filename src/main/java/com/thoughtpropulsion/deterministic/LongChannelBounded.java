@@ -0,0 +1,197 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.ClosingState;
+import com.thoughtpropulsion.LongChannel;
+import com.thoughtpropulsion.Readiness;
+import com.thoughtpropulsion.SelectClause;
+import com.thoughtpropulsion.Waker;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/*
+ ChannelBounded for longs: a ring buffer of primitives. Clauses are their own BooleanSupplier,
+ so running one allocates nothing.
+ */
+public class LongChannelBounded implements LongChannel {
+
+  private static final BooleanSupplier CLOSED = () -> true;
+
+  private final long[] content;
+  private int nextRead;
+  private int nextWrite;
+  private int size; // number of elements currently stored in channel
+  private ClosingState closingState;
+
+  // continuations parked until the reading (writing) side becomes ready
+  private final WaitList readers = new WaitList();
+  private final WaitList writers = new WaitList();
+
+  private final Reading reading = new Reading() {
+    @Override
+    public boolean isReady() {
+      // in closing state it is as if we have an (one) extra element
+      return size > 0 || closingState == ClosingState.Closing;
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      readers.add(waker);
+      return true;
+    }
+
+    @Override
+    public SelectClause onReceive(final LongPredicate receiver) {
+      return new ReceiveClause(receiver, CLOSED);
+    }
+
+    @Override
+    public SelectClause onReceive(final LongConsumer receiver) {
+      return onReceive(value -> {receiver.accept(value); return true;});
+    }
+
+    @Override
+    public SelectClause onReceiveOrClosed(final LongPredicate receiver, final BooleanSupplier onClosed) {
+      return new ReceiveClause(receiver, onClosed);
+    }
+
+    @Override
+    public long get() {
+      if (size == 0) {
+        throw new IllegalStateException("Channel is empty.");
+      }
+      final long result = content[nextRead];
+      nextRead = (nextRead + 1) % content.length;
+      final boolean wasFull = size == content.length;
+      size -= 1;
+      if (wasFull && closingState == ClosingState.Open) {
+        writers.wakeAll();
+      }
+      return result;
+    }
+  };
+
+  private final Writing writing = new Writing() {
+    @Override
+    public void close() {
+      closingState = ClosingState.Closing;
+      readers.wakeAll(); // the synthetic "closing" value is ready for reading
+    }
+
+    @Override
+    public boolean isReady() {
+      return size < content.length && closingState == ClosingState.Open;
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      writers.add(waker);
+      return true;
+    }
+
+    @Override
+    public SelectClause onSend(final Predicate<Writing> predicate) {
+      return new SendClause(predicate);
+    }
+
+    @Override
+    public SelectClause onSend(final Runnable predicate) {
+      return onSend(writing -> {predicate.run(); return true;});
+    }
+
+    @Override
+    public void put(final long value) {
+      if (closingState != ClosingState.Open) {
+        throw new IllegalStateException("can't put in state: " + closingState);
+      }
+      if (size == content.length) {
+        throw new IllegalStateException("Channel is full.");
+      }
+      content[nextWrite] = value;
+      nextWrite = (nextWrite + 1) % content.length;
+      final boolean wasEmpty = size == 0;
+      size += 1;
+      if (wasEmpty) {
+        readers.wakeAll();
+      }
+    }
+  };
+
+  public LongChannelBounded(final int bound) {
+    if (bound < 1) {
+      throw new IllegalArgumentException("Illegal channel size: " + bound + ". Must be greater than zero.");
+    }
+    content = new long[bound];
+    nextRead = nextWrite = size = 0;
+    closingState = ClosingState.Open;
+  }
+
+  @Override
+  public Reading getReading() {
+    return reading;
+  }
+
+  @Override
+  public Writing getWriting() {
+    return writing;
+  }
+
+  private final class ReceiveClause implements SelectClause, BooleanSupplier {
+    private final LongPredicate receiver;
+    private final BooleanSupplier onClosed;
+
+    ReceiveClause(final LongPredicate receiver, final BooleanSupplier onClosed) {
+      this.receiver = receiver;
+      this.onClosed = onClosed;
+    }
+
+    @Override
+    public Readiness getChannel() {
+      return reading;
+    }
+
+    @Override
+    public BooleanSupplier getClause() {
+      return this;
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+      assert reading.isReady() : "activated receive clause when channel wasn't ready";
+      if (size > 0) {
+        return receiver.test(reading.get());
+      }
+      if (closingState == ClosingState.Closing) {
+        closingState = ClosingState.Closed;
+        return onClosed.getAsBoolean();
+      }
+      throw new IllegalStateException("Bug in scheduler: invoked receive clause for a closed channel");
+    }
+  }
+
+  private final class SendClause implements SelectClause, BooleanSupplier {
+    private final Predicate<Writing> predicate;
+
+    SendClause(final Predicate<Writing> predicate) {
+      this.predicate = predicate;
+    }
+
+    @Override
+    public Readiness getChannel() {
+      return writing;
+    }
+
+    @Override
+    public BooleanSupplier getClause() {
+      return this;
+    }
+
+    @Override
+    public boolean getAsBoolean() {
+      assert writing.isReady() : "activated send clause when channel wasn't ready";
+      return predicate.test(writing);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Random;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ Probabilistic concurrency testing (Burckhardt et al., ASPLOS 2010). Each chain gets a random
+ priority, at least depth, when it's first seen, and the highest priority ready chain always
+ runs. At depth - 1 steps, drawn at random from the first maxSteps, the chain that runs has its
+ priority dropped below all of those: to depth - 1 at the step drawn first, depth - 2 at the one
+ drawn next, and so on, whichever order the steps come in. Only steps that run count: a pick the
+ scheduler parks, not being ready, isn't one. Select clauses, and inline budgets, are chosen
+ uniformly.
+ */
+public class PctChoice implements ChoiceStrategy {
+  private final Random random;
+  private final int depth;
+  private final int[] changePoints; // steps after which the running chain's priority drops, as drawn
+  private final Map<Long, Integer> priorities;
+  private int step;
+
+  public PctChoice(final Random random, final int depth, final int maxSteps) {
+    if (depth < 1) {
+      throw new IllegalArgumentException("Illegal depth: " + depth + ". Must be at least 1.");
+    }
+    if (maxSteps < 1) {
+      throw new IllegalArgumentException("Illegal step estimate: " + maxSteps + ". Must be at least 1.");
+    }
+    this.random = random;
+    this.depth = depth;
+    changePoints = new int[depth - 1];
+    for (int i = 0; i < changePoints.length; i++) {
+      changePoints[i] = 1 + random.nextInt(maxSteps);
+    }
+    priorities = new HashMap<>();
+  }
+
+  @Override
+  public int chooseTask(final List<Task> ready) {
+    int chosen = 0;
+    int highest = Integer.MIN_VALUE;
+    for (int i = 0; i < ready.size(); i++) {
+      final int priority = priority(ready.get(i).chain);
+      if (priority > highest) {
+        highest = priority;
+        chosen = i;
+      }
+    }
+    final Task task = ready.get(chosen);
+    if (task.cancelled || !task.continuation.isReady()) {
+      return chosen; // the scheduler drops it or parks it: no step
+    }
+    ++step;
+    for (int i = 0; i < changePoints.length; i++) {
+      if (changePoints[i] == step) {
+        priorities.put(task.chain, depth - 1 - i);
+      }
+    }
+    return chosen;
+  }
+
+  @Override
+  public int chooseClause(final int n) {
+    return random.nextInt(n);
+  }
+
+  @Override
+  public int chooseInlineSteps(final int max) {
+    return random.nextInt(max + 1);
+  }
+
+  private int priority(final long chain) {
+    Integer priority = priorities.get(chain);
+    if (priority == null) {
+      priority = depth + random.nextInt(Integer.MAX_VALUE - depth);
+      priorities.put(chain, priority);
+    }
+    return priority;
+  }
+}
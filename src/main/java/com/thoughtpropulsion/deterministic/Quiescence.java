@@ -0,0 +1,16 @@
+package com.thoughtpropulsion.deterministic;
+
+/*
+ How TestScheduler.runUntilQuiescent() (or runFor()) left things.
+ */
+public enum Quiescence {
+  // nothing left to run, now or later
+  QUIESCENT,
+  /*
+   Nothing left to run, but tasks are still waiting on channels that nothing will ever change:
+   a deadlock, or (if the test means it) servers idling with no more clients.
+   */
+  BLOCKED,
+  // runFor() ran out of time with timers still pending
+  RUNNING
+}
@@ -0,0 +1,42 @@
+package com.thoughtpropulsion.deterministic;
+
+import java.util.List;
+
+/*
+ Ready chains take turns, in the order they were started: after chain c, the ready chain
+ started next after c runs (or, if there's none, the earliest started). Select clauses take
+ turns too, and nothing runs inline: chains take turns a step at a time. Useful as a fair baseline, and for finding bugs that need no luck at all.
+ */
+public class RoundRobinChoice implements ChoiceStrategy {
+  private long lastChain = -1;
+  private int lastClause = -1;
+
+  @Override
+  public int chooseTask(final List<Task> ready) {
+    int next = -1; // the first chain after lastChain
+    int first = 0; // the first chain of all
+    for (int i = 0; i < ready.size(); i++) {
+      final long chain = ready.get(i).chain;
+      if (chain < ready.get(first).chain) {
+        first = i;
+      }
+      if (chain > lastChain && (next < 0 || chain < ready.get(next).chain)) {
+        next = i;
+      }
+    }
+    final int chosen = next < 0 ? first : next;
+    lastChain = ready.get(chosen).chain;
+    return chosen;
+  }
+
+  @Override
+  public int chooseClause(final int n) {
+    lastClause = (lastClause + 1) % n;
+    return lastClause;
+  }
+
+  @Override
+  public int chooseInlineSteps(final int max) {
+    return 0;
+  }
+}
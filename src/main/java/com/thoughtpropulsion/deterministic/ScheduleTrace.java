@@ -0,0 +1,194 @@
+package com.thoughtpropulsion.deterministic;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ Every choice a TestScheduler made, in order: which ready task ran, which clause each select
+ ran, how many steps each turn ran inline. Together they determine the run, so replaying them
+ reproduces it without the seed, even after a code change shifts what the seed would draw.
+
+ Choices are stored as unsigned LEB128 varints: most are small indexes, so most take a byte.
+ */
+public final class ScheduleTrace {
+  private byte[] bytes;
+  private int size; // bytes used
+  private int length; // choices recorded
+
+  public ScheduleTrace() {
+    this(new byte[64], 0, 0);
+  }
+
+  private ScheduleTrace(final byte[] bytes, final int size, final int length) {
+    this.bytes = bytes;
+    this.size = size;
+    this.length = length;
+  }
+
+  public static ScheduleTrace of(final int... choices) {
+    final ScheduleTrace trace = new ScheduleTrace();
+    for (final int choice : choices) {
+      trace.append(choice);
+    }
+    return trace;
+  }
+
+  // the inverse of toBytes()
+  public static ScheduleTrace fromBytes(final byte[] encoded) {
+    int length = 0;
+    for (final byte b : encoded) {
+      if (b >= 0) { // no continuation bit: the last byte of a choice
+        ++length;
+      }
+    }
+    if (encoded.length > 0 && encoded[encoded.length - 1] < 0) {
+      throw new IllegalArgumentException("Truncated schedule trace: last choice is incomplete");
+    }
+    return new ScheduleTrace(encoded.clone(), encoded.length, length);
+  }
+
+  public byte[] toBytes() {
+    return Arrays.copyOf(bytes, size);
+  }
+
+  // number of choices
+  public int length() {
+    return length;
+  }
+
+  public int[] toChoices() {
+    final int[] choices = new int[length];
+    final Reader reader = new Reader();
+    for (int i = 0; i < length; i++) {
+      choices[i] = reader.next();
+    }
+    return choices;
+  }
+
+  /*
+   Make strategy's choices, and record them here. E.g.
+
+     new TestScheduler(time, seed, 0, trace.recording(ChoiceStrategy.UNIFORM))
+   */
+  public ChoiceStrategy.Factory recording(final ChoiceStrategy.Factory strategy) {
+    return random -> new Recording(strategy.create(random));
+  }
+
+  /*
+   Make the choices recorded here, ignoring the seed. A choice that's out of range (the code
+   changed, or the trace was shrunk) is clamped to the highest allowed. Once the trace runs out,
+   every choice is 0: the first ready task, the first ready clause, no inlining.
+   */
+  public ChoiceStrategy.Factory replaying() {
+    return random -> new Replaying();
+  }
+
+  void append(final int choice) {
+    if (choice < 0) {
+      throw new IllegalArgumentException("Illegal choice: " + choice + ". Must not be negative.");
+    }
+    if (size + 5 > bytes.length) {
+      bytes = Arrays.copyOf(bytes, bytes.length * 2);
+    }
+    int rest = choice;
+    while (rest >= 0x80) {
+      bytes[size++] = (byte) (rest & 0x7f | 0x80);
+      rest >>>= 7;
+    }
+    bytes[size++] = (byte) rest;
+    ++length;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final ScheduleTrace that = (ScheduleTrace) o;
+    return Arrays.equals(toBytes(), that.toBytes());
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(toBytes());
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ScheduleTrace: %d choices in %d bytes", length, size);
+  }
+
+  private class Reader {
+    private int position;
+
+    boolean hasNext() {
+      return position < size;
+    }
+
+    int next() {
+      int choice = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = bytes[position++];
+        choice |= (b & 0x7f) << shift;
+        shift += 7;
+      } while (b < 0);
+      return choice;
+    }
+  }
+
+  private class Recording implements ChoiceStrategy {
+    private final ChoiceStrategy strategy;
+
+    Recording(final ChoiceStrategy strategy) {
+      this.strategy = strategy;
+    }
+
+    @Override
+    public int chooseTask(final List<Task> ready) {
+      return record(strategy.chooseTask(ready));
+    }
+
+    @Override
+    public int chooseClause(final int n) {
+      return record(strategy.chooseClause(n));
+    }
+
+    @Override
+    public int chooseInlineSteps(final int max) {
+      return record(strategy.chooseInlineSteps(max));
+    }
+
+    private int record(final int choice) {
+      append(choice);
+      return choice;
+    }
+  }
+
+  private class Replaying implements ChoiceStrategy {
+    private final Reader reader = new Reader();
+
+    @Override
+    public int chooseTask(final List<Task> ready) {
+      return replay(ready.size() - 1);
+    }
+
+    @Override
+    public int chooseClause(final int n) {
+      return replay(n - 1);
+    }
+
+    @Override
+    public int chooseInlineSteps(final int max) {
+      return replay(max);
+    }
+
+    private int replay(final int max) {
+      return reader.hasNext() ? Math.min(reader.next(), max) : 0;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package com.thoughtpropulsion.deterministic;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ A state space search: run a scenario under many seeds, in parallel. Each run builds its own
+ TestScheduler from its seed and shares nothing with the others, so seeds run on as many threads
+ as there are cores.
+
+ Exploration stops soon after the first failure: runs already under way finish, no new ones
+ start. Seeds are handed out in order, so the failures reported are (almost always) the lowest
+ failing seeds.
+ */
+public class SeedExplorer {
+
+  /*
+   One run of a test: build a TestScheduler with seed, drive it, and throw (e.g. fail an
+   assertion) if anything goes wrong. Runs for different seeds happen concurrently, so a
+   scenario mustn't share mutable state between runs.
+   */
+  public interface Scenario {
+    void run(int seed) throws Throwable;
+  }
+
+  private final Scenario scenario;
+  private final int parallelism;
+
+  public SeedExplorer(final Scenario scenario) {
+    this(scenario, Runtime.getRuntime().availableProcessors());
+  }
+
+  public SeedExplorer(final Scenario scenario, final int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Illegal parallelism: " + parallelism + ". Must be at least 1.");
+    }
+    this.scenario = scenario;
+    this.parallelism = parallelism;
+  }
+
+  // run the scenario under seeds firstSeed, firstSeed + 1, ... firstSeed + seeds - 1
+  public Exploration explore(final int firstSeed, final int seeds) {
+    if (seeds < 0) {
+      throw new IllegalArgumentException("Illegal number of seeds: " + seeds + ". Must not be negative.");
+    }
+    final AtomicLong next = new AtomicLong(); // index of the next seed to hand out
+    final AtomicLong run = new AtomicLong();
+    final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+
+    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      final List<ForkJoinTask<?>> workers = new ArrayList<>();
+      for (int i = 0; i < Math.min(parallelism, seeds); i++) {
+        workers.add(pool.submit(() -> {
+          long index;
+          while (failures.isEmpty() && (index = next.getAndIncrement()) < seeds) {
+            final int seed = (int) (firstSeed + index);
+            try {
+              scenario.run(seed);
+            } catch (final Throwable e) {
+              failures.add(new Failure(seed, e));
+            }
+            run.incrementAndGet();
+          }
+        }));
+      }
+      workers.forEach(ForkJoinTask::join);
+    } finally {
+      pool.shutdownNow();
+    }
+    return new Exploration(firstSeed, seeds, run.get(), new ArrayList<>(failures));
+  }
+
+  public static final class Exploration {
+    private final int firstSeed;
+    private final int seeds;
+    private final long seedsRun;
+    private final List<Failure> failures;
+
+    Exploration(final int firstSeed, final int seeds, final long seedsRun, final List<Failure> failures) {
+      this.firstSeed = firstSeed;
+      this.seeds = seeds;
+      this.seedsRun = seedsRun;
+      failures.sort(Comparator.comparingInt(Failure::getSeed));
+      this.failures = Collections.unmodifiableList(failures);
+    }
+
+    public boolean passed() {
+      return failures.isEmpty();
+    }
+
+    // fewer than asked for if exploration stopped early
+    public long getSeedsRun() {
+      return seedsRun;
+    }
+
+    // lowest seed first
+    public List<Failure> getFailures() {
+      return failures;
+    }
+
+    /*
+     Throw an AssertionError naming the failing seeds, caused by the lowest one's failure (the
+     others' are suppressed), unless every seed passed.
+     */
+    public void assertPassed() {
+      if (!passed()) {
+        final AssertionError error = new AssertionError(toString(), failures.get(0).getCause());
+        for (final Failure failure : failures.subList(1, failures.size())) {
+          error.addSuppressed(failure.getCause());
+        }
+        throw error;
+      }
+    }
+
+    @Override
+    public String toString() {
+      final StringBuilder report = new StringBuilder(String.format(
+        "explored %d of %d seeds from %d: ", seedsRun, seeds, firstSeed));
+      if (passed()) {
+        return report.append("all passed").toString();
+      }
+      report.append(failures.size()).append(" failed");
+      for (final Failure failure : failures) {
+        report.append(System.lineSeparator()).append(failure);
+      }
+      return report.toString();
+    }
+  }
+
+  public static final class Failure {
+    private final int seed;
+    private final Throwable cause;
+
+    Failure(final int seed, final Throwable cause) {
+      this.seed = seed;
+      this.cause = cause;
+    }
+
+    public int getSeed() {
+      return seed;
+    }
+
+    public Throwable getCause() {
+      return cause;
+    }
+
+    public String getStackTrace() {
+      final StringWriter trace = new StringWriter();
+      cause.printStackTrace(new PrintWriter(trace));
+      return trace.toString();
+    }
+
+    @Override
+    public String toString() {
+      return "seed " + seed + ": " + cause;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.thoughtpropulsion.deterministic;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ Runs an @ExploreSeeds test under each of its seeds. JUnit invokes the test once, with the
+ first seed; the extension invokes it for the rest. A failure names the failing seeds, and the
+ report entry "exploredSeeds" says how far exploration got.
+ */
+public class SeedExplorerExtension implements ParameterResolver, InvocationInterceptor {
+
+  public static final String SEEDS_PROPERTY = "exploreSeeds";
+
+  @Override
+  public boolean supportsParameter(final ParameterContext parameterContext, final ExtensionContext extensionContext) {
+    return parameterContext.getIndex() == seedIndex((Method) parameterContext.getDeclaringExecutable());
+  }
+
+  @Override
+  public Object resolveParameter(final ParameterContext parameterContext, final ExtensionContext extensionContext) {
+    return config((Method) parameterContext.getDeclaringExecutable()).firstSeed();
+  }
+
+  @Override
+  public void interceptTestMethod(final Invocation<Void> invocation,
+                                  final ReflectiveInvocationContext<Method> invocationContext,
+                                  final ExtensionContext extensionContext) {
+    final Method method = invocationContext.getExecutable();
+    final ExploreSeeds config = config(method);
+    final int seedIndex = seedIndex(method);
+    final Object target = invocationContext.getTarget().orElse(null);
+    final List<Object> arguments = invocationContext.getArguments();
+    method.setAccessible(true);
+
+    final SeedExplorer.Exploration exploration = new SeedExplorer(seed -> {
+      if (seed == config.firstSeed()) {
+        invocation.proceed(); // the invocation JUnit made, with the seed we resolved
+      } else {
+        final Object[] args = new ArrayList<>(arguments).toArray();
+        args[seedIndex] = seed;
+        try {
+          method.invoke(target, args);
+        } catch (final InvocationTargetException e) {
+          throw e.getCause();
+        }
+      }
+    }).explore(config.firstSeed(), Math.max(1, Integer.getInteger(SEEDS_PROPERTY, config.seeds())));
+
+    extensionContext.publishReportEntry("exploredSeeds", exploration.toString());
+    exploration.assertPassed();
+  }
+
+  private static ExploreSeeds config(final Method method) {
+    final ExploreSeeds config = method.getAnnotation(ExploreSeeds.class);
+    if (config == null) {
+      throw new IllegalStateException(method + " isn't annotated @ExploreSeeds");
+    }
+    return config;
+  }
+
+  // the seed is the test method's (first) int parameter
+  private static int seedIndex(final Method method) {
+    final Class<?>[] types = method.getParameterTypes();
+    for (int i = 0; i < types.length; i++) {
+      if (types[i] == int.class) {
+        return i;
+      }
+    }
+    throw new IllegalStateException(method + " needs an int parameter for the seed");
+  }
+}
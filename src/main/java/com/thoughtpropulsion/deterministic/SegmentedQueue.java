@@ -0,0 +1,132 @@
+package com.thoughtpropulsion.deterministic;
+
+/*
+ A FIFO queue stored in fixed-size segments, linked oldest to newest. A segment is allocated
+ only when a write needs one, and handed back once it has been read through, so memory follows
+ occupancy rather than capacity: a channel of bound 1,000,000 that holds ten elements holds one
+ segment. A few emptied segments are kept for reuse, so a queue going up and down at a steady
+ level doesn't allocate.
+
+ Slots are cleared as they're read: what's been taken isn't kept reachable.
+
+ Not thread-safe: this is for the single-threaded deterministic channels. The bound is the
+ caller's business; this just stores.
+ */
+class SegmentedQueue<T> {
+
+  static final int MAX_SEGMENT_LENGTH = 256;
+  private static final int MAX_POOLED = 2;
+
+  private static final class Segment {
+    final Object[] slots;
+    Segment next;
+
+    Segment(final int length) {
+      slots = new Object[length];
+    }
+  }
+
+  private final int segmentLength;
+  private Segment head; // null until the first write
+  private int headIndex; // next slot to read in head
+  private Segment tail;
+  private int tailIndex; // next slot to write in tail
+  private int size;
+
+  private Segment pool; // emptied segments, linked through next
+  private int pooled;
+
+  // where get() last found itself, so reading a run in order doesn't walk from head each time
+  private Segment cursor;
+  private long cursorBase; // offset from head's slot 0 of cursor's slot 0
+
+  // capacity is a hint: small queues get one segment just big enough
+  SegmentedQueue(final int capacity) {
+    segmentLength = Math.max(1, Math.min(capacity, MAX_SEGMENT_LENGTH));
+  }
+
+  int size() {
+    return size;
+  }
+
+  void add(final T value) {
+    if (tail == null) {
+      head = tail = obtain();
+    } else if (tailIndex == segmentLength) {
+      final Segment segment = obtain();
+      tail.next = segment;
+      tail = segment;
+      tailIndex = 0;
+    }
+    tail.slots[tailIndex++] = value;
+    ++size;
+  }
+
+  // the oldest element, which must be there
+  @SuppressWarnings("unchecked")
+  T remove() {
+    final T value = (T) head.slots[headIndex];
+    head.slots[headIndex++] = null; // don't keep it reachable
+    if (--size == 0) {
+      headIndex = tailIndex = 0; // head == tail: start it over
+    } else if (headIndex == segmentLength) {
+      final Segment done = head;
+      head = head.next;
+      headIndex = 0;
+      recycle(done);
+    }
+    cursor = null;
+    return value;
+  }
+
+  void remove(final int n) {
+    for (int i = 0; i < n; i++) {
+      remove();
+    }
+  }
+
+  // the i-th oldest element, which must be there
+  @SuppressWarnings("unchecked")
+  T get(final int i) {
+    final long offset = (long) headIndex + i;
+    if (cursor == null || offset < cursorBase) {
+      cursor = head;
+      cursorBase = 0;
+    }
+    while (offset - cursorBase >= segmentLength) {
+      cursor = cursor.next;
+      cursorBase += segmentLength;
+    }
+    return (T) cursor.slots[(int) (offset - cursorBase)];
+  }
+
+  // segments holding anything, and ones pooled for reuse
+  int segments() {
+    int n = pooled;
+    for (Segment segment = head; segment != null; segment = segment.next) {
+      ++n;
+    }
+    return n;
+  }
+
+  private Segment obtain() {
+    if (pool == null) {
+      return new Segment(segmentLength);
+    }
+    final Segment segment = pool;
+    pool = segment.next;
+    segment.next = null;
+    --pooled;
+    return segment;
+  }
+
+  private void recycle(final Segment segment) {
+    if (pooled < MAX_POOLED) {
+      segment.next = pool;
+      pool = segment;
+      ++pooled;
+    } else {
+      segment.next = null;
+    }
+  }
+}
@@ -0,0 +1,412 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Batch;
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.ClosingState;
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.MetricsListener;
+import com.thoughtpropulsion.Random;
+import com.thoughtpropulsion.ReceiveClause;
+import com.thoughtpropulsion.ReceiveOrClosedClause;
+import com.thoughtpropulsion.SendClause;
+import com.thoughtpropulsion.TaskScheduler;
+import com.thoughtpropulsion.Waker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/*
+ A network for simulating many nodes on one TestScheduler. Nodes are just names; they talk over
+ links, each an ordinary ChannelBiDirectional whose writing side is at one node and reading side
+ at the other. What's put on a link arrives when its LinkConditions say: after queueing for the
+ bandwidth and the latency, or never. partition() cuts the network: messages between the sides
+ are lost, ones already on the wire included, until heal(). Ones sent across a partition stay
+ lost, even if it heals before they'd have arrived.
+
+ Every delay and loss is drawn from the network's Random, and deliveries are scheduled on the
+ TestScheduler, so a run is reproducible from the two seeds. runUntilQuiescent() (runFor())
+ jumps virtual time from one delivery to the next, so a cluster costs what its messages cost,
+ however much virtual time they're spread over.
+
+ A link's bound is its window: messages on the wire plus messages arrived and not yet taken. A
+ full window holds the sender back, as a full socket buffer does.
+ */
+public class SimulatedNetwork {
+
+  private final TestScheduler scheduler;
+  private final Random random;
+  private final LinkConditions defaultConditions;
+  private final Map<String, LinkConditions> conditions = new HashMap<>(); // by from -> to
+  private final List<Link<?>> links = new ArrayList<>();
+  private final Map<String, Integer> sides = new HashMap<>(); // absent: side 0
+  private int partitions;
+  private long delivered;
+  private long lost;
+
+  public SimulatedNetwork(final TestScheduler scheduler, final Random random) {
+    this(scheduler, random, LinkConditions.PERFECT);
+  }
+
+  public SimulatedNetwork(final TestScheduler scheduler, final Random random, final LinkConditions defaultConditions) {
+    this.scheduler = scheduler;
+    this.random = random;
+    this.defaultConditions = defaultConditions;
+  }
+
+  public <T> ChannelBiDirectional<T> createLink(final Class<T> clazz, final String from, final String to,
+                                                final int bound) {
+    return createLink(clazz, from, to, bound, value -> 1);
+  }
+
+  /*
+   sizeInBytes is what a message counts for against the bandwidth. Without it each message is
+   one byte, so bandwidth is in messages per second.
+   */
+  public <T> ChannelBiDirectional<T> createLink(final Class<T> clazz, final String from, final String to,
+                                                final int bound, final ToIntFunction<? super T> sizeInBytes) {
+    final Link<T> link = new Link<>(clazz, from, to, bound, sizeInBytes);
+    links.add(link);
+    return link;
+  }
+
+  /*
+   Conditions on links from -> to, for messages sent from now on, and for links created later.
+   */
+  public void setConditions(final String from, final String to, final LinkConditions linkConditions) {
+    conditions.put(key(from, to), linkConditions);
+    for (final Link<?> link : links) {
+      if (link.from.equals(from) && link.to.equals(to)) {
+        link.conditions = linkConditions;
+      }
+    }
+  }
+
+  /*
+   Cut side off from the rest of the network (which may be partitioned already).
+   */
+  public void partition(final Collection<String> side) {
+    final int partition = ++partitions;
+    for (final String node : side) {
+      sides.put(node, partition);
+    }
+  }
+
+  public void heal() {
+    sides.clear();
+  }
+
+  public boolean canReach(final String from, final String to) {
+    return sides.getOrDefault(from, 0).equals(sides.getOrDefault(to, 0));
+  }
+
+  // messages that have arrived (been lost), on every link
+  public long getDelivered() {
+    return delivered;
+  }
+
+  public long getLost() {
+    return lost;
+  }
+
+  private static String key(final String from, final String to) {
+    return from + " -> " + to;
+  }
+
+  private final class Link<T> implements ChannelBiDirectional<T> {
+    final String from;
+    final String to;
+    private final ChannelBounded<T> arrived;
+    private final int bound;
+    private final ToIntFunction<? super T> sizeInBytes;
+    LinkConditions conditions;
+
+    private int inFlight;
+    private final ArrayDeque<Delivery> ordered = new ArrayDeque<>(); // in flight, sent in order
+    private long wireFreeNanos; // when what's been sent so far is all on the wire
+    private long lastArrivalNanos;
+    private boolean closed;
+    private MetricsListener metricsListener = MetricsListener.NONE;
+
+    // continuations parked until a message taken (or lost) frees a place in the window
+    private final WaitList writers = new WaitList();
+
+    Link(final Class<T> clazz, final String from, final String to, final int bound,
+         final ToIntFunction<? super T> sizeInBytes) {
+      this.from = from;
+      this.to = to;
+      this.arrived = new ChannelBounded<>(clazz, bound);
+      this.bound = bound;
+      this.sizeInBytes = sizeInBytes;
+      this.conditions = SimulatedNetwork.this.conditions.getOrDefault(key(from, to), defaultConditions);
+    }
+
+    private final ChannelWriting<T> channelWriting = new ChannelWriting<>() {
+      @Override
+      public void close() {
+        closed = true;
+        if (inFlight == 0) {
+          arrived.getWriting().close();
+        }
+      }
+
+      @Override
+      public boolean isReady() {
+        return !closed && inFlight + arrived.size() < bound;
+      }
+
+      @Override
+      public boolean awaitReadiness(final Waker waker) {
+        writers.add(waker);
+        return true;
+      }
+
+      @Override
+      public SendClause<T> onSend(final Predicate<ChannelWriting<T>> predicate) {
+        final ChannelWriting<T> self = this;
+
+        return new SendClause<>() {
+          private final BooleanSupplier clause = () -> {
+            assert isReady() : "activated onSend clause when link wasn't ready";
+            return predicate.test(getChannel());
+          };
+
+          @Override
+          public ChannelWriting<T> getChannel() {
+            return self;
+          }
+
+          @Override
+          public BooleanSupplier getClause() {
+            return clause;
+          }
+        };
+      }
+
+      @Override
+      public SendClause<T> onSend(final Runnable predicate) {
+        return onSend(channelWriting -> {predicate.run(); return true;});
+      }
+
+      @Override
+      public SendClause<T> onSendBatch(final List<T> pending, final Predicate<ChannelWriting<T>> afterwards) {
+        final ChannelWriting<T> self = this;
+
+        return new SendClause<>() {
+          private final BooleanSupplier clause = () -> {
+            assert isReady() : "activated onSendBatch clause when it wasn't ready";
+            pending.subList(0, putAll(pending)).clear();
+            return afterwards.test(self);
+          };
+
+          @Override
+          public ChannelWriting<T> getChannel() {
+            return self;
+          }
+
+          @Override
+          public boolean isReady() {
+            return !pending.isEmpty() && self.isReady();
+          }
+
+          // only this continuation fills pending: see SelectClause.awaitReadiness()
+          @Override
+          public boolean awaitReadiness(final Waker waker) {
+            return pending.isEmpty() || self.awaitReadiness(waker);
+          }
+
+          @Override
+          public BooleanSupplier getClause() {
+            return clause;
+          }
+        };
+      }
+
+      @Override
+      public int putAll(final List<? extends T> values) {
+        checkOpen();
+        final int n = Math.min(values.size(), bound - inFlight - arrived.size());
+        if (n < values.size()) {
+          metricsListener.foundFull();
+        }
+        for (int i = 0; i < n; i++) {
+          send(values.get(i));
+        }
+        return n;
+      }
+
+      @Override
+      public void put(final T value) {
+        checkOpen();
+        if (!isReady()) {
+          metricsListener.foundFull();
+          throw new IllegalStateException("Channel is full.");
+        }
+        send(value);
+      }
+    };
+
+    /*
+     What's arrived, with every take waking writers: arrived itself only wakes them when it was
+     full, and the window fills with messages still in flight.
+     */
+    private final ChannelReading<T> channelReading = new ChannelReading<>() {
+      @Override
+      public boolean isReady() {
+        return arrived.getReading().isReady();
+      }
+
+      @Override
+      public boolean awaitReadiness(final Waker waker) {
+        return arrived.getReading().awaitReadiness(waker);
+      }
+
+      @Override
+      public ReceiveClause<T> onReceive(final Predicate<T> receiver) {
+        return arrived.getReading().onReceive(value -> {
+          writers.wakeAll();
+          return receiver.test(value);
+        });
+      }
+
+      @Override
+      public ReceiveClause<T> onReceive(final Consumer<T> receiver) {
+        return onReceive(value -> {receiver.accept(value); return true;});
+      }
+
+      @Override
+      public ReceiveOrClosedClause<T> onReceiveOrClosed(final BiPredicate<T, Boolean> receiver) {
+        return arrived.getReading().onReceiveOrClosed((value, isClosed) -> {
+          writers.wakeAll();
+          return receiver.test(value, isClosed);
+        });
+      }
+
+      @Override
+      public ReceiveClause<T> onReceiveBatch(final int maxN, final Predicate<Batch<T>> receiver) {
+        return arrived.getReading().onReceiveBatch(maxN, batch -> {
+          writers.wakeAll(); // they run once the batch is taken
+          return receiver.test(batch);
+        });
+      }
+
+      @Override
+      public T get() {
+        final T value = arrived.getReading().get();
+        writers.wakeAll();
+        return value;
+      }
+    };
+
+    private void checkOpen() {
+      if (closed) {
+        throw new IllegalStateException("can't put in state: " + ClosingState.Closing);
+      }
+    }
+
+    private void send(final T value) {
+      final long now = scheduler.nanoTime.nanoTime();
+      long sent = now;
+      final long bytesPerSecond = conditions.getBytesPerSecond();
+      if (bytesPerSecond > 0) {
+        // on the wire once everything before it is, and it has been transmitted
+        wireFreeNanos = Math.max(now, wireFreeNanos)
+            + sizeInBytes.applyAsInt(value) * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        sent = wireFreeNanos;
+      }
+      long arrival = sent + conditions.getLatency().nextNanos(random);
+      final double lossProbability = conditions.getLossProbability();
+      // a partition at either end of the trip loses it: when it's sent, or when it would arrive
+      final boolean isLost = lossProbability > 0 && random.nextInt(Latency.STEPS) < lossProbability * Latency.STEPS
+          || !canReach(from, to);
+      final Delivery delivery = new Delivery(value, isLost, conditions.isOrdered());
+      if (delivery.queued) {
+        arrival = Math.max(arrival, lastArrivalNanos);
+        lastArrivalNanos = arrival;
+        ordered.add(delivery);
+      }
+      ++inFlight;
+      scheduler.schedule(delivery, arrival - now, TimeUnit.NANOSECONDS);
+    }
+
+    private void arrive(final Delivery delivery) {
+      --inFlight;
+      if (delivery.isLost || !canReach(from, to)) {
+        ++lost;
+        metricsListener.dropped();
+        writers.wakeAll(); // there's room in the window
+      } else {
+        ++delivered;
+        arrived.getWriting().put(delivery.value);
+      }
+      if (closed && inFlight == 0) {
+        arrived.getWriting().close();
+      }
+    }
+
+    @Override
+    public ChannelReading<T> getReading() {
+      return channelReading;
+    }
+
+    @Override
+    public ChannelWriting<T> getWriting() {
+      return channelWriting;
+    }
+
+    // in flight, and arrived but not yet taken
+    @Override
+    public int size() {
+      return inFlight + arrived.size();
+    }
+
+    @Override
+    public void setMetricsListener(final MetricsListener listener) {
+      metricsListener = listener;
+      arrived.setMetricsListener(listener);
+    }
+
+    /*
+     One message's arrival, scheduled for when it's due. Arrivals due at the same instant run in
+     whatever order the scheduler picks, so on an ordered link each takes the oldest message in
+     flight rather than its own: they're all due by then.
+     */
+    private final class Delivery implements Continuation {
+      final T value;
+      final boolean isLost;
+      final boolean queued;
+
+      Delivery(final T value, final boolean isLost, final boolean queued) {
+        this.value = value;
+        this.isLost = isLost;
+        this.queued = queued;
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void compute(final TaskScheduler ignored) {
+        arrive(queued ? ordered.remove() : this);
+      }
+
+      @Override
+      public String toString() {
+        return "Delivery " + from + " -> " + to + ": " + value;
+      }
+    }
+  }
+}
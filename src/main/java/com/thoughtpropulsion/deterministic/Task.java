@@ -1,5 +1,6 @@
 package com.thoughtpropulsion.deterministic;
 
+import com.thoughtpropulsion.Cancellable;
 import com.thoughtpropulsion.Continuation;
 
 import java.util.Objects;
@@ -7,13 +8,26 @@ import java.util.Objects;
 /**
  * Note: this class has a natural ordering that is inconsistent with equals.
  */
-public class Task implements Comparable<Task> {
+public class Task implements Comparable<Task>, Cancellable {
   public final Continuation continuation;
   public final long readyAsOfNanos;
+  public final long chain; // the coroutine this is a step of: see ChoiceStrategy
+
+  // kept by the TestScheduler that scheduled it (if one did): see TestScheduler.cancel()
+  TestScheduler scheduler;
+  boolean started;
+  boolean cancelled;
+  boolean timer; // in the scheduler's timing wheel
+  TestScheduler.Parked parked; // the last waker it parked with
 
   public Task(final Continuation continuation, final long readyAsOfNanos) {
+    this(continuation, readyAsOfNanos, 0);
+  }
+
+  public Task(final Continuation continuation, final long readyAsOfNanos, final long chain) {
     this.continuation = continuation;
     this.readyAsOfNanos = readyAsOfNanos;
+    this.chain = chain;
   }
 
   @Override
@@ -25,6 +39,11 @@ public class Task implements Comparable<Task> {
     return 0;
   }
 
+  @Override
+  public boolean cancel() {
+    return scheduler != null && scheduler.cancel(this);
+  }
+
   @Override
   public boolean equals(final Object o) {
     if (this == o) {
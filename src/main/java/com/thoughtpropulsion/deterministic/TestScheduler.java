@@ -1,17 +1,22 @@
 package com.thoughtpropulsion.deterministic;
 
+import com.thoughtpropulsion.Cancellable;
 import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.ChannelBroadcast;
+import com.thoughtpropulsion.ChannelDropping;
 import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.LongChannel;
+import com.thoughtpropulsion.MetricsListener;
 import com.thoughtpropulsion.NanoTime;
 import com.thoughtpropulsion.Random;
 import com.thoughtpropulsion.RandomImpl;
 import com.thoughtpropulsion.SelectClause;
 import com.thoughtpropulsion.TaskScheduler;
+import com.thoughtpropulsion.TimingWheel;
+import com.thoughtpropulsion.Waker;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.concurrent.TimeUnit;
 
 import static com.thoughtpropulsion.Continuation.NoOp;
@@ -19,8 +24,50 @@ import static com.thoughtpropulsion.Continuation.NoOp;
 public class TestScheduler implements TaskScheduler {
 
   final NanoTime nanoTime;
-  final Random random;
-  final PriorityQueue<Task> tasks;
+  final ChoiceStrategy choices;
+  final TimingWheel<Task> tasks; // tasks whose time hasn't come yet
+
+  /*
+   Tasks whose time has come, and which may be ready. Tasks that turn out not to be
+   ready are parked: they sit on their channels' wait lists and get put back here when
+   a channel wakes them. Indexed so picking any one is O(1).
+   */
+  final List<Task> ready;
+
+  // due tasks whose continuation can't be woken, so we have to poll isReady()
+  final List<Task> polled;
+
+  private int parkedCount; // tasks waiting for a channel to wake them
+
+  /*
+   Cancelled tasks still in the timing wheel. Cancelling only flags a task: it's dropped when it
+   expires (or is picked, if it's due already). Once cancelled timers are most of the wheel we
+   purge them, so the wheel stays the size of the live ones.
+   */
+  private int cancelledTimers;
+  private static final int MIN_PURGE = 16;
+
+  /*
+   Inline execution: see continueWith(). A task's turn runs at most maxInlineSteps steps after
+   its first; how many exactly is up to the ChoiceStrategy, so where a turn is preempted still
+   depends on the seed. Zero (the default) turns it off, and with it the extra draws: seeds found
+   without inlining keep producing the same interleavings.
+   */
+  private final int maxInlineSteps;
+  private int inlineBudget; // steps this turn may still run inline, BUDGET_UNDRAWN or NOT_IN_TURN
+  private Continuation inlineNext; // the step to run straight after the current one, if any
+
+  private static final int BUDGET_UNDRAWN = -1;
+  private static final int NOT_IN_TURN = -2;
+
+  /*
+   Chains: a task continuing the current one (continueWith()) is in the same chain; any other
+   scheduled task starts a new one. A ChoiceStrategy can tell coroutines apart by them.
+   */
+  private long chains; // chains started so far
+  private long currentChain; // the chain of the task whose turn it is
+
+  private MetricsListener metricsListener;
 
   public TestScheduler(final NanoTime nanoTime) {
     this(nanoTime, 0);
@@ -31,13 +78,31 @@ public class TestScheduler implements TaskScheduler {
   (overriding randomSeedArg)
   */
   public TestScheduler(final NanoTime nanoTime, final int randomSeedArg) {
-    this(nanoTime, getRandom(randomSeedArg));
+    this(nanoTime, randomSeedArg, 0);
+  }
+
+  public TestScheduler(final NanoTime nanoTime, final int randomSeedArg, final int maxInlineSteps) {
+    this(nanoTime, randomSeedArg, maxInlineSteps, ChoiceStrategy.UNIFORM);
   }
 
-  private TestScheduler(final NanoTime nanoTime, final Random random) {
+  public TestScheduler(final NanoTime nanoTime, final int randomSeedArg, final int maxInlineSteps,
+                       final ChoiceStrategy.Factory choices) {
+    this(nanoTime, getRandom(randomSeedArg), maxInlineSteps, choices);
+  }
+
+  private TestScheduler(final NanoTime nanoTime, final Random random, final int maxInlineSteps,
+                        final ChoiceStrategy.Factory choices) {
+    if (maxInlineSteps < 0) {
+      throw new IllegalArgumentException("Illegal inline step budget: " + maxInlineSteps + ". Must not be negative.");
+    }
     this.nanoTime = nanoTime;
-    this.random = random;
-    tasks = new PriorityQueue<>();
+    this.choices = choices.create(random);
+    this.maxInlineSteps = maxInlineSteps;
+    inlineBudget = NOT_IN_TURN;
+    metricsListener = MetricsListener.NONE;
+    tasks = new TimingWheel<>(nanoTime.nanoTime(), task -> task.readyAsOfNanos);
+    ready = new ArrayList<>();
+    polled = new ArrayList<>();
   }
 
   private static RandomImpl getRandom(final int seedArg) {
@@ -52,60 +117,317 @@ public class TestScheduler implements TaskScheduler {
   public void triggerActions() {
     final long now = nanoTime.nanoTime();
 
-    Task head = tasks.peek();
+    // tasks whose time has come are potentially runnable now
+    tasks.expire(now, this::expired);
+
+    // as are polled ones: whatever they wait on may have changed since the last call
+    ready.addAll(polled);
+    polled.clear();
+
+    Task taskToRun = pickReadyTask();
+    while (taskToRun != null) {
+      runTurn(taskToRun);
+
+      // anything might have changed: give polled tasks another look
+      ready.addAll(polled);
+      polled.clear();
+
+      taskToRun = pickReadyTask();
+    }
+  }
+
+  /*
+   Run tasks, moving virtual time on whenever none is ready, straight to when the next one's
+   due, until there are none left to run. Timers that keep rescheduling themselves never run
+   out: use runFor() for those. Needs the scheduler's NanoTime to be a VirtualTime.
+   */
+  public Quiescence runUntilQuiescent() {
+    return runUntil(Long.MAX_VALUE);
+  }
+
+  /*
+   Like runUntilQuiescent(), but stop once virtual time reaches duration from now. Time ends up
+   exactly there, unless the scheduler went quiescent (or blocked on channels) sooner. Polled
+   continuations may be waiting on the time itself, so they get another look once it's there.
+   */
+  public Quiescence runFor(final long duration, final TimeUnit durationUnit) {
+    final long end = nanoTime.nanoTime() + durationUnit.toNanos(duration);
+    final Quiescence quiescence = runUntil(end);
+    if (quiescence == Quiescence.RUNNING || !polled.isEmpty()) {
+      virtualTime().advanceTo(end);
+      return runUntil(end);
+    }
+    return quiescence;
+  }
+
+  private Quiescence runUntil(final long endNanos) {
+    final VirtualTime virtualTime = virtualTime();
+    triggerActions();
+    long next;
+    while ((next = nextDueNanos()) <= endNanos && next != Long.MAX_VALUE) {
+      virtualTime.advanceTo(next);
+      triggerActions();
+    }
+    if (tasks.size() > cancelledTimers) {
+      return Quiescence.RUNNING;
+    }
+    return parkedCount + polled.size() > 0 ? Quiescence.BLOCKED : Quiescence.QUIESCENT;
+  }
 
-    // as long as there is a runnable task now
-    while( head != null && head.readyAsOfNanos <= now) {
-      // grab the list of tasks that are potentially runnable now
-      final List<Task> timeToRun = new ArrayList<>();
+  // due time of the next timer, if any are live: cancelled ones mustn't keep time moving on
+  private long nextDueNanos() {
+    if (cancelledTimers > 0 && cancelledTimers == tasks.size()) {
+      purgeTimers();
+    }
+    return tasks.nextDueNanos();
+  }
+
+  private void expired(final Task task) {
+    task.timer = false;
+    if (task.cancelled) {
+      --cancelledTimers;
+    } else {
+      ready.add(task);
+    }
+  }
+
+  /*
+   Flag task so it never runs. O(1): a timer is dropped when it expires, a ready (or polled)
+   task when it's picked, and a parked one is disarmed, so waking it does nothing.
+   */
+  boolean cancel(final Task task) {
+    if (task.started || task.cancelled) {
+      return false;
+    }
+    task.cancelled = true;
+    if (task.timer) {
+      if (++cancelledTimers >= MIN_PURGE && cancelledTimers > tasks.size() / 2) {
+        purgeTimers();
+      }
+    } else if (task.parked != null) {
+      task.parked.disarm();
+    }
+    return true;
+  }
+
+  private void purgeTimers() {
+    cancelledTimers -= tasks.removeIf(task -> task.cancelled);
+  }
+
+  private VirtualTime virtualTime() {
+    if (!(nanoTime instanceof VirtualTime)) {
+      throw new IllegalStateException("Can't move time on: " + nanoTime + " isn't a VirtualTime");
+    }
+    return (VirtualTime) nanoTime;
+  }
+
+  /*
+   Run continuation, then each step continueWith() hands over for running inline: a trampoline,
+   so a long straight run of steps doesn't grow the stack.
+   */
+  private void runTurn(final Task task) {
+    inlineBudget = BUDGET_UNDRAWN;
+    currentChain = task.chain;
+    task.started = true;
+    try {
+      Continuation step = task.continuation;
       do {
-        tasks.remove(head);
-        timeToRun.add(head);
-        head = tasks.peek();
-      } while (head != null && head.readyAsOfNanos <= now);
-
-      // filter the list further: to tasks that say they are ready
-      final Task[] readyToRun = timeToRun.stream().filter(task -> task.continuation.isReady()).toArray(Task[]::new);
-      if (readyToRun.length > 0) {
-        // randomly pick one task to run
-        final int i = random.nextInt(readyToRun.length);
-        final Task taskToRun = readyToRun[i];
-        taskToRun.continuation.compute(this);
-
-        timeToRun.forEach(task -> {
-          if (task != taskToRun) {
-            tasks.add(task);
-          }
-        });
+        inlineNext = null;
+        metricsListener.ran();
+        step.compute(this);
+        step = inlineNext;
+      } while (step != null);
+    } finally {
+      inlineBudget = NOT_IN_TURN;
+      inlineNext = null;
+    }
+  }
+
+  /*
+   Pick one ready task, as the ChoiceStrategy says, and remove it from the ready set. Tasks picked along the way
+   that turn out not to be ready are parked. Returns null if no task is ready.
+   */
+  private Task pickReadyTask() {
+    while (!ready.isEmpty()) {
+      final int i = choices.chooseTask(ready);
+      final Task task = removeReady(i);
+      if (task.cancelled) {
+        continue; // dropped
       }
-      head = tasks.peek();
+      if (task.continuation.isReady()) {
+        return task;
+      }
+      metricsListener.notReady();
+      park(task);
+    }
+    return null;
+  }
+
+  // O(1) removal: order within the ready set doesn't matter, only that it's deterministic
+  private Task removeReady(final int i) {
+    final int last = ready.size() - 1;
+    final Task task = ready.get(i);
+    ready.set(i, ready.get(last));
+    ready.remove(last);
+    return task;
+  }
+
+  private void park(final Task task) {
+    final Parked parked = new Parked(task);
+    task.parked = parked;
+    ++parkedCount;
+    if (!task.continuation.awaitReadiness(parked)) {
+      // some channel it's waiting on can't wake it: don't let the ones that can
+      parked.disarm();
+      polled.add(task);
+    }
+  }
+
+  class Parked implements Waker {
+    private final Task task;
+    private boolean armed;
+
+    Parked(final Task task) {
+      this.task = task;
+      armed = true;
+    }
+
+    @Override
+    public boolean isArmed() {
+      return armed;
+    }
+
+    @Override
+    public void wake() {
+      if (disarm()) {
+        ready.add(task);
+      }
+    }
+
+    boolean disarm() {
+      if (armed) {
+        armed = false;
+        --parkedCount;
+        return true;
+      }
+      return false;
     }
   }
 
   @Override
-  public void schedule(final Continuation continuation) {
-    schedule(continuation, 0, TimeUnit.SECONDS);
+  public Cancellable schedule(final Continuation continuation) {
+    return schedule(continuation, 0, TimeUnit.SECONDS);
   }
 
   @Override
-  public void schedule(final Continuation continuation, final long afterDelay, final TimeUnit delayUnit) {
-    if (continuation != NoOp) {
-      tasks.add(new Task(continuation, nanoTime.nanoTime() + delayUnit.toNanos(afterDelay)));
+  public Cancellable schedule(final Continuation continuation, final long afterDelay, final TimeUnit delayUnit) {
+    return schedule(continuation, afterDelay, delayUnit, ++chains);
+  }
+
+  private Cancellable schedule(final Continuation continuation, final long afterDelay, final TimeUnit delayUnit,
+                               final long chain) {
+    if (continuation == NoOp) {
+      return Cancellable.NONE;
+    }
+    metricsListener.scheduled();
+    final long now = nanoTime.nanoTime();
+    final Task task = new Task(continuation, now + delayUnit.toNanos(afterDelay), chain);
+    task.scheduler = this;
+    if (task.readyAsOfNanos <= now) {
+      ready.add(task);
+    } else {
+      task.timer = true;
+      tasks.add(task);
+    }
+    return task;
+  }
+
+  /*
+   Run next inline, if inlining is on, it's ready, it's the first continuation the current step
+   hands over, and the turn's budget isn't spent. Anything else is scheduled as usual.
+   */
+  @Override
+  public void continueWith(final Continuation next) {
+    if (inlineBudget == NOT_IN_TURN) {
+      schedule(next);
+      return;
+    }
+    if (maxInlineSteps == 0 || inlineNext != null || next == NoOp) {
+      schedule(next, 0, TimeUnit.SECONDS, currentChain);
+      return;
+    }
+    if (inlineBudget == BUDGET_UNDRAWN) {
+      inlineBudget = choices.chooseInlineSteps(maxInlineSteps);
+    }
+    if (inlineBudget > 0 && next.isReady()) {
+      metricsListener.scheduled();
+      --inlineBudget;
+      inlineNext = next;
+    } else {
+      schedule(next, 0, TimeUnit.SECONDS, currentChain); // preempted
     }
   }
 
   @Override
   public <T> ChannelBiDirectional<T> createBoundedChannel(final Class<T> clazz, final int n) {
-    return new ChannelBounded<>(clazz, n);
+    final ChannelBounded<T> channel = new ChannelBounded<>(clazz, n);
+    channel.setMetricsListener(metricsListener);
+    return channel;
+  }
+
+  @Override
+  public <T> ChannelBiDirectional<T> createUnboundedChannel(final Class<T> clazz) {
+    return createBoundedChannel(clazz, ChannelBounded.UNBOUNDED);
+  }
+
+  @Override
+  public <T> ChannelDropping<T> createSlidingChannel(final Class<T> clazz, final int n) {
+    final ChannelBounded<T> channel = new ChannelBounded<>(clazz, n, true);
+    channel.setMetricsListener(metricsListener);
+    return channel;
+  }
+
+  @Override
+  public <T> ChannelBroadcast<T> createBroadcastChannel(final Class<T> clazz, final int n) {
+    final ChannelBroadcastBounded<T> channel = new ChannelBroadcastBounded<>(clazz, n);
+    channel.setMetricsListener(metricsListener);
+    return channel;
   }
 
+  @Override
+  public LongChannel createLongChannel(final int n) {
+    return new LongChannelBounded(n);
+  }
+
+  /*
+   Gauges: scheduler.pending, the continuations scheduled and not yet run (due or not). Cancelled
+   timers don't count.
+   */
+  @Override
+  public void setMetricsListener(final MetricsListener listener) {
+    metricsListener = listener;
+    listener.gauge("scheduler.pending", () -> ready.size() + polled.size() + tasks.size() - cancelledTimers);
+  }
+
+  /*
+   Count the ready clauses, then run the k-th of them, k as the ChoiceStrategy says. That picks
+   the same clause as collecting the ready ones into an array would, without the array.
+   */
   @Override
   public boolean runReadyClauses(final SelectClause[] clauses) {
-    final SelectClause[] readyClauses = Arrays.stream(clauses)
-      .filter(clause -> clause.getChannel().isReady()).toArray(SelectClause[]::new);
-    assert readyClauses.length > 0 : "Select expression can't run with no ready send/receive clauses";
-    final int i = random.nextInt(readyClauses.length);
-    final SelectClause readyClause = readyClauses[i];
-    return readyClause.getClause().getAsBoolean();
+    int readyCount = 0;
+    for (final SelectClause clause : clauses) {
+      if (clause.isReady()) {
+        ++readyCount;
+      }
+    }
+    assert readyCount > 0 : "Select expression can't run with no ready send/receive clauses";
+    int k = choices.chooseClause(readyCount);
+    for (final SelectClause clause : clauses) {
+      if (clause.isReady() && k-- == 0) {
+        return clause.getClause().getAsBoolean();
+      }
+    }
+    throw new IllegalStateException("Bug in scheduler: a ready clause stopped being ready");
   }
 }
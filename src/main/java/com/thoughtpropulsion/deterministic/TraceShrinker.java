@@ -0,0 +1,94 @@
+package com.thoughtpropulsion.deterministic;
+
+import java.util.Arrays;
+
+/*
+ Delta debugging (Zeller's ddmin) over a failing ScheduleTrace: find a shorter trace that, replayed,
+ still fails the same way. Chunks of choices are removed, halving the chunk size whenever no
+ chunk can go, then each remaining choice is lowered to 0 where that still fails. Each attempt
+ is a full replay, so shrinking a long trace takes many runs, but each is a short one.
+
+ Choices beyond the end of a trace are 0 (see ScheduleTrace.replaying()), so a shrunk trace is
+ the shortest prefix that matters, with 0 wherever the choice doesn't.
+ */
+public class TraceShrinker {
+
+  /*
+   Run the test, its TestScheduler making choices with the given strategy, and throw if it
+   fails.
+   */
+  public interface Replay {
+    void run(ChoiceStrategy.Factory choices) throws Throwable;
+  }
+
+  private final Replay replay;
+
+  public TraceShrinker(final Replay replay) {
+    this.replay = replay;
+  }
+
+  public ScheduleTrace shrink(final ScheduleTrace failing) {
+    final Class<? extends Throwable> failure = failure(failing);
+    if (failure == null) {
+      throw new IllegalArgumentException("Replaying the trace doesn't fail: there's nothing to shrink");
+    }
+    int[] choices = failing.toChoices();
+
+    int chunks = 2;
+    while (choices.length > 0) {
+      final int chunk = (choices.length + chunks - 1) / chunks;
+      boolean removed = false;
+      for (int start = 0; start < choices.length && !removed; start += chunk) {
+        final int[] candidate = without(choices, start, Math.min(start + chunk, choices.length));
+        if (fails(candidate, failure)) {
+          choices = candidate;
+          chunks = Math.max(chunks - 1, 2);
+          removed = true;
+        }
+      }
+      if (!removed) {
+        if (chunk == 1) {
+          break;
+        }
+        chunks = Math.min(chunks * 2, choices.length);
+      }
+    }
+
+    for (int i = 0; i < choices.length; i++) {
+      if (choices[i] != 0) {
+        final int[] candidate = choices.clone();
+        candidate[i] = 0;
+        if (fails(candidate, failure)) {
+          choices = candidate;
+        }
+      }
+    }
+
+    int length = choices.length; // trailing 0s are implied
+    while (length > 0 && choices[length - 1] == 0) {
+      --length;
+    }
+    return ScheduleTrace.of(Arrays.copyOf(choices, length));
+  }
+
+  private boolean fails(final int[] choices, final Class<? extends Throwable> failure) {
+    return failure == failure(ScheduleTrace.of(choices));
+  }
+
+  // the class of what replaying trace throws, or null if it doesn't
+  private Class<? extends Throwable> failure(final ScheduleTrace trace) {
+    try {
+      replay.run(trace.replaying());
+      return null;
+    } catch (final Throwable e) {
+      return e.getClass();
+    }
+  }
+
+  private static int[] without(final int[] choices, final int from, final int to) {
+    final int[] result = new int[choices.length - (to - from)];
+    System.arraycopy(choices, 0, result, 0, from);
+    System.arraycopy(choices, to, result, from, choices.length - to);
+    return result;
+  }
+}
@@ -0,0 +1,31 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Random;
+
+import java.util.List;
+
+/*
+ Draws exactly what TestScheduler always drew from random, so seeds keep their interleavings.
+ */
+public class UniformChoice implements ChoiceStrategy {
+  private final Random random;
+
+  public UniformChoice(final Random random) {
+    this.random = random;
+  }
+
+  @Override
+  public int chooseTask(final List<Task> ready) {
+    return random.nextInt(ready.size());
+  }
+
+  @Override
+  public int chooseClause(final int n) {
+    return random.nextInt(n);
+  }
+
+  @Override
+  public int chooseInlineSteps(final int max) {
+    return random.nextInt(max + 1);
+  }
+}
@@ -15,4 +15,9 @@ public class VirtualTime implements NanoTime {
   public long advance(final long duration, final TimeUnit durationUnit) {
     return nanoTime += durationUnit.toNanos(duration);
   }
+
+  // move on to nanos, if that's later than now
+  public long advanceTo(final long nanos) {
+    return nanoTime = Math.max(nanoTime, nanos);
+  }
 }
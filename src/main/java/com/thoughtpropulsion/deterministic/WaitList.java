@@ -0,0 +1,48 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Waker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ The wakers waiting on one side (reading or writing) of a channel. Wakers are woken in the order
+ they were added so that a given seed always produces the same ready set.
+
+ Not thread-safe: this is for the single-threaded deterministic channels.
+ */
+class WaitList {
+
+  private static final int MIN_PURGE_THRESHOLD = 16;
+
+  private List<Waker> waiting = new ArrayList<>();
+  private List<Waker> waking = new ArrayList<>();
+  private int purgeThreshold = MIN_PURGE_THRESHOLD;
+
+  void add(final Waker waker) {
+    if (waiting.size() >= purgeThreshold) {
+      /*
+       A continuation waiting on several channels is woken by one of them. Its waker is left
+       (disarmed) on the others. Drop those now and then so a channel that rarely changes
+       doesn't accumulate them.
+       */
+      waiting.removeIf(w -> !w.isArmed());
+      purgeThreshold = Math.max(MIN_PURGE_THRESHOLD, 2 * waiting.size());
+    }
+    waiting.add(waker);
+  }
+
+  void wakeAll() {
+    if (waiting.isEmpty()) {
+      return;
+    }
+    // swap lists so wakers can safely re-register while we're waking them
+    final List<Waker> toWake = waiting;
+    waiting = waking;
+    waking = toWake;
+    for (int i = 0; i < toWake.size(); i++) {
+      toWake.get(i).wake();
+    }
+    toWake.clear();
+  }
+}
@@ -0,0 +1,236 @@
+package com.thoughtpropulsion.nio;
+
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.ReceiveOrClosedClause;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/*
+ A socket, as channels: getReading() delivers what arrives, a ByteBuffer per read (each its own,
+ sized to what was read), and what's put to getWriting() is sent, in order.
+
+ Flow control is the channels' own: when nobody takes what's arrived, the inbound channel fills
+ and the loop stops reading the socket, so TCP pushes back on the peer; when the socket can't
+ keep up, the outbound channel fills and onSend() stops being ready.
+
+ Closing getWriting() shuts the socket's output once everything put before the close is sent.
+ The peer shutting its output closes getReading(). The socket is closed once both directions
+ are done, or on an I/O error: then both channels are closed, and getFailure() says why.
+
+ A buffer put to getWriting() is the loop's from then on: it's sent from its position to its
+ limit, and its position moved. Don't touch it again.
+ */
+public final class NioConnection {
+
+  private final NioSelectorLoop loop;
+  private final SocketChannel socket;
+  private final ChannelBiDirectional<ByteBuffer> inbound;
+  private final ChannelBiDirectional<ByteBuffer> outbound;
+  private final ReceiveOrClosedClause<ByteBuffer> takeOutbound; // how the loop reads outbound
+
+  // the loop thread's
+  private SelectionKey key;
+  private boolean connected;
+  private ByteBuffer sending; // taken from outbound and not all written yet
+  private boolean inputDone;
+  private boolean outputDone;
+
+  private volatile IOException failure;
+
+  private final NioSelectorLoop.Registration registration = new NioSelectorLoop.Registration() {
+    @Override
+    public void selected(final int readyOps) {
+      NioConnection.this.selected(readyOps);
+    }
+
+    @Override
+    public void abandon() {
+      fail(null);
+    }
+  };
+
+  NioConnection(final NioSelectorLoop loop, final SocketChannel socket) {
+    this.loop = loop;
+    this.socket = socket;
+    inbound = loop.createChannel(NioSelectorLoop.INBOUND_BUFFERS);
+    outbound = loop.createChannel(NioSelectorLoop.OUTBOUND_BUFFERS);
+    takeOutbound = outbound.getReading().onReceiveOrClosed((buffer, closed) -> {
+      if (closed) {
+        outputDone = true;
+      } else {
+        sending = buffer;
+      }
+      return true;
+    });
+  }
+
+  public ChannelReading<ByteBuffer> getReading() {
+    return inbound.getReading();
+  }
+
+  public ChannelWriting<ByteBuffer> getWriting() {
+    return outbound.getWriting();
+  }
+
+  public SocketChannel getSocket() {
+    return socket;
+  }
+
+  /*
+   The I/O error that closed the connection, if one did.
+   */
+  public IOException getFailure() {
+    return failure;
+  }
+
+  // on the loop thread, from here on
+  void start() {
+    try {
+      key = loop.register(socket, registration);
+      if (socket.isConnectionPending()) {
+        NioSelectorLoop.interest(key, SelectionKey.OP_CONNECT, true);
+      } else {
+        connected();
+      }
+    } catch (final IOException e) {
+      fail(e);
+    }
+  }
+
+  private void selected(final int readyOps) {
+    try {
+      if ((readyOps & SelectionKey.OP_CONNECT) != 0) {
+        if (socket.finishConnect()) {
+          NioSelectorLoop.interest(key, SelectionKey.OP_CONNECT, false);
+          connected();
+        }
+        return;
+      }
+      if ((readyOps & SelectionKey.OP_READ) != 0) {
+        receive();
+      }
+      if ((readyOps & SelectionKey.OP_WRITE) != 0 && key.isValid()) {
+        send();
+      }
+    } catch (final IOException e) {
+      fail(e);
+    }
+  }
+
+  private void connected() throws IOException {
+    connected = true;
+    receive();
+    if (key.isValid()) {
+      send();
+    }
+  }
+
+  /*
+   Read while there's something to read and room for it. Out of room: stop watching the socket
+   until a reader makes some.
+   */
+  private void receive() throws IOException {
+    final ChannelWriting<ByteBuffer> writing = inbound.getWriting();
+    final ByteBuffer readBuffer = loop.readBuffer;
+    for (int i = 0; i < NioSelectorLoop.READS_PER_SELECT; i++) {
+      if (!writing.isReady()) {
+        NioSelectorLoop.interest(key, SelectionKey.OP_READ, false);
+        writing.awaitReadiness(loop.waker(() -> resume(this::receive)));
+        return;
+      }
+      final int n = socket.read(readBuffer);
+      if (n < 0) {
+        NioSelectorLoop.interest(key, SelectionKey.OP_READ, false);
+        inputDone = true;
+        writing.close();
+        closeIfDone();
+        return;
+      }
+      if (n == 0) {
+        break;
+      }
+      readBuffer.flip();
+      writing.put(ByteBuffer.allocate(n).put(readBuffer).flip());
+      readBuffer.clear();
+    }
+    NioSelectorLoop.interest(key, SelectionKey.OP_READ, true);
+  }
+
+  /*
+   Write what's been put, until it's all written or the socket is full. Nothing to write: wait
+   for a put (or the close).
+   */
+  private void send() throws IOException {
+    while (true) {
+      if (sending == null) {
+        if (!takeOutbound.claim()) {
+          NioSelectorLoop.interest(key, SelectionKey.OP_WRITE, false);
+          outbound.getReading().awaitReadiness(loop.waker(() -> resume(this::send)));
+          return;
+        }
+        try {
+          takeOutbound.getClause().getAsBoolean();
+        } finally {
+          takeOutbound.release();
+        }
+        if (outputDone) {
+          NioSelectorLoop.interest(key, SelectionKey.OP_WRITE, false);
+          socket.shutdownOutput();
+          closeIfDone();
+          return;
+        }
+      }
+      socket.write(sending);
+      if (sending.hasRemaining()) {
+        NioSelectorLoop.interest(key, SelectionKey.OP_WRITE, true);
+        return;
+      }
+      sending = null;
+    }
+  }
+
+  private interface Step {
+    void run() throws IOException;
+  }
+
+  // a channel woke the loop: carry on, unless the connection is gone (or not there yet)
+  private void resume(final Step step) {
+    if (connected && key.isValid()) {
+      try {
+        step.run();
+      } catch (final IOException e) {
+        fail(e);
+      }
+    }
+  }
+
+  private void closeIfDone() throws IOException {
+    if (inputDone && outputDone) {
+      key.cancel();
+      socket.close();
+    }
+  }
+
+  private void fail(final IOException e) {
+    if (failure == null) {
+      failure = e;
+    }
+    inputDone = outputDone = true;
+    sending = null;
+    if (key != null) {
+      key.cancel();
+    }
+    try {
+      socket.close();
+    } catch (final IOException ignored) {
+      // closing anyway
+    }
+    inbound.getWriting().close();
+    outbound.getWriting().close(); // so writers' puts fail
+  }
+}
@@ -0,0 +1,307 @@
+package com.thoughtpropulsion.nio;
+
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.MetricsListener;
+import com.thoughtpropulsion.Waker;
+import com.thoughtpropulsion.concurrent.ChannelBoundedLockFree;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ Bridges java.nio sockets to channels: one thread runs one Selector for any number of sockets,
+ and each connection is a pair of channels, bytes in and bytes out (see NioConnection). So
+ continuations wait on sockets with select clauses, like on any other channel, with no thread per
+ connection. The channels are thread-safe: use them under the production schedulers.
+
+ The loop thread does all the socket I/O. It's the writer of each connection's inbound channel
+ and the reader of its outbound one, and waits on them as any continuation would, with a Waker:
+ one that hands the loop a task to run. Other threads never touch the Selector; what they need
+ done is queued for the loop, which is woken to run it.
+ */
+public class NioSelectorLoop implements AutoCloseable {
+
+  // what one read can take: copied out into a buffer of just the size read
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  // reads from one socket per wake-up, so a busy connection doesn't starve the others
+  static final int READS_PER_SELECT = 16;
+
+  // buffers a connection holds in each direction, and connections a listener holds unaccepted
+  static final int INBOUND_BUFFERS = 16;
+  static final int OUTBOUND_BUFFERS = 16;
+  static final int ACCEPT_BACKLOG = 64;
+
+  private final Selector selector;
+  private final Thread thread;
+  private final ConcurrentLinkedQueue<Runnable> tasks;
+  final ByteBuffer readBuffer; // the loop thread's
+  private final boolean blocking;
+  private volatile boolean closed;
+  private volatile MetricsListener metricsListener;
+
+  public NioSelectorLoop() throws IOException {
+    this(false);
+  }
+
+  /*
+   blocking: make the connections' channels blocking, for VirtualThreadScheduler (see
+   ChannelBoundedLockFree).
+   */
+  public NioSelectorLoop(final boolean blocking) throws IOException {
+    this.blocking = blocking;
+    selector = Selector.open();
+    tasks = new ConcurrentLinkedQueue<>();
+    readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    closed = false;
+    metricsListener = MetricsListener.NONE;
+    thread = new Thread(this::run, "puffing-billy-selector");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /*
+   Connect to remote. The connection's outbound channel takes puts straight away: they're sent
+   once it's connected. If connecting fails, see NioConnection.getFailure().
+   */
+  public NioConnection connect(final SocketAddress remote) throws IOException {
+    final SocketChannel socket = SocketChannel.open();
+    try {
+      socket.configureBlocking(false);
+      socket.connect(remote);
+    } catch (final IOException e) {
+      socket.close();
+      throw e;
+    }
+    return register(socket);
+  }
+
+  /*
+   Take over socket: connected, or connecting. It's made non-blocking.
+   */
+  public NioConnection register(final SocketChannel socket) throws IOException {
+    checkOpen();
+    socket.configureBlocking(false);
+    final NioConnection connection = new NioConnection(this, socket);
+    execute(connection::start);
+    return connection;
+  }
+
+  /*
+   Accept connections on server (bound already), and deliver them on the channel returned. While
+   that channel is full, accepting stops and the OS's backlog fills. The channel is closed if
+   accepting fails, or this loop is closed.
+   */
+  public ChannelReading<NioConnection> listen(final ServerSocketChannel server) throws IOException {
+    checkOpen();
+    server.configureBlocking(false);
+    final Listener listener = new Listener(server);
+    execute(listener::start);
+    return listener.accepted.getReading();
+  }
+
+  /*
+   Report connections' channels' events to listener: connections made from now on.
+   */
+  public void setMetricsListener(final MetricsListener listener) {
+    metricsListener = listener;
+  }
+
+  /*
+   Stop the loop, closing every socket it holds. Connections' channels are closed: readers see
+   the close, writers' puts fail.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    closed = true;
+    selector.wakeup();
+    if (Thread.currentThread() != thread) {
+      thread.join();
+    }
+  }
+
+  <T> ChannelBiDirectional<T> createChannel(final int bound) {
+    final ChannelBiDirectional<T> channel = new ChannelBoundedLockFree<>(bound, blocking);
+    channel.setMetricsListener(metricsListener);
+    return channel;
+  }
+
+  SelectionKey register(final SocketChannel socket, final Registration registration) throws ClosedChannelException {
+    return socket.register(selector, 0, registration);
+  }
+
+  /*
+   Run task on the loop thread: now, if that's this thread.
+   */
+  void execute(final Runnable task) {
+    if (Thread.currentThread() == thread) {
+      task.run();
+    } else {
+      tasks.add(task);
+      selector.wakeup();
+    }
+  }
+
+  /*
+   A waker that runs onWake on the loop thread: for the loop to wait on a channel.
+   */
+  Waker waker(final Runnable onWake) {
+    return new LoopWaker(onWake);
+  }
+
+  static void interest(final SelectionKey key, final int op, final boolean on) {
+    final int ops = key.interestOps();
+    final int wanted = on ? ops | op : ops & ~op;
+    if (wanted != ops) {
+      key.interestOps(wanted);
+    }
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("NioSelectorLoop is closed");
+    }
+  }
+
+  private void run() {
+    try {
+      while (!closed) {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+          task.run();
+        }
+        selector.select();
+        final Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+        while (selected.hasNext()) {
+          final SelectionKey key = selected.next();
+          selected.remove();
+          if (key.isValid()) {
+            ((Registration) key.attachment()).selected(key.readyOps());
+          }
+        }
+      }
+    } catch (final Throwable t) {
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+    } finally {
+      closed = true;
+      for (final SelectionKey key : selector.keys()) {
+        ((Registration) key.attachment()).abandon();
+      }
+      try {
+        selector.close();
+      } catch (final IOException e) {
+        // nothing more to do with it
+      }
+    }
+  }
+
+  /*
+   What a SelectionKey is attached to. Called on the loop thread.
+   */
+  interface Registration {
+    void selected(int readyOps);
+
+    // the loop is stopping
+    void abandon();
+  }
+
+  private final class LoopWaker extends AtomicBoolean implements Waker {
+    private final Runnable onWake;
+
+    LoopWaker(final Runnable onWake) {
+      super(true);
+      this.onWake = onWake;
+    }
+
+    @Override
+    public boolean isArmed() {
+      return get();
+    }
+
+    @Override
+    public void wake() {
+      if (compareAndSet(true, false) && !closed) {
+        execute(onWake);
+      }
+    }
+  }
+
+  private final class Listener implements Registration {
+    private final ServerSocketChannel server;
+    final ChannelBiDirectional<NioConnection> accepted;
+    private SelectionKey key;
+
+    Listener(final ServerSocketChannel server) {
+      this.server = server;
+      accepted = createChannel(ACCEPT_BACKLOG);
+    }
+
+    void start() {
+      try {
+        key = server.register(selector, 0, this);
+        accept();
+      } catch (final IOException e) {
+        abandon();
+      }
+    }
+
+    @Override
+    public void selected(final int readyOps) {
+      accept();
+    }
+
+    private void accept() {
+      final ChannelWriting<NioConnection> writing = accepted.getWriting();
+      try {
+        while (true) {
+          if (!writing.isReady()) {
+            interest(key, SelectionKey.OP_ACCEPT, false);
+            writing.awaitReadiness(waker(this::resume)); // a reader makes room
+            return;
+          }
+          final SocketChannel socket = server.accept();
+          if (socket == null) {
+            interest(key, SelectionKey.OP_ACCEPT, true);
+            return;
+          }
+          socket.configureBlocking(false);
+          final NioConnection connection = new NioConnection(NioSelectorLoop.this, socket);
+          connection.start();
+          writing.put(connection);
+        }
+      } catch (final IOException e) {
+        abandon();
+      }
+    }
+
+    private void resume() {
+      if (key.isValid()) {
+        accept();
+      }
+    }
+
+    @Override
+    public void abandon() {
+      if (key != null) {
+        key.cancel();
+      }
+      try {
+        server.close();
+      } catch (final IOException e) {
+        // closing anyway
+      }
+      accepted.getWriting().close();
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.thoughtpropulsion;
+
+import com.thoughtpropulsion.deterministic.TestScheduler;
+import com.thoughtpropulsion.deterministic.VirtualTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchPipelineTest {
+
+  private static final int N = 10_000;
+
+  private TestScheduler scheduler;
+
+  @BeforeEach
+  public void before() {
+    scheduler = new TestScheduler(new VirtualTime());
+  }
+
+  /*
+   producer -> relay -> consumer, each moving elements in batches. Everything arrives, in order,
+   in far fewer clause activations than there are elements.
+   */
+  @Test
+  public void relayInBatches() {
+    final ChannelBiDirectional<Integer> source = scheduler.createBoundedChannel(Integer.class, 64);
+    final ChannelBiDirectional<Integer> sink = scheduler.createBoundedChannel(Integer.class, 64);
+
+    final AtomicInteger produced = new AtomicInteger(0);
+    final List<Integer> producing = new ArrayList<>();
+    producing.add(produced.incrementAndGet());
+    scheduler.schedule(whileSelect(source.getWriting().onSendBatch(producing, writing -> {
+      while (producing.size() < 100 && produced.get() < N) {
+        producing.add(produced.incrementAndGet());
+      }
+      if (producing.isEmpty()) {
+        writing.close();
+        return false;
+      }
+      return true;
+    })));
+
+    final AtomicInteger activations = new AtomicInteger(0);
+    final List<Integer> relaying = new ArrayList<>();
+    scheduler.schedule(whileSelect(
+      source.getReading().onReceiveBatch(32, batch -> {
+        activations.incrementAndGet();
+        for (int i = 0; i < batch.size(); i++) {
+          relaying.add(batch.get(i));
+        }
+      }),
+      sink.getWriting().onSendBatch(relaying)));
+
+    final AtomicInteger consumed = new AtomicInteger(0);
+    scheduler.schedule(whileSelect(sink.getReading().onReceiveBatch(32, batch -> {
+      for (int i = 0; i < batch.size(); i++) {
+        assertThat(batch.get(i)).isEqualTo(consumed.incrementAndGet());
+      }
+      return consumed.get() < N;
+    })));
+
+    scheduler.triggerActions();
+
+    assertThat(consumed.get()).isEqualTo(N);
+    assertThat(activations.get()).isLessThan(N / 4);
+  }
+}
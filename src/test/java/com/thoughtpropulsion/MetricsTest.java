@@ -0,0 +1,90 @@
+package com.thoughtpropulsion;
+
+import com.thoughtpropulsion.deterministic.TestScheduler;
+import com.thoughtpropulsion.deterministic.VirtualTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.thoughtpropulsion.ControlStructures.sequence;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricsTest {
+
+  private VirtualTime virtualTime;
+  private TestScheduler scheduler;
+  private Metrics metrics;
+
+  @BeforeEach
+  public void before() {
+    virtualTime = new VirtualTime();
+    scheduler = new TestScheduler(virtualTime);
+    metrics = new Metrics(virtualTime);
+    scheduler.setMetricsListener(metrics);
+  }
+
+  @Test
+  public void countsContinuations() {
+    scheduler.schedule(sequence(statement(() -> {}), statement(() -> {}), statement(() -> {})));
+    assertThat(metrics.snapshot().get("scheduler.pending")).isEqualTo(1);
+
+    scheduler.triggerActions();
+
+    final MetricsSnapshot snapshot = metrics.snapshot();
+    assertThat(snapshot.get(Metrics.SCHEDULED)).isEqualTo(3);
+    assertThat(snapshot.get(Metrics.RAN)).isEqualTo(3);
+    assertThat(snapshot.get(Metrics.NOT_READY)).isEqualTo(0);
+    assertThat(snapshot.get("scheduler.pending")).isEqualTo(0);
+  }
+
+  @Test
+  public void countsContinuationsThatWerentReady() {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    scheduler.schedule(whileSelect(channel.getReading().onReceive(value -> false)));
+    scheduler.triggerActions();
+    assertThat(metrics.snapshot().get(Metrics.NOT_READY)).isEqualTo(1);
+
+    channel.getWriting().put(1);
+    scheduler.triggerActions();
+    assertThat(metrics.snapshot().get(Metrics.RAN)).isEqualTo(1);
+  }
+
+  @Test
+  public void countsFullAndEmptyChannels() {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    metrics.gauge("channel.occupancy", channel::size);
+
+    assertThatThrownBy(() -> channel.getReading().get()).isInstanceOf(IllegalStateException.class);
+    channel.getWriting().put(1);
+    assertThatThrownBy(() -> channel.getWriting().put(2)).isInstanceOf(IllegalStateException.class);
+
+    final MetricsSnapshot snapshot = metrics.snapshot();
+    assertThat(snapshot.get(Metrics.FOUND_EMPTY)).isEqualTo(1);
+    assertThat(snapshot.get(Metrics.FOUND_FULL)).isEqualTo(1);
+    assertThat(snapshot.get("channel.occupancy")).isEqualTo(1);
+  }
+
+  @Test
+  public void ratesAreInVirtualTime() {
+    final AtomicInteger ran = new AtomicInteger(0);
+    final MetricsSnapshot start = metrics.snapshot();
+    for (int i = 0; i < 100; i++) {
+      scheduler.schedule(statement(ran::incrementAndGet), 1, TimeUnit.SECONDS);
+    }
+    virtualTime.advance(2, TimeUnit.SECONDS);
+    scheduler.triggerActions();
+
+    assertThat(ran.get()).isEqualTo(100);
+    assertThat(metrics.snapshot().perSecond(Metrics.RAN, start)).isEqualTo(50.0);
+  }
+
+  @Test
+  public void unknownMetricThrows() {
+    assertThatThrownBy(() -> metrics.snapshot().get("no.such.metric")).isInstanceOf(IllegalArgumentException.class);
+  }
+}
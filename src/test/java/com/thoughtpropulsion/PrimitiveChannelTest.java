@@ -0,0 +1,82 @@
+package com.thoughtpropulsion;
+
+import com.thoughtpropulsion.deterministic.TestScheduler;
+import com.thoughtpropulsion.deterministic.VirtualTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.thoughtpropulsion.ControlStructures.select;
+import static com.thoughtpropulsion.ControlStructures.whileLoop;
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrimitiveChannelTest {
+
+  private TestScheduler scheduler;
+
+  @BeforeEach
+  public void before() {
+    scheduler = new TestScheduler(new VirtualTime());
+  }
+
+  @Test
+  public void intStream() {
+    final int n = 1_000;
+    final IntChannel channel = scheduler.createIntChannel(4);
+    final AtomicInteger next = new AtomicInteger(0);
+    final AtomicLong sum = new AtomicLong(0);
+    final AtomicBoolean closed = new AtomicBoolean(false);
+
+    scheduler.schedule(
+      whileLoop(() -> next.get() < n,
+        select(channel.getWriting().onSend(writing -> {
+          writing.put(next.incrementAndGet());
+          if (next.get() == n) {
+            writing.close();
+          }
+          return true;
+        }))));
+    scheduler.schedule(
+      whileSelect(channel.getReading().onReceiveOrClosed(
+        value -> {sum.addAndGet(value); return true;},
+        () -> {closed.set(true); return false;})));
+
+    scheduler.triggerActions();
+
+    assertThat(sum.get()).isEqualTo((long) n * (n + 1) / 2);
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test
+  public void intsKeepTheirSign() {
+    final IntChannel channel = scheduler.createIntChannel(2);
+    channel.getWriting().put(Integer.MIN_VALUE);
+    channel.getWriting().put(-1);
+    assertThat(channel.getReading().get()).isEqualTo(Integer.MIN_VALUE);
+    assertThat(channel.getReading().get()).isEqualTo(-1);
+  }
+
+  @Test
+  public void doublesRoundTripExactly() {
+    final double[] values = {0.1, -0.0, Double.NaN, Double.NEGATIVE_INFINITY, Double.MIN_VALUE};
+    final DoubleChannel channel = scheduler.createDoubleChannel(values.length);
+    final List<Double> received = new ArrayList<>();
+
+    for (final double value : values) {
+      channel.getWriting().put(value);
+    }
+    scheduler.schedule(whileSelect(channel.getReading().onReceive(value -> {
+      received.add(value);
+      return received.size() < values.length;
+    })));
+    scheduler.triggerActions();
+
+    assertThat(received).containsExactly(0.1, -0.0, Double.NaN, Double.NEGATIVE_INFINITY, Double.MIN_VALUE);
+  }
+}
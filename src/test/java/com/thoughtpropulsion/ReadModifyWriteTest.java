@@ -10,7 +10,6 @@ import java.util.function.Supplier;
 import static com.thoughtpropulsion.ControlStructures.select;
 import static com.thoughtpropulsion.ControlStructures.sequence;
 import static com.thoughtpropulsion.ControlStructures.statement;
-import static com.thoughtpropulsion.ControlStructures.whileLoop;
 import static com.thoughtpropulsion.ControlStructures.whileSelect;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -42,17 +41,26 @@ public class ReadModifyWriteTest {
     final ChannelBiDirectional<Integer> writeRegister =
       scheduler.createBoundedChannel(Integer.class, 1);
 
-    scheduler.schedule(newRegister(readRegister.getReading(), writeRegister.getReading()));
+    /*
+     channel acknowledging each write, once applied. Without it a mutator's next read request can
+     reach the register before its write does, and the register answers with the old value.
+     */
+    final ChannelBiDirectional<Integer> writeAcks =
+      scheduler.createBoundedChannel(Integer.class, 1);
+
+    scheduler.schedule(newRegister(readRegister.getReading(), writeRegister.getReading(), writeAcks.getWriting()));
 
     for (int i = 0; i < NUM_MUTATORS; ++i)
-      scheduler.schedule(newMutator(readRegister.getWriting(), writeRegister.getWriting(), i, scheduler));
+      scheduler.schedule(newMutator(readRegister.getWriting(), writeRegister.getWriting(), writeAcks.getReading(),
+        i, scheduler));
 
     scheduler.triggerActions();
   }
 
   private Continuation newRegister(
     final ChannelReading<ChannelWriting> readRequests,
-    final ChannelReading<Integer> writeValues) {
+    final ChannelReading<Integer> writeValues,
+    final ChannelWriting<Integer> writeAcks) {
     return
       // introducing the Supplier around whileSelect() is a convenient way of introducing variables
       new Supplier<Continuation>() {
@@ -72,6 +80,7 @@ public class ReadModifyWriteTest {
                 log("setting register: " + newValue);
                 assertThat(newValue).as("lost update").isEqualTo(value + 1);
                 value = newValue;
+                scheduler.schedule(select(writeAcks.onSend(() -> {writeAcks.put(newValue);})));
               }));
         }
 
@@ -83,6 +92,7 @@ public class ReadModifyWriteTest {
 
   private Continuation newMutator(final ChannelWriting<ChannelWriting> readRequests,
                                   final ChannelWriting<Integer> writeValues,
+                                  final ChannelReading<Integer> writeAcks,
                                   final int mutatorId,
                                   final TaskScheduler scheduler) {
     return
@@ -94,10 +104,30 @@ public class ReadModifyWriteTest {
         final ChannelBiDirectional<Integer> readResponses =
           scheduler.createBoundedChannel(Integer.class, 1);
 
+        /*
+         One iteration is a flat sequence that ends by starting the next. whileLoop(condition,
+         sequence(...)) would start the next iteration as soon as this one's first step had run,
+         so the next read request could overtake this iteration's write.
+         */
         @Override
         public Continuation get() {
-          return whileLoop( () -> iteration < NUM_TOTAL_MUTATIONS,
-            sequence(
+          return new Continuation() {
+            @Override
+            public boolean isReady() {
+              return true;
+            }
+
+            @Override
+            public void compute(final TaskScheduler scheduler) {
+              if (iteration < NUM_TOTAL_MUTATIONS) {
+                scheduler.continueWith(iteration(this));
+              }
+            }
+          };
+        }
+
+        private Continuation iteration(final Continuation next) {
+          return sequence(
               // send read request
               select( readRequests.onSend( () -> {
                 log("requesting new value");
@@ -114,8 +144,12 @@ public class ReadModifyWriteTest {
                 log("writing: " + updateValue);
                 writeValues.put(updateValue);
               })),
-              statement( () -> ++iteration)
-            ));
+              // wait for the register to have applied it
+              select(writeAcks.onReceive( ackedValue -> {
+                log("write acknowledged: " + ackedValue);
+              })),
+              statement( () -> ++iteration),
+              next);
         }
 
         private void log(final String msg) {
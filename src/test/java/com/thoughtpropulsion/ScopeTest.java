@@ -0,0 +1,117 @@
+package com.thoughtpropulsion;
+
+import com.thoughtpropulsion.deterministic.Quiescence;
+import com.thoughtpropulsion.deterministic.TestScheduler;
+import com.thoughtpropulsion.deterministic.VirtualTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.select;
+import static com.thoughtpropulsion.ControlStructures.sequence;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static com.thoughtpropulsion.ControlStructures.whileLoop;
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScopeTest {
+
+  private TestScheduler scheduler;
+
+  @BeforeEach
+  public void before() {
+    scheduler = new TestScheduler(new VirtualTime());
+  }
+
+  @Test
+  public void completesWhenEveryStepHasRun() {
+    final int[] iterations = {0};
+    final Scope scope = Scope.launch(scheduler,
+      whileLoop(() -> iterations[0] < 5, statement(() -> {++iterations[0];})));
+    final boolean[] noticed = {false};
+    scheduler.schedule(select(scope.onComplete(() -> {noticed[0] = true;})));
+
+    assertThat(scope.isComplete()).isFalse();
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+
+    assertThat(iterations[0]).isEqualTo(5);
+    assertThat(scope.isComplete()).isTrue();
+    assertThat(noticed[0]).isTrue();
+  }
+
+  @Test
+  public void cancelDropsAnAbandonedSelect() {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    final Scope scope = Scope.launch(scheduler, whileSelect(channel.getReading().onReceive(value -> {})));
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.BLOCKED);
+
+    scope.cancel();
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(scope.isComplete()).isTrue();
+    channel.getWriting().put(1);
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(channel.size()).isEqualTo(1); // nobody's reading it any more
+  }
+
+  @Test
+  public void aRunningStepFinishesButSchedulesNothingMore() {
+    final int[] iterations = {0};
+    final Scope[] scope = {null};
+    scope[0] = Scope.launch(scheduler, whileLoop(() -> true, statement(() -> {
+      if (++iterations[0] == 10) {
+        scope[0].cancel();
+      }
+    })));
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+
+    assertThat(iterations[0]).isEqualTo(10);
+    assertThat(scope[0].isComplete()).isTrue();
+  }
+
+  @Test
+  public void cancelledTimersNeverRun() {
+    final boolean[] ran = {false};
+    final Scope scope = Scope.launch(scheduler, statement(() -> {}));
+    final Scope child = scope.launchChild(statement(() -> {}));
+    child.launch(statement(() -> {ran[0] = true;}), 1, TimeUnit.HOURS);
+
+    child.cancel();
+
+    assertThat(child.isComplete()).isTrue(); // at once: it needn't wait for the timer
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(ran[0]).isFalse();
+    assertThat(scope.isComplete()).isTrue();
+  }
+
+  @Test
+  public void parentWaitsForItsChildrenAndCancelsThem() {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    final Scope parent = Scope.launch(scheduler, statement(() -> {}));
+    final Scope child = parent.launchChild(
+      sequence(statement(() -> {}), select(channel.getReading().onReceive(value -> {}))));
+    final Scope grandchild = child.launchChild(select(channel.getReading().onReceive(value -> {})));
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.BLOCKED);
+    assertThat(parent.isComplete()).isFalse();
+
+    parent.cancel();
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(grandchild.isCancelled()).isTrue();
+    assertThat(grandchild.isComplete()).isTrue();
+    assertThat(child.isComplete()).isTrue();
+    assertThat(parent.isComplete()).isTrue();
+  }
+
+  @Test
+  public void nothingCanBeLaunchedOnceComplete() {
+    final Scope scope = Scope.launch(scheduler, statement(() -> {}));
+    scheduler.runUntilQuiescent();
+
+    assertThatThrownBy(() -> scope.launch(statement(() -> {}))).isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -0,0 +1,105 @@
+package com.thoughtpropulsion;
+
+import com.thoughtpropulsion.concurrent.VirtualThreadScheduler;
+import com.thoughtpropulsion.concurrent.WorkStealingScheduler;
+import com.thoughtpropulsion.deterministic.Quiescence;
+import com.thoughtpropulsion.deterministic.TestScheduler;
+import com.thoughtpropulsion.deterministic.VirtualTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.onTimeout;
+import static com.thoughtpropulsion.ControlStructures.select;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeoutTest {
+
+  private VirtualTime virtualTime;
+  private TestScheduler scheduler;
+
+  @BeforeEach
+  public void before() {
+    virtualTime = new VirtualTime();
+    scheduler = new TestScheduler(virtualTime);
+  }
+
+  @Test
+  public void firesAfterTheDelay() {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    final long[] timedOutAt = {-1};
+    scheduler.schedule(select(
+      channel.getReading().onReceive(value -> {}),
+      onTimeout(scheduler, 2, TimeUnit.SECONDS, () -> {timedOutAt[0] = virtualTime.nanoTime();})));
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+
+    assertThat(timedOutAt[0]).isEqualTo(TimeUnit.SECONDS.toNanos(2));
+  }
+
+  @Test
+  public void anotherClauseFiringFirstDisarmsIt() {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    final boolean[] timedOut = {false};
+    final int[] received = {0};
+    scheduler.schedule(select(
+      channel.getReading().onReceive(value -> {received[0] = value;}),
+      onTimeout(scheduler, 2, TimeUnit.SECONDS, () -> {timedOut[0] = true;})));
+    scheduler.schedule(statement(() -> channel.getWriting().put(42)), 1, TimeUnit.SECONDS);
+
+    scheduler.runFor(1, TimeUnit.MINUTES);
+
+    assertThat(received[0]).isEqualTo(42);
+    assertThat(timedOut[0]).isFalse();
+  }
+
+  @Test
+  public void eachWhileSelectIterationWaitsAfresh() {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    for (int i = 1; i <= 3; i++) {
+      final int value = i;
+      scheduler.schedule(statement(() -> channel.getWriting().put(value)), i, TimeUnit.SECONDS);
+    }
+    final List<Integer> received = new ArrayList<>();
+    final long[] idleAt = {-1};
+    scheduler.schedule(whileSelect(
+      channel.getReading().onReceive(value -> {received.add(value);}),
+      onTimeout(scheduler, 5, TimeUnit.SECONDS, () -> {
+        idleAt[0] = virtualTime.nanoTime();
+        return false; // idle too long: stop
+      })));
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+
+    assertThat(received).containsExactly(1, 2, 3);
+    assertThat(idleAt[0]).isEqualTo(TimeUnit.SECONDS.toNanos(3 + 5));
+  }
+
+  @Test
+  public void firesUnderTheProductionSchedulers() throws InterruptedException {
+    try (final WorkStealingScheduler workStealing = new WorkStealingScheduler(2)) {
+      checkRealTimeout(workStealing);
+    }
+    try (final VirtualThreadScheduler virtualThreads = new VirtualThreadScheduler()) {
+      checkRealTimeout(virtualThreads);
+    }
+  }
+
+  private static void checkRealTimeout(final TaskScheduler scheduler) throws InterruptedException {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    final CountDownLatch timedOut = new CountDownLatch(1);
+    final long start = System.nanoTime();
+    scheduler.schedule(select(
+      channel.getReading().onReceive(value -> {}),
+      onTimeout(scheduler, 20, TimeUnit.MILLISECONDS, timedOut::countDown)));
+
+    assertThat(timedOut.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+  }
+}
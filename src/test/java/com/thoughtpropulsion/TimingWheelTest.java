@@ -0,0 +1,156 @@
+package com.thoughtpropulsion;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimingWheelTest {
+
+  private TimingWheel<long[]> wheel;
+  private List<Long> expired;
+
+  @BeforeEach
+  public void before() {
+    wheel = new TimingWheel<>(0, timer -> timer[0]);
+    expired = new ArrayList<>();
+  }
+
+  @Test
+  public void holdsFutureElement() {
+    wheel.add(timer(10));
+    wheel.expire(9, this::record);
+    assertThat(expired).isEmpty();
+    assertThat(wheel.size()).isEqualTo(1);
+    wheel.expire(10, this::record);
+    assertThat(expired).containsExactly(10L);
+    assertThat(wheel.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void expiresOverdueElementImmediately() {
+    wheel.expire(1_000, this::record);
+    wheel.add(timer(3));
+    wheel.expire(1_000, this::record);
+    assertThat(expired).containsExactly(3L);
+  }
+
+  @Test
+  public void expiresInDueOrderAcrossLevels() {
+    wheel.add(timer(5_000_000_000L));
+    wheel.add(timer(70));
+    wheel.add(timer(1));
+    wheel.add(timer(4_097));
+    wheel.expire(Long.MAX_VALUE, this::record);
+    assertThat(expired).containsExactly(1L, 70L, 4_097L, 5_000_000_000L);
+  }
+
+  @Test
+  public void sameInstantIsDeterministic() {
+    final List<long[]> first = new ArrayList<>();
+    final List<long[]> second = new ArrayList<>();
+    final long[][] timers = {timer(100), timer(100), timer(100)};
+
+    final TimingWheel<long[]> wheel1 = new TimingWheel<>(0, timer -> timer[0]);
+    final TimingWheel<long[]> wheel2 = new TimingWheel<>(0, timer -> timer[0]);
+    for (final TimingWheel<long[]> w : List.of(wheel1, wheel2)) {
+      w.add(timers[0]);
+      w.expire(64, timer -> {});
+      w.add(timers[1]);
+      w.add(timers[2]);
+    }
+    wheel1.expire(100, first::add);
+    wheel2.expire(100, second::add);
+
+    assertThat(first).hasSize(3);
+    assertThat(first).isEqualTo(second);
+  }
+
+  @Test
+  public void nextDueNanos() {
+    assertThat(wheel.nextDueNanos()).isEqualTo(Long.MAX_VALUE);
+    wheel.add(timer(900));
+    wheel.add(timer(130));
+    wheel.add(timer(150));
+    assertThat(wheel.nextDueNanos()).isEqualTo(130L);
+    wheel.expire(140, this::record);
+    assertThat(wheel.nextDueNanos()).isEqualTo(150L);
+  }
+
+  @Test
+  public void expiredMayAddMore() {
+    wheel.add(timer(10));
+    wheel.expire(20, timer -> {
+      record(timer);
+      if (timer[0] == 10) {
+        wheel.add(timer(15));
+        wheel.add(timer(25));
+      }
+    });
+    assertThat(expired).containsExactly(10L, 15L);
+    assertThat(wheel.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void negativeOrigin() {
+    // System.nanoTime() may be negative
+    wheel = new TimingWheel<>(-1_000, timer -> timer[0]);
+    wheel.add(timer(-500));
+    wheel.expire(-501, this::record);
+    assertThat(expired).isEmpty();
+    wheel.expire(-500, this::record);
+    assertThat(expired).containsExactly(-500L);
+  }
+
+  @Test
+  public void removeIfPurgesEveryLevel() {
+    wheel.add(timer(3));
+    wheel.add(timer(5_000));
+    wheel.add(timer(6_000_000));
+    wheel.add(timer(7_000_000));
+    wheel.expire(4, this::record);
+    wheel.add(timer(2)); // overdue
+
+    assertThat(wheel.removeIf(timer -> timer[0] != 7_000_000)).isEqualTo(3);
+    assertThat(wheel.size()).isEqualTo(1);
+    assertThat(wheel.nextDueNanos()).isEqualTo(7_000_000);
+
+    wheel.expire(Long.MAX_VALUE / 2, this::record);
+    assertThat(expired).containsExactly(3L, 7_000_000L);
+  }
+
+  @Test
+  public void agreesWithPriorityQueue() {
+    final java.util.Random random = new java.util.Random(42);
+    final PriorityQueue<Long> reference = new PriorityQueue<>();
+    final List<Long> expected = new ArrayList<>();
+    long now = 0;
+    for (int i = 0; i < 20_000; i++) {
+      if (random.nextInt(3) == 0) {
+        now += random.nextInt(1 << random.nextInt(30));
+        wheel.expire(now, this::record);
+        while (!reference.isEmpty() && reference.peek() <= now) {
+          expected.add(reference.remove());
+        }
+      } else {
+        final long due = now + random.nextInt(1 << random.nextInt(30));
+        wheel.add(timer(due));
+        reference.add(due);
+      }
+    }
+    assertThat(expired).isEqualTo(expected);
+    assertThat(wheel.size()).isEqualTo(reference.size());
+  }
+
+  private void record(final long[] timer) {
+    expired.add(timer[0]);
+  }
+
+  private static long[] timer(final long due) {
+    return new long[]{due};
+  }
+}
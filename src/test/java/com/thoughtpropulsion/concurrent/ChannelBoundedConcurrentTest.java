@@ -0,0 +1,214 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.ReceiveOrClosedClause;
+import com.thoughtpropulsion.SelectClause;
+import com.thoughtpropulsion.Topology;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.thoughtpropulsion.concurrent.ChannelBoundedConcurrent.EMPTY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+ Tests shared by the thread-safe channels. Subclasses say which one.
+ */
+abstract class ChannelBoundedConcurrentTest {
+
+  private ChannelBoundedConcurrent<Integer> channel1;
+  private ChannelBoundedConcurrent<Integer> channel2;
+
+  abstract ChannelBoundedConcurrent<Integer> create(int bound);
+
+  // how many threads the channel supports on each side
+  Topology topology() {
+    return Topology.MPMC;
+  }
+
+  @BeforeEach
+  public void beforeEach() {
+    channel1 = create(1);
+    channel2 = create(2);
+  }
+
+  @Test
+  public void mustNotBeSynchronous() {
+    assertThatThrownBy(() -> create(0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void canPutAndGet() {
+    channel1.getWriting().put(1);
+    assertThat(channel1.getReading().get()).isEqualTo(1);
+  }
+
+  @Test
+  public void overflowThrows() {
+    channel1.getWriting().put(1);
+    assertThat(channel1.getWriting().isReady()).isFalse();
+    assertThatThrownBy(() -> channel1.getWriting().put(2)).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void underflowThrows() {
+    assertThat(channel1.getReading().isReady()).isFalse();
+    assertThatThrownBy(() -> channel1.getReading().get()).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void wraps2() {
+    final ChannelWriting<Integer> writing = channel2.getWriting();
+    writing.put(1);
+    writing.put(2);
+    final ChannelReading<Integer> reading = channel2.getReading();
+    assertThat(reading.get()).isEqualTo(1);
+    writing.put(3);
+    assertThat(reading.get()).isEqualTo(2);
+    writing.put(4);
+    assertThat(reading.get()).isEqualTo(3);
+    assertThat(reading.get()).isEqualTo(4);
+    assertThatThrownBy(() -> reading.get()).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void close() {
+    final ChannelWriting<Integer> writing = channel2.getWriting();
+    writing.put(1);
+    writing.close();
+    assertThat(writing.isReady()).isFalse();
+    assertThatThrownBy(() -> writing.put(2)).isInstanceOf(IllegalStateException.class);
+
+    final List<Integer> values = new ArrayList<>();
+    final List<Boolean> closedResults = new ArrayList<>();
+    final ReceiveOrClosedClause<Integer> clause =
+      channel2.getReading().onReceiveOrClosed((value, isClosed) -> {
+        values.add(value);
+        closedResults.add(isClosed);
+        return true;
+      });
+
+    assertThat(run(clause)).isTrue();
+    assertThat(run(clause)).isTrue();
+    assertThat(channel2.getReading().isReady()).isFalse();
+    assertThat(claim(clause)).isFalse();
+
+    assertThat(values.get(0)).isEqualTo(1);
+    assertThat(closedResults).containsExactly(false, true);
+  }
+
+  @Test
+  public void onlyOneClaimPerSide() {
+    channel2.getWriting().put(1);
+    channel2.getWriting().put(2);
+    final SelectClause first = channel2.getReading().onReceive(value -> {});
+    final SelectClause second = channel2.getReading().onReceive(value -> {});
+    assertThat(first.claim()).isTrue();
+    assertThat(second.claim()).isFalse();
+    // the writing side is separate
+    assertThat(channel1.getWriting().onSend(() -> {}).claim()).isTrue();
+    first.release();
+    assertThat(second.claim()).isTrue();
+    second.release();
+  }
+
+  @Test
+  public void batches() {
+    final ChannelBoundedConcurrent<Integer> channel = create(4);
+    final List<Integer> pending = new ArrayList<>(Arrays.asList(1, 2, 3, 4, 5, 6));
+    final SelectClause send = channel.getWriting().onSendBatch(pending);
+    final List<Integer> received = new ArrayList<>();
+    final SelectClause receive = channel.getReading().onReceiveBatch(3, batch -> {
+      for (int i = 0; i < batch.size(); i++) {
+        received.add(batch.get(i));
+      }
+    });
+
+    assertThat(run(send)).isTrue();
+    assertThat(pending).containsExactly(5, 6);
+    assertThat(run(receive)).isTrue();
+    assertThat(received).containsExactly(1, 2, 3);
+    assertThat(run(send)).isTrue();
+    assertThat(pending).isEmpty();
+    assertThat(claim(send)).isFalse(); // nothing pending
+
+    channel.getWriting().close();
+    assertThat(run(receive)).isTrue();
+    assertThat(received).containsExactly(1, 2, 3, 4, 5, 6);
+    assertThat(run(receive)).isTrue(); // consumes the close
+    assertThat(channel.getReading().isReady()).isFalse();
+  }
+
+  @Test
+  public void putAllPutsWhatFits() {
+    channel2.getWriting().put(0);
+    assertThat(channel2.getWriting().putAll(Arrays.asList(1, 2, 3))).isEqualTo(1);
+    assertThat(channel2.getReading().get()).isEqualTo(0);
+    assertThat(channel2.getReading().get()).isEqualTo(1);
+  }
+
+  @Test
+  public void concurrentProducersAndConsumers() throws InterruptedException {
+    final int producers = topology() == Topology.SPSC ? 1 : 4;
+    final int consumers = topology() == Topology.MPMC ? 4 : 1;
+    final int perProducer = 20_000;
+    final ChannelBoundedConcurrent<Integer> channel = create(16);
+    final AtomicLong sum = new AtomicLong();
+    final AtomicLong received = new AtomicLong();
+
+    final List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      threads.add(new Thread(() -> {
+        for (int i = 1; i <= perProducer; i++) {
+          while (!channel.offer(i)) {
+            Thread.yield();
+          }
+        }
+      }));
+    }
+    for (int c = 0; c < consumers; c++) {
+      threads.add(new Thread(() -> {
+        while (received.get() < (long) producers * perProducer) {
+          final Object value = channel.poll();
+          if (value != EMPTY) {
+            sum.addAndGet((Integer) value);
+            received.incrementAndGet();
+          } else {
+            Thread.yield();
+          }
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(received.get()).isEqualTo((long) producers * perProducer);
+    assertThat(sum.get()).isEqualTo((long) producers * perProducer * (perProducer + 1) / 2);
+    assertThat(channel.isEmpty()).isTrue();
+  }
+
+  private static boolean claim(final SelectClause clause) {
+    final boolean claimed = clause.claim();
+    if (claimed) {
+      clause.release();
+    }
+    return claimed;
+  }
+
+  private static boolean run(final SelectClause clause) {
+    assertThat(clause.claim()).isTrue();
+    try {
+      return clause.getClause().getAsBoolean();
+    } finally {
+      clause.release();
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package com.thoughtpropulsion.concurrent;
+
+class ChannelBoundedLockFreeTest extends ChannelBoundedConcurrentTest {
+
+  @Override
+  ChannelBoundedConcurrent<Integer> create(final int bound) {
+    return new ChannelBoundedLockFree<>(bound);
+  }
+}
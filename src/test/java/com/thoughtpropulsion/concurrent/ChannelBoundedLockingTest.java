@@ -0,0 +1,9 @@
+package com.thoughtpropulsion.concurrent;
+
+class ChannelBoundedLockingTest extends ChannelBoundedConcurrentTest {
+
+  @Override
+  ChannelBoundedConcurrent<Integer> create(final int bound) {
+    return new ChannelBoundedLocking<>(bound);
+  }
+}
@@ -0,0 +1,45 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.Topology;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChannelBoundedSpscTest extends ChannelBoundedConcurrentTest {
+
+  @Override
+  ChannelBoundedConcurrent<Integer> create(final int bound) {
+    return new ChannelBoundedSpsc<>(bound);
+  }
+
+  @Override
+  Topology topology() {
+    return Topology.SPSC;
+  }
+
+  @Test
+  public void detectsOverlappingWriters() {
+    final ChannelBoundedSpsc<Integer> channel = new ChannelBoundedSpsc<>(2);
+    final Thread otherWriter = new Thread("other writer");
+    channel.writer.set(otherWriter); // as if it were part way through a put()
+
+    assertThatThrownBy(() -> channel.getWriting().put(1)).isInstanceOf(AssertionError.class);
+
+    channel.writer.set(null);
+    channel.getWriting().put(1);
+    assertThat(channel.getReading().get()).isEqualTo(1);
+  }
+
+  @Test
+  public void writersOnDifferentThreadsOneAfterAnother() throws InterruptedException {
+    final ChannelBoundedSpsc<Integer> channel = new ChannelBoundedSpsc<>(2);
+    final Thread first = new Thread(() -> channel.getWriting().put(1));
+    first.start();
+    first.join();
+    channel.getWriting().put(2);
+
+    assertThat(channel.getReading().get()).isEqualTo(1);
+    assertThat(channel.getReading().get()).isEqualTo(2);
+  }
+}
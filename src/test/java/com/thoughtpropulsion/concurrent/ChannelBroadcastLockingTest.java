@@ -0,0 +1,53 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.SelectClause;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelBroadcastLockingTest {
+
+  private ChannelBroadcastLocking<Integer> channel;
+
+  @BeforeEach
+  public void beforeEach() {
+    channel = new ChannelBroadcastLocking<>(4);
+  }
+
+  @Test
+  public void putWakesEverySubscriber() {
+    final ThreadWaker a = new ThreadWaker();
+    final ThreadWaker b = new ThreadWaker();
+    channel.subscribe().awaitReadiness(a);
+    channel.subscribe().awaitReadiness(b);
+
+    channel.getWriting().put(1);
+
+    assertThat(a.isArmed()).isFalse();
+    assertThat(b.isArmed()).isFalse();
+  }
+
+  // releasing a claim wakes whoever waited on that subscription, and nobody else
+  @Test
+  public void releasingAClaimWakesOnlyItsSubscription() {
+    final ChannelReading<Integer> claimed = channel.subscribe();
+    final ChannelReading<Integer> other = channel.subscribe();
+    channel.getWriting().put(1);
+    assertThat(other.get()).isEqualTo(1);
+    final SelectClause clause = claimed.onReceive(value -> {});
+    assertThat(clause.claim()).isTrue();
+
+    final ThreadWaker waitingForClaim = new ThreadWaker();
+    final ThreadWaker waitingForElement = new ThreadWaker();
+    claimed.awaitReadiness(waitingForClaim);
+    other.awaitReadiness(waitingForElement);
+    assertThat(waitingForClaim.isArmed()).isTrue();
+
+    clause.release();
+
+    assertThat(waitingForClaim.isArmed()).isFalse();
+    assertThat(waitingForElement.isArmed()).isTrue();
+  }
+}
@@ -0,0 +1,110 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.ChannelDropping;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.thoughtpropulsion.concurrent.ChannelBoundedConcurrent.EMPTY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelDroppingConcurrentTest {
+
+  @Test
+  public void conflatedKeepsTheLatestValue() {
+    final ChannelConflated<Integer> channel = new ChannelConflated<>();
+    channel.getWriting().put(1);
+    channel.getWriting().put(2);
+
+    assertThat(channel.getWriting().isReady()).isTrue();
+    assertThat(channel.getReading().get()).isEqualTo(2);
+    assertThat(channel.getReading().isReady()).isFalse();
+    assertThat(channel.getDropped()).isEqualTo(1);
+  }
+
+  @Test
+  public void slidingDropsTheOldest() {
+    final ChannelSlidingLocking<Integer> channel = new ChannelSlidingLocking<>(2);
+    assertThat(channel.getWriting().putAll(Arrays.asList(1, 2, 3, 4))).isEqualTo(4);
+    channel.getWriting().put(5);
+
+    assertThat(channel.getReading().get()).isEqualTo(4);
+    assertThat(channel.getReading().get()).isEqualTo(5);
+    assertThat(channel.getDropped()).isEqualTo(3);
+  }
+
+  @Test
+  public void blockingGetWaitsForAValue() throws InterruptedException {
+    final ChannelConflated<Integer> channel = new ChannelConflated<>(true);
+    final AtomicLong received = new AtomicLong();
+    final Thread reader = new Thread(() -> received.set(channel.getReading().get()));
+    reader.start();
+    channel.getWriting().put(42);
+    reader.join();
+
+    assertThat(received.get()).isEqualTo(42);
+  }
+
+  @Test
+  public void conflatedUnderContention() throws InterruptedException {
+    checkUnderContention(new ChannelConflated<>());
+  }
+
+  @Test
+  public void slidingUnderContention() throws InterruptedException {
+    checkUnderContention(new ChannelSlidingLocking<>(8));
+  }
+
+  /*
+   Writers never wait, every value is either received or dropped, and each writer's values arrive
+   in the order it wrote them.
+   */
+  private static void checkUnderContention(final ChannelBoundedConcurrent<Integer> channel)
+    throws InterruptedException {
+    final int producers = 4;
+    final int perProducer = 20_000;
+    final AtomicLong received = new AtomicLong();
+    final AtomicBoolean outOfOrder = new AtomicBoolean();
+    final AtomicBoolean producing = new AtomicBoolean(true);
+
+    final List<Thread> writers = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      final int producer = p;
+      writers.add(new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          assertThat(channel.offer(producer * perProducer + i)).isTrue();
+        }
+      }));
+    }
+    final Thread reader = new Thread(() -> {
+      final int[] last = new int[producers];
+      Arrays.fill(last, -1);
+      while (producing.get() || !channel.isEmpty()) {
+        final Object value = channel.poll();
+        if (value != EMPTY) {
+          final int v = (Integer) value;
+          if (v % perProducer <= last[v / perProducer]) {
+            outOfOrder.set(true);
+          }
+          last[v / perProducer] = v % perProducer;
+          received.incrementAndGet();
+        }
+      }
+    });
+    reader.start();
+    writers.forEach(Thread::start);
+    for (final Thread writer : writers) {
+      writer.join();
+    }
+    producing.set(false);
+    reader.join();
+
+    assertThat(outOfOrder.get()).isFalse();
+    assertThat(received.get() + ((ChannelDropping<Integer>) channel).getDropped())
+      .isEqualTo((long) producers * perProducer);
+  }
+}
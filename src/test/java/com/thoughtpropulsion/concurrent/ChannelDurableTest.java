@@ -0,0 +1,188 @@
+package com.thoughtpropulsion.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChannelDurableTest {
+
+  private static final ChannelDurable.Serializer<String> STRINGS = new ChannelDurable.Serializer<>() {
+    @Override
+    public void write(final String value, final ByteBuffer buffer) {
+      buffer.put(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String read(final ByteBuffer buffer) {
+      final byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  };
+
+  private Path directory;
+
+  @BeforeEach
+  public void before() throws IOException {
+    directory = Files.createTempDirectory("channel-durable");
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (final Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Test
+  public void takesWhatWasPutInOrder() throws IOException {
+    final ChannelDurable<String> channel = new ChannelDurable<>(directory, STRINGS, 3, 1);
+    assertThat(channel.getWriting().putAll(Arrays.asList("a", "", "ccc", "d"))).isEqualTo(3);
+    assertThat(channel.getWriting().isReady()).isFalse();
+    assertThat(channel.size()).isEqualTo(3);
+
+    assertThat(channel.getReading().get()).isEqualTo("a");
+    assertThat(channel.getReading().get()).isEqualTo("");
+    channel.getWriting().put("d");
+    assertThat(channel.getReading().get()).isEqualTo("ccc");
+    assertThat(channel.getReading().get()).isEqualTo("d");
+    assertThat(channel.getReading().isReady()).isFalse();
+    channel.closeLog();
+  }
+
+  @Test
+  public void resumesWhereItStopped() throws IOException {
+    final ChannelDurable<String> channel = new ChannelDurable<>(directory, STRINGS, 100, 0);
+    for (int i = 0; i < 10; i++) {
+      channel.getWriting().put("element " + i);
+    }
+    takeAll(channel, 3);
+    channel.closeLog();
+    assertThatThrownBy(() -> channel.getWriting().put("too late")).isInstanceOf(IllegalStateException.class);
+
+    final ChannelDurable<String> reopened = new ChannelDurable<>(directory, STRINGS, 100, 0);
+    assertThat(reopened.size()).isEqualTo(7);
+    reopened.getWriting().put("element 10");
+    assertThat(takeAll(reopened, 8)).containsExactly(
+        "element 3", "element 4", "element 5", "element 6", "element 7", "element 8", "element 9", "element 10");
+    reopened.closeLog();
+  }
+
+  @Test
+  public void takesSinceTheLastSyncAreTakenAgain() throws IOException {
+    final ChannelDurable<String> channel = new ChannelDurable<>(directory, STRINGS, 100, 0);
+    channel.getWriting().putAll(Arrays.asList("a", "b", "c", "d"));
+    assertThat(takeAll(channel, 1)).containsExactly("a");
+    channel.sync();
+    assertThat(takeAll(channel, 2)).containsExactly("b", "c");
+
+    // as if the process had died: channel is never closed
+    final ChannelDurable<String> recovered = new ChannelDurable<>(directory, STRINGS, 100, 0);
+    assertThat(takeAll(recovered, 3)).containsExactly("b", "c", "d");
+    recovered.closeLog();
+  }
+
+  @Test
+  public void reclaimsSegmentsOnceTaken() throws IOException {
+    final ChannelDurable<String> channel = new ChannelDurable<>(directory, STRINGS, 10, 4, 64, false);
+    final List<String> taken = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      channel.getWriting().put(String.format("element %04d", i)); // 20 bytes with its header: 3 a segment
+      taken.addAll(takeAll(channel, 1));
+    }
+    channel.sync();
+
+    assertThat(taken).hasSize(1_000);
+    assertThat(taken.get(999)).isEqualTo("element 0999");
+    assertThat(segments()).hasSize(1);
+    channel.closeLog();
+
+    final ChannelDurable<String> reopened = new ChannelDurable<>(directory, STRINGS, 10, 4, 64, false);
+    assertThat(reopened.size()).isEqualTo(0);
+    reopened.getWriting().put("after");
+    assertThat(reopened.getReading().get()).isEqualTo("after");
+    reopened.closeLog();
+  }
+
+  @Test
+  public void dropsATornEntryAndWhatFollows() throws IOException {
+    final ChannelDurable<String> channel = new ChannelDurable<>(directory, STRINGS, 10, 0);
+    channel.getWriting().putAll(Arrays.asList("first", "second", "third"));
+    channel.closeLog();
+
+    // flip a byte of "second": header and bytes of "first" come first
+    try (FileChannel segment = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+      segment.write(ByteBuffer.wrap(new byte[]{'S'}), 8 + "first".length() + 8);
+    }
+
+    final ChannelDurable<String> recovered = new ChannelDurable<>(directory, STRINGS, 10, 0);
+    assertThat(recovered.size()).isEqualTo(1);
+    recovered.getWriting().put("fourth");
+    recovered.closeLog();
+
+    final ChannelDurable<String> reopened = new ChannelDurable<>(directory, STRINGS, 10, 0);
+    assertThat(takeAll(reopened, 2)).containsExactly("first", "fourth");
+    reopened.closeLog();
+  }
+
+  @Test
+  public void rejectsAnElementBiggerThanASegment() throws IOException {
+    final ChannelDurable<String> channel = new ChannelDurable<>(directory, STRINGS, 10, 0, 32, false);
+    channel.getWriting().put("fits");
+    assertThatThrownBy(() -> channel.getWriting().put("x".repeat(100)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(channel.size()).isEqualTo(1);
+    assertThat(channel.getReading().get()).isEqualTo("fits");
+    channel.closeLog();
+  }
+
+  @Test
+  public void blockingWriterAndReaderThreads() throws Exception {
+    final int n = 10_000;
+    final ChannelDurable<String> channel = new ChannelDurable<>(directory, STRINGS, 16, 64, 4096, true);
+    final Thread writer = new Thread(() -> {
+      for (int i = 0; i < n; i++) {
+        channel.getWriting().put(Integer.toString(i));
+      }
+    });
+    writer.start();
+    for (int i = 0; i < n; i++) {
+      assertThat(channel.getReading().get()).isEqualTo(Integer.toString(i));
+    }
+    writer.join();
+    channel.closeLog();
+  }
+
+  private static List<String> takeAll(final ChannelDurable<String> channel, final int n) {
+    final List<String> taken = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      taken.add(channel.getReading().get());
+    }
+    return taken;
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> paths = Files.list(directory)) {
+      return paths.filter(path -> path.toString().endsWith(".log")).sorted().collect(Collectors.toList());
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.thoughtpropulsion.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.thoughtpropulsion.concurrent.ChannelBoundedConcurrent.EMPTY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelUnboundedTest {
+
+  @Test
+  public void neverFull() {
+    final ChannelUnbounded<Integer> channel = new ChannelUnbounded<>();
+    assertThat(channel.getWriting().putAll(Arrays.asList(1, 2, 3))).isEqualTo(3);
+    channel.getWriting().put(null);
+
+    assertThat(channel.getWriting().isReady()).isTrue();
+    assertThat(channel.size()).isEqualTo(4);
+    assertThat(channel.getReading().get()).isEqualTo(1);
+    assertThat(channel.getReading().get()).isEqualTo(2);
+    assertThat(channel.getReading().get()).isEqualTo(3);
+    assertThat(channel.getReading().get()).isNull();
+    assertThat(channel.getReading().isReady()).isFalse();
+  }
+
+  @Test
+  public void concurrentProducersAndConsumers() throws InterruptedException {
+    final int producers = 4;
+    final int consumers = 4;
+    final int perProducer = 20_000;
+    final ChannelUnbounded<Integer> channel = new ChannelUnbounded<>();
+    final AtomicLong sum = new AtomicLong();
+    final AtomicLong received = new AtomicLong();
+
+    final List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      threads.add(new Thread(() -> {
+        for (int i = 1; i <= perProducer; i++) {
+          channel.offer(i);
+        }
+      }));
+    }
+    for (int c = 0; c < consumers; c++) {
+      threads.add(new Thread(() -> {
+        while (received.get() < (long) producers * perProducer) {
+          final Object value = channel.poll();
+          if (value != EMPTY) {
+            sum.addAndGet((Integer) value);
+            received.incrementAndGet();
+          } else {
+            Thread.yield();
+          }
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(sum.get()).isEqualTo((long) producers * perProducer * (perProducer + 1) / 2);
+    assertThat(channel.isEmpty()).isTrue();
+    assertThat(channel.size()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,89 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.LongChannel;
+import com.thoughtpropulsion.SelectClause;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LongChannelLockFreeTest {
+
+  @Test
+  public void wraps2() {
+    final LongChannelLockFree channel = new LongChannelLockFree(2);
+    final LongChannel.Writing writing = channel.getWriting();
+    final LongChannel.Reading reading = channel.getReading();
+    writing.put(1);
+    writing.put(2);
+    assertThatThrownBy(() -> writing.put(3)).isInstanceOf(IllegalStateException.class);
+    assertThat(reading.get()).isEqualTo(1);
+    writing.put(3);
+    assertThat(reading.get()).isEqualTo(2);
+    assertThat(reading.get()).isEqualTo(3);
+    assertThatThrownBy(reading::get).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void receiveDrainsThenConsumesClose() {
+    final LongChannelLockFree channel = new LongChannelLockFree(2);
+    final List<Long> values = new ArrayList<>();
+    final SelectClause clause = channel.getReading().onReceive((long value) -> values.add(value));
+
+    channel.getWriting().put(7);
+    channel.getWriting().close();
+
+    assertThat(run(clause)).isTrue();
+    assertThat(run(clause)).isTrue();
+    assertThat(channel.getReading().isReady()).isFalse();
+    assertThat(clause.claim()).isFalse();
+    assertThat(values).containsExactly(7L);
+  }
+
+  @Test
+  public void manyProducersManyConsumers() throws InterruptedException {
+    final int producers = 4;
+    final int consumers = 4;
+    final int perProducer = 20_000;
+    final long total = (long) producers * perProducer;
+    final LongChannelLockFree channel = new LongChannelLockFree(16, true);
+    final AtomicLong sum = new AtomicLong();
+    final AtomicLong received = new AtomicLong();
+
+    final List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      threads.add(new Thread(() -> {
+        for (int i = 1; i <= perProducer; i++) {
+          channel.getWriting().put(i);
+        }
+      }));
+    }
+    for (int c = 0; c < consumers; c++) {
+      threads.add(new Thread(() -> {
+        while (received.incrementAndGet() <= total) {
+          sum.addAndGet(channel.getReading().get());
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(sum.get()).isEqualTo(total * (perProducer + 1) / 2);
+    assertThat(channel.isEmpty()).isTrue();
+  }
+
+  private static boolean run(final SelectClause clause) {
+    assertThat(clause.claim()).isTrue();
+    try {
+      return clause.getClause().getAsBoolean();
+    } finally {
+      clause.release();
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.ChannelBroadcast;
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.TaskScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.thoughtpropulsion.ControlStructures.select;
+import static com.thoughtpropulsion.ControlStructures.sequence;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static com.thoughtpropulsion.ControlStructures.whileLoop;
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VirtualThreadSchedulerTest {
+
+  private VirtualThreadScheduler scheduler;
+
+  @BeforeEach
+  public void before() {
+    scheduler = new VirtualThreadScheduler();
+  }
+
+  @AfterEach
+  public void after() {
+    scheduler.close();
+  }
+
+  @Test
+  public void sequenceStaysOnOneThread() throws InterruptedException {
+    final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    final AtomicInteger steps = new AtomicInteger(0);
+
+    scheduler.schedule(
+      sequence(
+        statement(() -> {threads.add(Thread.currentThread()); steps.incrementAndGet();}),
+        statement(() -> {threads.add(Thread.currentThread()); steps.incrementAndGet();}),
+        statement(() -> {threads.add(Thread.currentThread()); steps.incrementAndGet();})));
+
+    assertThat(scheduler.awaitQuiescence(10, SECONDS)).isTrue();
+    assertThat(steps.get()).isEqualTo(3);
+    assertThat(threads).hasSize(1);
+  }
+
+  @Test
+  public void blockingPutAndGet() throws InterruptedException {
+    final int n = 1_000;
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 2);
+    final AtomicLong sum = new AtomicLong(0);
+    final AtomicInteger produced = new AtomicInteger(0);
+    final AtomicInteger consumed = new AtomicInteger(0);
+
+    // no selects: the producer outruns the bound and get() outruns the producer
+    scheduler.schedule(whileLoop(() -> produced.get() < n,
+      statement(() -> channel.getWriting().put(produced.incrementAndGet()))));
+    scheduler.schedule(whileLoop(() -> consumed.get() < n,
+      statement(() -> {
+        sum.addAndGet(channel.getReading().get());
+        consumed.incrementAndGet();
+      })));
+
+    assertThat(scheduler.awaitQuiescence(30, SECONDS)).isTrue();
+    assertThat(sum.get()).isEqualTo((long) n * (n + 1) / 2);
+  }
+
+  @Test
+  public void blockingBroadcast() throws InterruptedException {
+    final int n = 1_000;
+    final int subscribers = 3;
+    final ChannelBroadcast<Integer> channel = scheduler.createBroadcastChannel(Integer.class, 2);
+    final AtomicLong sum = new AtomicLong(0);
+    final AtomicInteger produced = new AtomicInteger(0);
+
+    // subscribe before the producer starts, so nobody misses anything
+    for (int s = 0; s < subscribers; s++) {
+      final ChannelReading<Integer> reading = channel.subscribe();
+      final AtomicInteger consumed = new AtomicInteger(0);
+      scheduler.schedule(whileLoop(() -> consumed.get() < n,
+        statement(() -> {
+          sum.addAndGet(reading.get());
+          consumed.incrementAndGet();
+        })));
+    }
+    scheduler.schedule(whileLoop(() -> produced.get() < n,
+      statement(() -> channel.getWriting().put(produced.incrementAndGet()))));
+
+    assertThat(scheduler.awaitQuiescence(30, SECONDS)).isTrue();
+    assertThat(sum.get()).isEqualTo((long) subscribers * n * (n + 1) / 2);
+  }
+
+  @Test
+  public void selectParksUntilWoken() throws InterruptedException {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    final AtomicInteger received = new AtomicInteger(0);
+
+    scheduler.schedule(select(channel.getReading().onReceive(received::set)));
+
+    // a parked select isn't pending
+    assertThat(scheduler.awaitQuiescence(10, SECONDS)).isTrue();
+    assertThat(received.get()).isZero();
+
+    channel.getWriting().put(42);
+
+    final long deadline = System.nanoTime() + SECONDS.toNanos(10);
+    while (received.get() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertThat(received.get()).isEqualTo(42);
+  }
+
+  @Test
+  public void manyChains() throws InterruptedException {
+    final int chains = 1_000;
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 4);
+    final AtomicInteger received = new AtomicInteger(0);
+
+    scheduler.schedule(whileSelect(channel.getReading().onReceive(value ->
+      received.incrementAndGet() < chains)));
+    for (int i = 0; i < chains; i++) {
+      scheduler.schedule(statement(() -> channel.getWriting().put(1)));
+    }
+
+    assertThat(scheduler.awaitQuiescence(30, SECONDS)).isTrue();
+    assertThat(received.get()).isEqualTo(chains);
+  }
+
+  @Test
+  public void getFromClosedEmptyChannelThrows() throws InterruptedException {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    final AtomicReference<Throwable> thrown = new AtomicReference<>();
+
+    scheduler.schedule(statement(() -> {
+      try {
+        channel.getReading().get();
+      } catch (final IllegalStateException e) {
+        thrown.set(e);
+      }
+    }));
+    scheduler.schedule(statement(() -> channel.getWriting().close()), 10, MILLISECONDS);
+
+    assertThat(scheduler.awaitQuiescence(10, SECONDS)).isTrue();
+    assertThat(thrown.get()).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void delayedTaskWaitsForItsTime() throws InterruptedException {
+    final AtomicLong ranAt = new AtomicLong(0);
+    final long scheduledAt = System.nanoTime();
+
+    scheduler.schedule(statement(() -> ranAt.set(System.nanoTime())), 20, MILLISECONDS);
+
+    assertThat(scheduler.awaitQuiescence(10, SECONDS)).isTrue();
+    assertThat(ranAt.get() - scheduledAt).isGreaterThanOrEqualTo(MILLISECONDS.toNanos(20));
+  }
+
+  // a delay a step schedules isn't the step's follow-on: it has a chain, and a handle, of its own
+  @Test
+  public void cancelsADelayScheduledFromAStep() throws InterruptedException {
+    final AtomicBoolean ran = new AtomicBoolean(false);
+    final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    scheduler.schedule(new Continuation() {
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void compute(final TaskScheduler scheduler) {
+        cancelled.set(scheduler.schedule(statement(() -> ran.set(true)), 50, MILLISECONDS).cancel());
+      }
+    });
+
+    assertThat(scheduler.awaitQuiescence(10, SECONDS)).isTrue();
+    Thread.sleep(100);
+    assertThat(cancelled.get()).isTrue();
+    assertThat(ran.get()).isFalse();
+  }
+}
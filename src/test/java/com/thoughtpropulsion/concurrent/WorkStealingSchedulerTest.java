@@ -0,0 +1,250 @@
+package com.thoughtpropulsion.concurrent;
+
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.ChannelBroadcast;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.Metrics;
+import com.thoughtpropulsion.MetricsSnapshot;
+import com.thoughtpropulsion.Scope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static com.thoughtpropulsion.ControlStructures.select;
+import static com.thoughtpropulsion.ControlStructures.sequence;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static com.thoughtpropulsion.ControlStructures.whileLoop;
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkStealingSchedulerTest {
+
+  private WorkStealingScheduler scheduler;
+
+  @BeforeEach
+  public void before() {
+    scheduler = new WorkStealingScheduler(4);
+  }
+
+  @AfterEach
+  public void after() throws InterruptedException {
+    scheduler.close();
+  }
+
+  @Test
+  public void runsScheduledTask() throws InterruptedException {
+    final AtomicBoolean flag = new AtomicBoolean(false);
+
+    scheduler.schedule(statement(() -> flag.set(true)));
+
+    assertThat(scheduler.awaitQuiescence(10, SECONDS)).isTrue();
+    assertThat(flag.get()).isTrue();
+  }
+
+  @Test
+  public void sequencesRunInOrder() throws InterruptedException {
+    final int n = 1_000;
+    final AtomicInteger inOrder = new AtomicInteger(0);
+
+    for (int i = 0; i < n; i++) {
+      final AtomicInteger state = new AtomicInteger(0);
+      scheduler.schedule(
+        sequence(
+          statement(() -> state.compareAndSet(0, 1)),
+          statement(() -> state.compareAndSet(1, 2)),
+          statement(() -> {
+            if (state.compareAndSet(2, 3)) {
+              inOrder.incrementAndGet();
+            }
+          })));
+    }
+
+    assertThat(scheduler.awaitQuiescence(10, SECONDS)).isTrue();
+    assertThat(inOrder.get()).isEqualTo(n);
+  }
+
+  // the same counts as under TestScheduler (see MetricsTest)
+  @Test
+  public void cancellingAScopeStopsItsLoops() throws InterruptedException {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    final AtomicLong spins = new AtomicLong();
+    final Scope scope = Scope.launch(scheduler, whileLoop(() -> true, statement(spins::incrementAndGet)));
+    scope.launchChild(whileSelect(channel.getReading().onReceive(value -> {})));
+    while (spins.get() < 1000) {
+      Thread.yield();
+    }
+
+    scope.cancel();
+
+    assertThat(scheduler.awaitQuiescence(5, SECONDS)).isTrue();
+    assertThat(scope.isComplete()).isTrue();
+    final long spun = spins.get();
+    Thread.sleep(10);
+    assertThat(spins.get()).isEqualTo(spun);
+  }
+
+  @Test
+  public void reportsMetrics() throws InterruptedException {
+    final Metrics metrics = new Metrics(System::nanoTime);
+    scheduler.setMetricsListener(metrics);
+
+    scheduler.schedule(sequence(statement(() -> {}), statement(() -> {}), statement(() -> {})));
+
+    assertThat(scheduler.awaitQuiescence(10, SECONDS)).isTrue();
+    final MetricsSnapshot snapshot = metrics.snapshot();
+    assertThat(snapshot.get(Metrics.SCHEDULED)).isEqualTo(3);
+    assertThat(snapshot.get(Metrics.RAN)).isEqualTo(3);
+    assertThat(snapshot.get("scheduler.pending")).isEqualTo(0);
+  }
+
+  @Test
+  public void whileLoopIterates() throws InterruptedException {
+    final int n = 10_000;
+    final AtomicInteger iterations = new AtomicInteger(0);
+
+    scheduler.schedule(whileLoop(() -> iterations.get() < n, statement(iterations::incrementAndGet)));
+
+    assertThat(scheduler.awaitQuiescence(10, SECONDS)).isTrue();
+    assertThat(iterations.get()).isEqualTo(n);
+  }
+
+  @Test
+  public void producersAndConsumersSelectOnSharedChannel() throws InterruptedException {
+    final int producers = 4;
+    final int consumers = 4;
+    final int perProducer = 2_000;
+    final int total = producers * perProducer;
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 8);
+    final AtomicInteger received = new AtomicInteger(0);
+    final AtomicLong sum = new AtomicLong(0);
+
+    for (int c = 0; c < consumers; c++) {
+      scheduler.schedule(whileSelect(channel.getReading().onReceive(value -> {
+        sum.addAndGet(value);
+        return received.incrementAndGet() < total;
+      })));
+    }
+    for (int p = 0; p < producers; p++) {
+      scheduler.schedule(newProducer(channel.getWriting(), perProducer));
+    }
+
+    assertThat(scheduler.awaitQuiescence(30, SECONDS)).isTrue();
+    assertThat(received.get()).isEqualTo(total);
+    assertThat(sum.get()).isEqualTo((long) producers * perProducer * (perProducer + 1) / 2);
+  }
+
+  /*
+   Consumers in a scope, contending for one channel, lose races for its elements. A step that
+   lost must be run again, not dropped from the scope: each consumer takes its share.
+   */
+  @Test
+  public void scopedConsumersSurviveLostRaces() throws InterruptedException {
+    final int consumers = 8;
+    final int share = 2_500;
+    final int n = consumers * share;
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 4);
+    final AtomicLong sum = new AtomicLong(0);
+
+    final Scope scope = Scope.launch(scheduler, newConsumer(channel, share, sum));
+    for (int c = 1; c < consumers; c++) {
+      scope.launch(newConsumer(channel, share, sum));
+    }
+    scheduler.schedule(newProducer(channel.getWriting(), n));
+
+    assertThat(scheduler.awaitQuiescence(30, SECONDS)).isTrue();
+    assertThat(sum.get()).isEqualTo((long) n * (n + 1) / 2);
+    assertThat(scope.isComplete()).isTrue();
+  }
+
+  @Test
+  public void broadcastReachesEverySubscriber() throws InterruptedException {
+    final int subscribers = 4;
+    final int n = 5_000;
+    final ChannelBroadcast<Integer> channel = scheduler.createBroadcastChannel(Integer.class, 8);
+    final AtomicLong sum = new AtomicLong(0);
+    final AtomicInteger closed = new AtomicInteger(0);
+
+    for (int s = 0; s < subscribers; s++) {
+      scheduler.schedule(whileSelect(channel.subscribe().onReceiveOrClosed((value, isClosed) -> {
+        if (isClosed) {
+          closed.incrementAndGet();
+          return false;
+        }
+        sum.addAndGet(value);
+        return true;
+      })));
+    }
+    final ChannelWriting<Integer> writing = channel.getWriting();
+    final AtomicInteger i = new AtomicInteger(0);
+    scheduler.schedule(whileLoop(() -> i.get() <= n,
+      select(writing.onSend(() -> {
+        if (i.incrementAndGet() <= n) {
+          writing.put(i.get());
+        } else {
+          writing.close();
+        }
+      }))));
+
+    assertThat(scheduler.awaitQuiescence(30, SECONDS)).isTrue();
+    assertThat(sum.get()).isEqualTo((long) subscribers * n * (n + 1) / 2);
+    assertThat(closed.get()).isEqualTo(subscribers);
+  }
+
+  @Test
+  public void delayedTaskWaitsForItsTime() throws InterruptedException {
+    final AtomicLong ranAt = new AtomicLong(0);
+    final long scheduledAt = System.nanoTime();
+
+    scheduler.schedule(statement(() -> ranAt.set(System.nanoTime())), 20, MILLISECONDS);
+
+    assertThat(scheduler.awaitQuiescence(10, SECONDS)).isTrue();
+    assertThat(ranAt.get() - scheduledAt).isGreaterThanOrEqualTo(MILLISECONDS.toNanos(20));
+  }
+
+  @Test
+  public void quiescenceTimesOut() throws InterruptedException {
+    scheduler.schedule(statement(() -> {}), 1, SECONDS);
+
+    assertThat(scheduler.awaitQuiescence(10, MILLISECONDS)).isFalse();
+  }
+
+  @Test
+  public void cancelledTimerNeverRunsNorHoldsUpQuiescence() throws InterruptedException {
+    final AtomicBoolean ran = new AtomicBoolean(false);
+
+    assertThat(scheduler.schedule(statement(() -> ran.set(true)), 50, MILLISECONDS).cancel()).isTrue();
+
+    assertThat(scheduler.awaitQuiescence(10, MILLISECONDS)).isTrue();
+    Thread.sleep(100);
+    assertThat(ran.get()).isFalse();
+  }
+
+  private static Continuation newConsumer(final ChannelBiDirectional<Integer> channel, final int n,
+                                          final AtomicLong sum) {
+    final AtomicInteger taken = new AtomicInteger(0);
+    return whileSelect(channel.getReading().onReceive(value -> {
+      sum.addAndGet(value);
+      return taken.incrementAndGet() < n;
+    }));
+  }
+
+  private Continuation newProducer(final ChannelWriting<Integer> writing, final int n) {
+    return new Supplier<Continuation>() {
+      int i = 0;
+
+      @Override
+      public Continuation get() {
+        return whileLoop(() -> i < n,
+          select(writing.onSend(() -> writing.put(++i))));
+      }
+    }.get();
+  }
+}
@@ -0,0 +1,92 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Cancellable;
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.Continuation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.select;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CancellableTest {
+
+  private VirtualTime virtualTime;
+  private TestScheduler scheduler;
+
+  @BeforeEach
+  public void before() {
+    virtualTime = new VirtualTime();
+    scheduler = new TestScheduler(virtualTime);
+  }
+
+  @Test
+  public void cancelledTaskNeverRuns() {
+    final int[] runs = {0};
+    final Cancellable now = scheduler.schedule(statement(() -> runs[0]++));
+    final Cancellable later = scheduler.schedule(statement(() -> runs[0]++), 1, TimeUnit.SECONDS);
+
+    assertThat(now.cancel()).isTrue();
+    assertThat(later.cancel()).isTrue();
+    assertThat(later.cancel()).isFalse(); // cancelled already
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(runs[0]).isZero();
+  }
+
+  @Test
+  public void cantCancelOnceRun() {
+    final Cancellable scheduled = scheduler.schedule(statement(() -> {}));
+    scheduler.triggerActions();
+
+    assertThat(scheduled.cancel()).isFalse();
+  }
+
+  @Test
+  public void cancelledTimerDoesntMoveTimeOn() {
+    scheduler.schedule(statement(() -> {}), 1, TimeUnit.SECONDS);
+    scheduler.schedule(statement(() -> {}), 1, TimeUnit.HOURS).cancel();
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+
+    assertThat(virtualTime.nanoTime()).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+  }
+
+  @Test
+  public void cancelledParkedTaskIsntBlocked() {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    final Cancellable receiver = scheduler.schedule(
+        select(channel.getReading().onReceive(value -> {})));
+    scheduler.triggerActions(); // parks it
+
+    assertThat(receiver.cancel()).isTrue();
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+  }
+
+  @Test
+  public void purgesTimersOnceMostAreCancelled() {
+    final List<Cancellable> timers = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      timers.add(scheduler.schedule(statement(() -> {}), i + 1, TimeUnit.MINUTES));
+    }
+    for (int i = 0; i < 50; i++) {
+      timers.get(i).cancel();
+    }
+    assertThat(scheduler.tasks.size()).isEqualTo(100); // half: not yet
+
+    timers.get(50).cancel();
+
+    assertThat(scheduler.tasks.size()).isEqualTo(49);
+  }
+
+  @Test
+  public void noOpCantBeCancelled() {
+    assertThat(scheduler.schedule(Continuation.NoOp).cancel()).isFalse();
+  }
+}
@@ -2,9 +2,14 @@ package com.thoughtpropulsion.deterministic;
 
 import com.thoughtpropulsion.ChannelReading;
 import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.SelectClause;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -66,4 +71,105 @@ class ChannelBoundedTest {
     assertThat(reading.get()).isEqualTo(4);
     assertThatThrownBy(() -> reading.get()).isInstanceOf(IllegalStateException.class);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void receiveBatchAcrossTheWrap() {
+    final ChannelBounded<Integer> channel = new ChannelBounded<>(Integer.class, 4);
+    final ChannelWriting<Integer> writing = channel.getWriting();
+    writing.put(1);
+    writing.put(2);
+    writing.put(3);
+    channel.getReading().get();
+    channel.getReading().get();
+    writing.put(4);
+    writing.put(5); // wraps
+
+    final List<Integer> received = new ArrayList<>();
+    final SelectClause clause = channel.getReading().onReceiveBatch(8, batch -> {
+      for (int i = 0; i < batch.size(); i++) {
+        received.add(batch.get(i));
+      }
+    });
+
+    assertThat(clause.getClause().getAsBoolean()).isTrue();
+    assertThat(received).containsExactly(3, 4, 5);
+    assertThat(channel.getReading().isReady()).isFalse();
+  }
+
+  @Test
+  public void receiveBatchTakesAtMostMaxN() {
+    channel2.getWriting().put(1);
+    channel2.getWriting().put(2);
+    final List<Integer> sizes = new ArrayList<>();
+    final SelectClause clause = channel2.getReading().onReceiveBatch(1, batch -> {sizes.add(batch.size());});
+
+    clause.getClause().getAsBoolean();
+    clause.getClause().getAsBoolean();
+
+    assertThat(sizes).containsExactly(1, 1);
+  }
+
+  @Test
+  public void receiveBatchConsumesTheClose() {
+    channel2.getWriting().put(1);
+    channel2.getWriting().close();
+    final List<Integer> sizes = new ArrayList<>();
+    final SelectClause clause = channel2.getReading().onReceiveBatch(8, batch -> {sizes.add(batch.size());});
+
+    clause.getClause().getAsBoolean();
+    assertThat(channel2.getReading().isReady()).isTrue();
+    clause.getClause().getAsBoolean();
+
+    assertThat(sizes).containsExactly(1);
+    assertThat(channel2.getReading().isReady()).isFalse();
+  }
+
+  @Test
+  public void putAllPutsWhatFits() {
+    channel2.getWriting().put(0);
+    assertThat(channel2.getWriting().putAll(Arrays.asList(1, 2, 3))).isEqualTo(1);
+    assertThat(channel2.getReading().get()).isEqualTo(0);
+    assertThat(channel2.getReading().get()).isEqualTo(1);
+  }
+
+  @Test
+  public void sendBatchIsReadyOnlyWithSomethingPending() {
+    final List<Integer> pending = new ArrayList<>();
+    final SelectClause clause = channel2.getWriting().onSendBatch(pending);
+    assertThat(clause.isReady()).isFalse();
+
+    pending.addAll(Arrays.asList(1, 2, 3));
+    assertThat(clause.isReady()).isTrue();
+    assertThat(clause.getClause().getAsBoolean()).isTrue();
+
+    assertThat(pending).containsExactly(3);
+    assertThat(clause.isReady()).isFalse(); // the channel's full
+  }
+
+  @Test
+  public void unboundedIsNeverFull() {
+    final ChannelBounded<Integer> channel = new ChannelBounded<>(Integer.class, ChannelBounded.UNBOUNDED);
+    final List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      channel.getWriting().put(i);
+      values.add(i);
+    }
+    assertThat(channel.getWriting().isReady()).isTrue();
+    assertThat(channel.size()).isEqualTo(10_000);
+
+    final List<Integer> received = new ArrayList<>();
+    channel.getReading().onReceiveBatch(10_000, batch -> {
+      for (int i = 0; i < batch.size(); i++) {
+        received.add(batch.get(i));
+      }
+    }).getClause().getAsBoolean();
+    assertThat(received).isEqualTo(values);
+    assertThat(channel.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void clauseIsBuiltOnce() {
+    final SelectClause clause = channel1.getReading().onReceive(value -> {});
+    assertThat(clause.getClause()).isSameAs(clause.getClause());
+  }
+}
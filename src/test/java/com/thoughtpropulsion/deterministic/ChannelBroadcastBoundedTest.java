@@ -0,0 +1,200 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.ChannelBroadcast;
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.Continuation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.thoughtpropulsion.ControlStructures.select;
+import static com.thoughtpropulsion.ControlStructures.whileLoop;
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChannelBroadcastBoundedTest {
+
+  private ChannelBroadcast<Integer> channel;
+  private ChannelWriting<Integer> writing;
+
+  @BeforeEach
+  public void beforeEach() {
+    channel = new ChannelBroadcastBounded<>(Integer.class, 2);
+    writing = channel.getWriting();
+  }
+
+  @Test
+  public void mustNotBeSynchronous() {
+    assertThatThrownBy(() -> new ChannelBroadcastBounded<>(Integer.class, 0))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void everySubscriberGetsEveryElement() {
+    final ChannelReading<Integer> a = channel.subscribe();
+    final ChannelReading<Integer> b = channel.subscribe();
+
+    writing.put(1);
+    writing.put(2);
+
+    assertThat(a.get()).isEqualTo(1);
+    assertThat(a.get()).isEqualTo(2);
+    assertThat(b.get()).isEqualTo(1);
+    assertThat(b.get()).isEqualTo(2);
+    assertThatThrownBy(a::get).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void subscribersSeeOnlyLaterElements() {
+    final ChannelReading<Integer> early = channel.subscribe();
+    writing.put(1);
+    final ChannelReading<Integer> late = channel.subscribe();
+    writing.put(2);
+
+    assertThat(early.get()).isEqualTo(1);
+    assertThat(late.get()).isEqualTo(2);
+    assertThat(late.isReady()).isFalse();
+  }
+
+  @Test
+  public void slowestSubscriberHoldsTheWriterBack() {
+    final ChannelReading<Integer> fast = channel.subscribe();
+    final ChannelReading<Integer> slow = channel.subscribe();
+    writing.put(1);
+    writing.put(2);
+    fast.get();
+    fast.get();
+
+    assertThat(writing.isReady()).isFalse();
+    assertThat(channel.size()).isEqualTo(2);
+    assertThatThrownBy(() -> writing.put(3)).isInstanceOf(IllegalStateException.class);
+
+    slow.get();
+
+    assertThat(writing.isReady()).isTrue();
+    assertThat(channel.size()).isEqualTo(1);
+    writing.put(3); // wraps
+    assertThat(slow.get()).isEqualTo(2);
+    assertThat(slow.get()).isEqualTo(3);
+    assertThat(fast.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void unsubscribingLetsTheWriterGo() {
+    final ChannelReading<Integer> reading = channel.subscribe();
+    final ChannelReading<Integer> gone = channel.subscribe();
+    writing.put(1);
+    writing.put(2);
+    reading.get();
+
+    channel.unsubscribe(gone);
+
+    assertThat(writing.isReady()).isTrue();
+    assertThat(channel.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void withNoSubscribersPutsAreDropped() {
+    for (int i = 0; i < 10; i++) {
+      writing.put(i);
+    }
+    assertThat(channel.size()).isEqualTo(0);
+
+    final ChannelReading<Integer> reading = channel.subscribe();
+    writing.put(10);
+    assertThat(reading.get()).isEqualTo(10);
+  }
+
+  @Test
+  public void batchesAcrossTheWrap() {
+    final ChannelReading<Integer> reading = channel.subscribe();
+    final List<Integer> received = new ArrayList<>();
+    writing.put(1);
+    reading.get();
+    writing.put(2);
+    writing.put(3);
+
+    reading.onReceiveBatch(2, batch -> {
+      for (int i = 0; i < batch.size(); i++) {
+        received.add(batch.get(i));
+      }
+    }).getClause().getAsBoolean();
+
+    assertThat(received).isEqualTo(Arrays.asList(2, 3));
+    assertThat(writing.isReady()).isTrue();
+  }
+
+  @Test
+  public void eachSubscriberSeesTheClose() {
+    final ChannelReading<Integer> a = channel.subscribe();
+    final ChannelReading<Integer> b = channel.subscribe();
+    writing.put(1);
+    writing.close();
+    assertThatThrownBy(() -> writing.put(2)).isInstanceOf(IllegalStateException.class);
+
+    final List<String> events = new ArrayList<>();
+    for (final ChannelReading<Integer> reading : Arrays.asList(a, b, a, b)) {
+      reading.onReceiveOrClosed((value, closed) -> events.add(closed ? "closed" : "" + value))
+        .getClause().getAsBoolean();
+    }
+
+    assertThat(events).isEqualTo(Arrays.asList("1", "1", "closed", "closed"));
+    assertThat(a.isReady()).isFalse();
+    assertThat(b.isReady()).isFalse();
+  }
+
+  @Test
+  public void fansOutUnderSelect() {
+    for (int seed = 0; seed < 20; seed++) {
+      final TestScheduler scheduler = new TestScheduler(new VirtualTime(), seed);
+      final ChannelBroadcast<Integer> broadcast = scheduler.createBroadcastChannel(Integer.class, 4);
+      final int n = 100;
+      final long[] sums = new long[3];
+      final boolean[] closed = new boolean[3];
+      for (int s = 0; s < sums.length; s++) {
+        final int subscriber = s;
+        scheduler.schedule(whileSelect(broadcast.subscribe().onReceiveOrClosed((value, isClosed) -> {
+          if (isClosed) {
+            closed[subscriber] = true;
+            return false;
+          }
+          sums[subscriber] += value;
+          return true;
+        })));
+      }
+      scheduler.schedule(newProducer(broadcast.getWriting(), n));
+
+      assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+
+      for (int s = 0; s < sums.length; s++) {
+        assertThat(sums[s]).isEqualTo((long) n * (n + 1) / 2);
+        assertThat(closed[s]).isTrue();
+      }
+    }
+  }
+
+  // puts 1..n, then closes
+  private static Continuation newProducer(final ChannelWriting<Integer> writing, final int n) {
+    return new Supplier<Continuation>() {
+      int i = 0;
+
+      @Override
+      public Continuation get() {
+        return whileLoop(() -> i <= n,
+          select(writing.onSend(() -> {
+            if (++i <= n) {
+              writing.put(i);
+            } else {
+              writing.close();
+            }
+          })));
+      }
+    }.get();
+  }
+}
@@ -0,0 +1,143 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.ChannelDropping;
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.Metrics;
+import com.thoughtpropulsion.MetricsSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.thoughtpropulsion.ControlStructures.select;
+import static com.thoughtpropulsion.ControlStructures.whileLoop;
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChannelSlidingTest {
+
+  private final TestScheduler scheduler = new TestScheduler(new VirtualTime());
+
+  @Test
+  public void conflatedKeepsTheLatestValue() {
+    final ChannelDropping<Integer> channel = scheduler.createConflatedChannel(Integer.class);
+    final ChannelWriting<Integer> writing = channel.getWriting();
+
+    writing.put(1);
+    assertThat(writing.isReady()).isTrue();
+    writing.put(2);
+    writing.put(3);
+
+    assertThat(channel.size()).isEqualTo(1);
+    assertThat(channel.getDropped()).isEqualTo(2);
+    assertThat(channel.getReading().get()).isEqualTo(3);
+    assertThatThrownBy(() -> channel.getReading().get()).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void slidingDropsTheOldest() {
+    final ChannelDropping<Integer> channel = scheduler.createSlidingChannel(Integer.class, 2);
+    final ChannelWriting<Integer> writing = channel.getWriting();
+    final ChannelReading<Integer> reading = channel.getReading();
+
+    writing.put(1);
+    writing.put(2);
+    writing.put(3);
+    assertThat(reading.get()).isEqualTo(2);
+    writing.put(4);
+    writing.put(5);
+
+    assertThat(reading.get()).isEqualTo(4);
+    assertThat(reading.get()).isEqualTo(5);
+    assertThat(channel.getDropped()).isEqualTo(2);
+  }
+
+  @Test
+  public void putAllTakesEverything() {
+    final ChannelDropping<Integer> channel = scheduler.createSlidingChannel(Integer.class, 2);
+
+    assertThat(channel.getWriting().putAll(Arrays.asList(1, 2, 3, 4, 5))).isEqualTo(5);
+
+    assertThat(channel.getReading().get()).isEqualTo(4);
+    assertThat(channel.getReading().get()).isEqualTo(5);
+    assertThat(channel.getDropped()).isEqualTo(3);
+  }
+
+  @Test
+  public void closeDeliversWhatsLeft() {
+    final ChannelDropping<Integer> channel = scheduler.createSlidingChannel(Integer.class, 2);
+    final ChannelWriting<Integer> writing = channel.getWriting();
+    writing.putAll(Arrays.asList(1, 2, 3));
+    writing.close();
+
+    assertThat(writing.isReady()).isFalse();
+    assertThatThrownBy(() -> writing.put(4)).isInstanceOf(IllegalStateException.class);
+
+    final List<Integer> values = new ArrayList<>();
+    final boolean[] closed = {false};
+    scheduler.schedule(whileSelect(channel.getReading().onReceiveOrClosed((value, isClosed) -> {
+      if (isClosed) {
+        closed[0] = true;
+        return false;
+      }
+      values.add(value);
+      return true;
+    })));
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(values).containsExactly(2, 3);
+    assertThat(closed[0]).isTrue();
+  }
+
+  @Test
+  public void hotProducerNeverWaits() {
+    for (int seed = 0; seed < 20; seed++) {
+      final VirtualTime time = new VirtualTime();
+      final TestScheduler scheduler = new TestScheduler(time, seed);
+      final Metrics metrics = new Metrics(time);
+      scheduler.setMetricsListener(metrics);
+      final ChannelDropping<Integer> channel = scheduler.createConflatedChannel(Integer.class);
+      final int n = 1000;
+      final List<Integer> values = new ArrayList<>();
+      scheduler.schedule(whileSelect(channel.getReading().onReceiveOrClosed((value, isClosed) -> {
+        if (!isClosed) {
+          values.add(value);
+        }
+        return !isClosed;
+      })));
+      scheduler.schedule(newProducer(channel.getWriting(), n));
+
+      assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+
+      final MetricsSnapshot snapshot = metrics.snapshot();
+      assertThat(snapshot.get(Metrics.FOUND_FULL)).isEqualTo(0);
+      assertThat(snapshot.get(Metrics.DROPPED)).isEqualTo(channel.getDropped());
+      assertThat(values.size() + channel.getDropped()).isEqualTo(n);
+      assertThat(values.get(values.size() - 1)).isEqualTo(n); // the latest always gets through
+    }
+  }
+
+  // puts 1..n, then closes
+  private static Continuation newProducer(final ChannelWriting<Integer> writing, final int n) {
+    return new Supplier<Continuation>() {
+      int i = 0;
+
+      @Override
+      public Continuation get() {
+        return whileLoop(() -> i <= n,
+          select(writing.onSend(() -> {
+            if (++i <= n) {
+              writing.put(i);
+            } else {
+              writing.close();
+            }
+          })));
+      }
+    }.get();
+  }
+}
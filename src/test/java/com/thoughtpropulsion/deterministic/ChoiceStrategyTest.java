@@ -0,0 +1,145 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.Random;
+import com.thoughtpropulsion.TaskScheduler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.thoughtpropulsion.ControlStructures.sequence;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChoiceStrategyTest {
+
+  private static final int STEPS = 20;
+
+  @Test
+  public void uniformIsTheDefault() {
+    for (int seed = 0; seed < 20; seed++) {
+      assertThat(interleaving(new TestScheduler(new VirtualTime(), seed)))
+        .isEqualTo(interleaving(new TestScheduler(new VirtualTime(), seed, 0, ChoiceStrategy.UNIFORM)));
+    }
+  }
+
+  @Test
+  public void roundRobinTakesTurns() {
+    final List<Integer> trace = interleaving(new TestScheduler(new VirtualTime(), 0, 0, ChoiceStrategy.ROUND_ROBIN));
+
+    assertThat(trace.subList(0, 6)).isEqualTo(Arrays.asList(0, 100, 1, 101, 2, 102));
+  }
+
+  @Test
+  public void pctRunsOneChainAtATimeWithoutChangePoints() {
+    final List<Integer> trace = interleaving(new TestScheduler(new VirtualTime(), 3, 0, ChoiceStrategy.pct(1, 100)));
+
+    // the chain with the higher priority runs to completion first
+    final int first = trace.get(0);
+    for (int i = 0; i < STEPS; i++) {
+      assertThat(trace.get(i)).isEqualTo(first + i);
+    }
+  }
+
+  /*
+   The bug needs chain b to run exactly after a's 10th step: a depth 2 bug. Uniform choice hits
+   it with probability about 2^-11, PCT with about 1/(2 * 2 * STEPS).
+   */
+  @Test
+  public void pctFindsDepthTwoBugsSooner() {
+    int uniformFailures = 0;
+    int pctFailures = 0;
+    for (int seed = 0; seed < 400; seed++) {
+      if (depthTwoBug(new TestScheduler(new VirtualTime(), seed))) {
+        ++uniformFailures;
+      }
+      if (depthTwoBug(new TestScheduler(new VirtualTime(), seed, 0, ChoiceStrategy.pct(2, STEPS + 1)))) {
+        ++pctFailures;
+      }
+    }
+    assertThat(pctFailures).isGreaterThan(uniformFailures);
+    assertThat(pctFailures).isGreaterThan(2);
+  }
+
+  /*
+   Change points at steps 5 then 2, as drawn. The one drawn first drops a chain to priority 2,
+   the next to 1, so b (dropped at step 5) outranks a (dropped at step 2).
+   */
+  @Test
+  public void pctDropsPrioritiesInTheOrderChangePointsAreDrawn() {
+    final PctChoice pct = new PctChoice(draws(4, 1, 300, 200, 100), 3, 10);
+    final Task a = task(1, true);
+    final Task b = task(2, true);
+    final Task c = task(3, true);
+    final List<Task> ready = Arrays.asList(a, b, c);
+
+    assertThat(pct.chooseTask(ready)).isEqualTo(0);
+    assertThat(pct.chooseTask(ready)).isEqualTo(0); // step 2: a drops
+    assertThat(pct.chooseTask(ready)).isEqualTo(1);
+    assertThat(pct.chooseTask(ready)).isEqualTo(1);
+    assertThat(pct.chooseTask(ready)).isEqualTo(1); // step 5: b drops
+    assertThat(pct.chooseTask(ready)).isEqualTo(2);
+    assertThat(pct.chooseTask(Arrays.asList(a, b))).isEqualTo(1);
+  }
+
+  @Test
+  public void pctCountsOnlyStepsThatRun() {
+    final PctChoice pct = new PctChoice(draws(0, 300, 200, 100), 2, 10);
+    final Task notReady = task(1, false);
+    final Task a = task(2, true);
+    final Task b = task(3, true);
+
+    assertThat(pct.chooseTask(Arrays.asList(notReady, a))).isEqualTo(0); // parked: not step 1
+    assertThat(pct.chooseTask(Arrays.asList(a, b))).isEqualTo(0); // step 1: a drops
+    assertThat(pct.chooseTask(Arrays.asList(a, b))).isEqualTo(1);
+  }
+
+  // a Random answering with values, in turn
+  private static Random draws(final int... values) {
+    final int[] next = {0};
+    return bound -> values[next[0]++];
+  }
+
+  private static Task task(final long chain, final boolean isReady) {
+    return new Task(new Continuation() {
+      @Override
+      public boolean isReady() {
+        return isReady;
+      }
+
+      @Override
+      public void compute(final TaskScheduler scheduler) {
+      }
+    }, 0, chain);
+  }
+
+  // true if b's step ran straight after a's 10th
+  private static boolean depthTwoBug(final TestScheduler scheduler) {
+    final List<Integer> trace = interleaving(scheduler, STEPS, 1);
+    return trace.indexOf(100) == 10;
+  }
+
+  private static List<Integer> interleaving(final TestScheduler scheduler) {
+    return interleaving(scheduler, STEPS, STEPS);
+  }
+
+  // chain a records 0, 1, 2..., chain b records 100, 101...
+  private static List<Integer> interleaving(final TestScheduler scheduler, final int aSteps, final int bSteps) {
+    final List<Integer> trace = new ArrayList<>();
+    scheduler.schedule(steps(trace, 0, aSteps));
+    scheduler.schedule(steps(trace, 100, bSteps));
+    scheduler.triggerActions();
+    return trace;
+  }
+
+  private static Continuation steps(final List<Integer> trace, final int first, final int n) {
+    final Continuation[] steps = new Continuation[n];
+    for (int i = 0; i < n; i++) {
+      final int value = first + i;
+      steps[i] = statement(() -> {trace.add(value);});
+    }
+    return sequence(steps);
+  }
+}
@@ -0,0 +1,26 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.ChannelBiDirectional;
+
+import static com.thoughtpropulsion.ControlStructures.select;
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExploreSeedsTest {
+
+  @ExploreSeeds(seeds = 200)
+  public void handoffLosesNothing(final int seed) {
+    final TestScheduler scheduler = new TestScheduler(new VirtualTime(), seed);
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    final int[] received = {0};
+    for (int i = 0; i < 5; i++) {
+      final int value = i;
+      scheduler.schedule(select(channel.getWriting().onSend(() -> {channel.getWriting().put(value);})));
+    }
+    scheduler.schedule(whileSelect(channel.getReading().onReceive(value -> {received[0]++;})));
+
+    scheduler.triggerActions();
+
+    assertThat(received[0]).isEqualTo(5);
+  }
+}
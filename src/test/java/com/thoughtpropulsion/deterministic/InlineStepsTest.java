@@ -0,0 +1,94 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Continuation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.thoughtpropulsion.ControlStructures.sequence;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InlineStepsTest {
+
+  private static final int STEPS = 20;
+
+  @Test
+  public void budgetMustNotBeNegative() {
+    assertThatThrownBy(() -> new TestScheduler(new VirtualTime(), 0, -1))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void stepsRunInOrder() {
+    for (int seed = 0; seed < 10; seed++) {
+      final TestScheduler scheduler = new TestScheduler(new VirtualTime(), seed, 8);
+      final List<Integer> trace = new ArrayList<>();
+      scheduler.schedule(steps(trace, 0));
+
+      scheduler.triggerActions();
+
+      assertThat(trace).hasSize(STEPS);
+      for (int i = 0; i < STEPS; i++) {
+        assertThat(trace.get(i)).isEqualTo(i);
+      }
+    }
+  }
+
+  @Test
+  public void sameSeedSameInterleaving() {
+    assertThat(interleaving(42, 8)).isEqualTo(interleaving(42, 8));
+  }
+
+  /*
+   Straight-line code runs inline, but the seed still decides where it's preempted: across
+   seeds, the two sequences interleave in more than one way.
+   */
+  @Test
+  public void seedsDecidePreemption() {
+    final Set<List<Integer>> interleavings = new HashSet<>();
+    for (int seed = 0; seed < 20; seed++) {
+      interleavings.add(interleaving(seed, 8));
+    }
+    assertThat(interleavings.size()).isGreaterThan(1);
+  }
+
+  @Test
+  public void longRunsDontGrowTheStack() {
+    final TestScheduler scheduler = new TestScheduler(new VirtualTime(), 0, 1_000_000);
+    final int n = 100_000;
+    final Continuation[] steps = new Continuation[n];
+    final int[] count = {0};
+    for (int i = 0; i < n; i++) {
+      steps[i] = statement(() -> {count[0]++;});
+    }
+    scheduler.schedule(sequence(steps));
+
+    scheduler.triggerActions();
+
+    assertThat(count[0]).isEqualTo(n);
+  }
+
+  // two sequences run concurrently: one records 0..STEPS-1, the other 100..100+STEPS-1
+  private static List<Integer> interleaving(final int seed, final int maxInlineSteps) {
+    final TestScheduler scheduler = new TestScheduler(new VirtualTime(), seed, maxInlineSteps);
+    final List<Integer> trace = new ArrayList<>();
+    scheduler.schedule(steps(trace, 0));
+    scheduler.schedule(steps(trace, 100));
+    scheduler.triggerActions();
+    return trace;
+  }
+
+  private static Continuation steps(final List<Integer> trace, final int first) {
+    final Continuation[] steps = new Continuation[STEPS];
+    for (int i = 0; i < STEPS; i++) {
+      final int value = first + i;
+      steps[i] = statement(() -> {trace.add(value);});
+    }
+    return sequence(steps);
+  }
+}
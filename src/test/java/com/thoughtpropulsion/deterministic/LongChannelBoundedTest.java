@@ -0,0 +1,86 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.LongChannel;
+import com.thoughtpropulsion.SelectClause;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongChannelBoundedTest {
+
+  private LongChannelBounded channel1;
+  private LongChannelBounded channel2;
+
+  @BeforeEach
+  public void beforeEach() {
+    channel1 = new LongChannelBounded(1);
+    channel2 = new LongChannelBounded(2);
+  }
+
+  @Test
+  public void mustNotBeSynchronous() {
+    assertThatThrownBy(() -> new LongChannelBounded(0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void canPutAndGet() {
+    channel1.getWriting().put(Long.MAX_VALUE);
+    assertThat(channel1.getReading().get()).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void overflowThrows() {
+    channel1.getWriting().put(1);
+    assertThatThrownBy(() -> channel1.getWriting().put(2)).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void underflowThrows() {
+    assertThatThrownBy(() -> channel1.getReading().get()).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void wraps2() {
+    final LongChannel.Writing writing = channel2.getWriting();
+    writing.put(1);
+    writing.put(2);
+    final LongChannel.Reading reading = channel2.getReading();
+    assertThat(reading.get()).isEqualTo(1);
+    writing.put(3);
+    assertThat(reading.get()).isEqualTo(2);
+    writing.put(4);
+    assertThat(reading.get()).isEqualTo(3);
+    assertThat(reading.get()).isEqualTo(4);
+    assertThatThrownBy(() -> reading.get()).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void receiveDrainsThenConsumesClose() {
+    final List<Long> values = new ArrayList<>();
+    final List<Boolean> closed = new ArrayList<>();
+    final SelectClause clause = channel2.getReading().onReceiveOrClosed(
+      value -> values.add(value),
+      () -> closed.add(true));
+
+    channel2.getWriting().put(7);
+    channel2.getWriting().close();
+
+    assertThat(clause.getClause().getAsBoolean()).isTrue();
+    assertThat(channel2.getReading().isReady()).isTrue();
+    assertThat(clause.getClause().getAsBoolean()).isTrue();
+    assertThat(channel2.getReading().isReady()).isFalse();
+    assertThat(values).containsExactly(7L);
+    assertThat(closed).containsExactly(true);
+  }
+
+  @Test
+  public void clauseIsItsOwnSupplier() {
+    final SelectClause clause = channel1.getReading().onReceive((long value) -> {});
+    assertThat(clause.getClause()).isSameAs(clause.getClause());
+  }
+}
@@ -0,0 +1,107 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.NanoTime;
+import com.thoughtpropulsion.TaskScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtpropulsion.ControlStructures.select;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuiescenceTest {
+
+  private VirtualTime virtualTime;
+  private TestScheduler scheduler;
+
+  @BeforeEach
+  public void before() {
+    virtualTime = new VirtualTime();
+    scheduler = new TestScheduler(virtualTime);
+  }
+
+  @Test
+  public void fastForwardsThroughADay() {
+    final int[] ticks = {0};
+    scheduler.schedule(every(1, TimeUnit.HOURS, ticks, 24), 1, TimeUnit.HOURS);
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+
+    assertThat(ticks[0]).isEqualTo(24);
+    assertThat(virtualTime.nanoTime()).isEqualTo(TimeUnit.DAYS.toNanos(1));
+  }
+
+  @Test
+  public void runForStopsWhenTimeIsUp() {
+    final int[] ticks = {0};
+    scheduler.schedule(every(1, TimeUnit.MINUTES, ticks, Integer.MAX_VALUE));
+
+    assertThat(scheduler.runFor(90, TimeUnit.SECONDS)).isEqualTo(Quiescence.RUNNING);
+
+    assertThat(ticks[0]).isEqualTo(2); // at 0s and 60s
+    assertThat(virtualTime.nanoTime()).isEqualTo(TimeUnit.SECONDS.toNanos(90));
+  }
+
+  @Test
+  public void runForStopsEarlyOnceQuiescent() {
+    scheduler.schedule(statement(() -> {}), 1, TimeUnit.SECONDS);
+
+    assertThat(scheduler.runFor(1, TimeUnit.HOURS)).isEqualTo(Quiescence.QUIESCENT);
+
+    assertThat(virtualTime.nanoTime()).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+  }
+
+  @Test
+  public void detectsDeadlock() {
+    final ChannelBiDirectional<Integer> a = scheduler.createBoundedChannel(Integer.class, 1);
+    final ChannelBiDirectional<Integer> b = scheduler.createBoundedChannel(Integer.class, 1);
+    // each waits for the other to go first
+    scheduler.schedule(select(a.getReading().onReceive(value -> {b.getWriting().put(value);})));
+    scheduler.schedule(select(b.getReading().onReceive(value -> {a.getWriting().put(value);})));
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.BLOCKED);
+  }
+
+  @Test
+  public void blockedTasksCanBeWokenLater() {
+    final ChannelBiDirectional<Integer> channel = scheduler.createBoundedChannel(Integer.class, 1);
+    final int[] received = {0};
+    scheduler.schedule(select(channel.getReading().onReceive(value -> {received[0] = value;})));
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.BLOCKED);
+
+    channel.getWriting().put(42);
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(received[0]).isEqualTo(42);
+  }
+
+  @Test
+  public void needsVirtualTime() {
+    final NanoTime realTime = System::nanoTime;
+    assertThatThrownBy(() -> new TestScheduler(realTime).runUntilQuiescent())
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  // a timer that goes off times times, period apart
+  private static Continuation every(final long period, final TimeUnit unit, final int[] ticks, final int times) {
+    return new Continuation() {
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void compute(final TaskScheduler scheduler) {
+        if (++ticks[0] < times) {
+          scheduler.schedule(this, period, unit);
+        }
+      }
+    };
+  }
+}
@@ -0,0 +1,94 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.Continuation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.thoughtpropulsion.ControlStructures.sequence;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScheduleTraceTest {
+
+  @Test
+  public void encodesChoicesAsVarints() {
+    final ScheduleTrace trace = ScheduleTrace.of(0, 1, 127, 128, 300, Integer.MAX_VALUE);
+
+    assertThat(trace.toBytes().length).isEqualTo(1 + 1 + 1 + 2 + 2 + 5);
+    final ScheduleTrace decoded = ScheduleTrace.fromBytes(trace.toBytes());
+    assertThat(decoded.length()).isEqualTo(6);
+    assertThat(decoded.toChoices()).isEqualTo(new int[]{0, 1, 127, 128, 300, Integer.MAX_VALUE});
+  }
+
+  @Test
+  public void truncatedTraceIsRejected() {
+    assertThatThrownBy(() -> ScheduleTrace.fromBytes(new byte[]{(byte) 0x80}))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void replayReproducesTheRunWithoutTheSeed() {
+    for (int seed = 0; seed < 20; seed++) {
+      final ScheduleTrace trace = new ScheduleTrace();
+      final List<Integer> recorded =
+        interleaving(new TestScheduler(new VirtualTime(), seed, 4, trace.recording(ChoiceStrategy.UNIFORM)), 20);
+
+      final List<Integer> replayed =
+        interleaving(new TestScheduler(new VirtualTime(), seed + 1, 4, trace.replaying()), 20);
+
+      assertThat(replayed).isEqualTo(recorded);
+    }
+  }
+
+  /*
+   The bug needs chain b to run right after a's 10th step. The shortest trace that gets there:
+   pick a's first step (0), then a's next nine over b's (1), and then b (0, implied).
+   */
+  @Test
+  public void shrinksToTheChoicesThatMatter() {
+    ScheduleTrace failing = null;
+    for (int seed = 0; failing == null; seed++) {
+      final ScheduleTrace trace = new ScheduleTrace();
+      if (ranBAfter10th(new TestScheduler(new VirtualTime(), seed, 0, trace.recording(ChoiceStrategy.pct(2, 21))))) {
+        failing = trace;
+      }
+    }
+
+    final ScheduleTrace shrunk = new TraceShrinker(choices -> {
+      assertThat(ranBAfter10th(new TestScheduler(new VirtualTime(), 0, 0, choices))).isFalse();
+    }).shrink(failing);
+
+    assertThat(shrunk.toChoices()).isEqualTo(new int[]{0, 1, 1, 1, 1, 1, 1, 1, 1, 1});
+  }
+
+  @Test
+  public void cantShrinkAPassingTrace() {
+    assertThatThrownBy(() -> new TraceShrinker(choices -> {}).shrink(ScheduleTrace.of(1, 2, 3)))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static boolean ranBAfter10th(final TestScheduler scheduler) {
+    return interleaving(scheduler, 1).indexOf(100) == 10;
+  }
+
+  // chain a records 0..19, chain b records 100, 101...
+  private static List<Integer> interleaving(final TestScheduler scheduler, final int bSteps) {
+    final List<Integer> trace = new ArrayList<>();
+    scheduler.schedule(steps(trace, 0, 20));
+    scheduler.schedule(steps(trace, 100, bSteps));
+    scheduler.triggerActions();
+    return trace;
+  }
+
+  private static Continuation steps(final List<Integer> trace, final int first, final int n) {
+    final Continuation[] steps = new Continuation[n];
+    for (int i = 0; i < n; i++) {
+      final int value = first + i;
+      steps[i] = statement(() -> {trace.add(value);});
+    }
+    return sequence(steps);
+  }
+}
@@ -0,0 +1,75 @@
+package com.thoughtpropulsion.deterministic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.thoughtpropulsion.ControlStructures.sequence;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SeedExplorerTest {
+
+  @Test
+  public void runsEverySeedOnce() {
+    final Set<Integer> seeds = ConcurrentHashMap.newKeySet();
+    final AtomicInteger runs = new AtomicInteger();
+
+    final SeedExplorer.Exploration exploration = new SeedExplorer(seed -> {
+      seeds.add(seed);
+      runs.incrementAndGet();
+    }, 4).explore(100, 1000);
+
+    assertThat(exploration.passed()).isTrue();
+    assertThat(exploration.getSeedsRun()).isEqualTo(1000L);
+    assertThat(runs.get()).isEqualTo(1000);
+    assertThat(seeds).hasSize(1000);
+    assertThat(seeds).contains(100, 1099);
+  }
+
+  @Test
+  public void findsLostUpdates() {
+    final SeedExplorer.Exploration exploration = new SeedExplorer(SeedExplorerTest::lostUpdate, 4).explore(0, 1000);
+
+    assertThat(exploration.passed()).isFalse();
+    for (final SeedExplorer.Failure failure : exploration.getFailures()) {
+      assertThat(failure.getCause()).isInstanceOf(AssertionError.class);
+      // a failing seed fails every time
+      assertThatThrownBy(() -> lostUpdate(failure.getSeed())).isInstanceOf(AssertionError.class);
+    }
+  }
+
+  @Test
+  public void stopsSoonAfterAFailure() {
+    final SeedExplorer.Exploration exploration = new SeedExplorer(seed -> {
+      if (seed >= 10) {
+        throw new IllegalStateException("seed " + seed);
+      }
+    }, 2).explore(0, 100_000);
+
+    assertThat(exploration.getSeedsRun()).isLessThan(100L);
+    assertThat(exploration.getFailures().get(0).getSeed()).isEqualTo(10);
+    assertThatThrownBy(exploration::assertPassed)
+      .isInstanceOf(AssertionError.class)
+      .hasMessageContaining("seed 10");
+  }
+
+  // two read-modify-write coroutines; whether an update is lost depends on the seed
+  private static void lostUpdate(final int seed) {
+    final TestScheduler scheduler = new TestScheduler(new VirtualTime(), seed);
+    final int[] register = {0};
+    for (int i = 0; i < 2; i++) {
+      final int[] read = {0};
+      scheduler.schedule(sequence(
+        statement(() -> {read[0] = register[0];}),
+        statement(() -> {register[0] = read[0] + 1;})));
+    }
+
+    scheduler.triggerActions();
+
+    assertThat(register[0]).as("lost update").isEqualTo(2);
+  }
+}
@@ -0,0 +1,70 @@
+package com.thoughtpropulsion.deterministic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentedQueueTest {
+
+  private static final int SEGMENT = SegmentedQueue.MAX_SEGMENT_LENGTH;
+
+  @Test
+  public void allocatesNothingUntilWrittenTo() {
+    assertThat(new SegmentedQueue<Integer>(1_000_000).segments()).isEqualTo(0);
+  }
+
+  @Test
+  public void firstInFirstOutAcrossSegments() {
+    final SegmentedQueue<Integer> queue = new SegmentedQueue<>(Integer.MAX_VALUE);
+    final int n = 3 * SEGMENT + 7;
+    for (int i = 0; i < n; i++) {
+      queue.add(i);
+    }
+    for (int i = 0; i < n; i++) {
+      assertThat(queue.get(i)).isEqualTo(i);
+    }
+    assertThat(queue.get(5)).isEqualTo(5); // going back restarts from the head
+    for (int i = 0; i < n; i++) {
+      assertThat(queue.remove()).isEqualTo(i);
+    }
+    assertThat(queue.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void footprintFollowsOccupancy() {
+    final SegmentedQueue<Integer> queue = new SegmentedQueue<>(1_000_000);
+    for (int i = 0; i < 10; i++) {
+      queue.add(i);
+    }
+    assertThat(queue.segments()).isEqualTo(1);
+
+    for (int i = 0; i < 100 * SEGMENT; i++) {
+      queue.add(i);
+    }
+    assertThat(queue.segments()).isGreaterThan(100);
+
+    queue.remove(queue.size());
+    assertThat(queue.segments()).isLessThanOrEqualTo(3); // the head, and a couple pooled
+  }
+
+  @Test
+  public void steadyLevelReusesSegments() {
+    final SegmentedQueue<Integer> queue = new SegmentedQueue<>(2);
+    queue.add(0);
+    for (int i = 1; i < 1000; i++) {
+      queue.add(i);
+      assertThat(queue.remove()).isEqualTo(i - 1);
+    }
+    assertThat(queue.segments()).isLessThanOrEqualTo(3);
+  }
+
+  @Test
+  public void smallQueuesGetSmallSegments() {
+    final SegmentedQueue<Integer> queue = new SegmentedQueue<>(1);
+    for (int i = 0; i < 5; i++) {
+      queue.add(i);
+      assertThat(queue.remove()).isEqualTo(i);
+    }
+    assertThat(queue.segments()).isEqualTo(1);
+  }
+}
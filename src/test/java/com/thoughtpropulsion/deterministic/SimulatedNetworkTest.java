@@ -0,0 +1,230 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.RandomImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SimulatedNetworkTest {
+
+  private VirtualTime virtualTime;
+  private TestScheduler scheduler;
+
+  @BeforeEach
+  public void before() {
+    virtualTime = new VirtualTime();
+    scheduler = new TestScheduler(virtualTime, 1);
+  }
+
+  @Test
+  public void messagesArriveAfterTheLatency() {
+    final SimulatedNetwork network = new SimulatedNetwork(scheduler, new RandomImpl(1),
+        new LinkConditions(Latency.fixed(10, MILLISECONDS), 0, 0, true));
+    final ChannelBiDirectional<Integer> link = network.createLink(Integer.class, "a", "b", 4);
+    final List<Long> arrivals = new ArrayList<>();
+    scheduler.schedule(send(link.getWriting(), 2));
+    scheduler.schedule(receive(link.getReading(), value -> arrivals.add(virtualTime.nanoTime())));
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(arrivals).containsExactly(MILLISECONDS.toNanos(10), MILLISECONDS.toNanos(10));
+  }
+
+  @Test
+  public void bandwidthSpacesOutABurst() {
+    final SimulatedNetwork network = new SimulatedNetwork(scheduler, new RandomImpl(1),
+        new LinkConditions(Latency.fixed(0, MILLISECONDS), 0, 1000, true));
+    final ChannelBiDirectional<Integer> link = network.createLink(Integer.class, "a", "b", 8, value -> 100);
+    final List<Long> arrivals = new ArrayList<>();
+    scheduler.schedule(send(link.getWriting(), 4));
+    scheduler.schedule(receive(link.getReading(), value -> arrivals.add(virtualTime.nanoTime())));
+
+    scheduler.runUntilQuiescent();
+    assertThat(arrivals).containsExactly(
+        MILLISECONDS.toNanos(100), MILLISECONDS.toNanos(200), MILLISECONDS.toNanos(300), MILLISECONDS.toNanos(400));
+  }
+
+  @Test
+  public void lossDropsAboutThatFraction() {
+    final SimulatedNetwork network = new SimulatedNetwork(scheduler, new RandomImpl(1),
+        new LinkConditions(Latency.fixed(1, MILLISECONDS), 0.25, 0, true));
+    final ChannelBiDirectional<Integer> link = network.createLink(Integer.class, "a", "b", 16);
+    final List<Integer> received = new ArrayList<>();
+    scheduler.schedule(send(link.getWriting(), 10_000));
+    scheduler.schedule(receive(link.getReading(), received::add));
+
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(network.getLost()).isBetween(2_300L, 2_700L);
+    assertThat(network.getDelivered()).isEqualTo(10_000 - network.getLost()).isEqualTo(received.size());
+    assertThat(received).isEqualTo(sorted(received));
+  }
+
+  @Test
+  public void jitterReordersOnlyUnorderedLinks() {
+    final SimulatedNetwork network = new SimulatedNetwork(scheduler, new RandomImpl(1));
+    network.setConditions("a", "b", new LinkConditions(Latency.uniform(1, 100, MILLISECONDS), 0, 0, false));
+    network.setConditions("a", "c", new LinkConditions(Latency.uniform(1, 100, MILLISECONDS), 0, 0, true));
+    final ChannelBiDirectional<Integer> unordered = network.createLink(Integer.class, "a", "b", 100);
+    final ChannelBiDirectional<Integer> ordered = network.createLink(Integer.class, "a", "c", 100);
+    final List<Integer> atB = new ArrayList<>();
+    final List<Integer> atC = new ArrayList<>();
+    scheduler.schedule(send(unordered.getWriting(), 100));
+    scheduler.schedule(send(ordered.getWriting(), 100));
+    scheduler.schedule(receive(unordered.getReading(), atB::add));
+    scheduler.schedule(receive(ordered.getReading(), atC::add));
+
+    scheduler.runUntilQuiescent();
+    assertThat(atC).isEqualTo(sorted(atC)).hasSize(100);
+    assertThat(atB).isNotEqualTo(atC);
+    assertThat(sorted(atB)).isEqualTo(atC);
+  }
+
+  @Test
+  public void partitionLosesMessagesUntilHealed() {
+    final SimulatedNetwork network = new SimulatedNetwork(scheduler, new RandomImpl(1),
+        new LinkConditions(Latency.fixed(10, MILLISECONDS), 0, 0, true));
+    final ChannelBiDirectional<Integer> link = network.createLink(Integer.class, "a", "b", 4);
+    final List<Integer> received = new ArrayList<>();
+    scheduler.schedule(receive(link.getReading(), received::add));
+
+    link.getWriting().put(1);
+    scheduler.runFor(5, MILLISECONDS);
+    network.partition(Set.of("b")); // 1 is on the wire
+    assertThat(network.canReach("a", "b")).isFalse();
+    assertThat(network.canReach("a", "c")).isTrue();
+    link.getWriting().put(2);
+    scheduler.runFor(20, MILLISECONDS);
+    link.getWriting().put(3);
+    scheduler.runFor(5, MILLISECONDS);
+    network.heal(); // 3 is on the wire, sent across the partition
+    link.getWriting().put(4);
+    scheduler.runFor(20, MILLISECONDS);
+
+    assertThat(received).containsExactly(4);
+    assertThat(network.getLost()).isEqualTo(3);
+  }
+
+  @Test
+  public void lostMessagesFreeTheWindow() {
+    final SimulatedNetwork network = new SimulatedNetwork(scheduler, new RandomImpl(1),
+        new LinkConditions(Latency.fixed(10, MILLISECONDS), 1, 0, true));
+    final ChannelBiDirectional<Integer> link = network.createLink(Integer.class, "a", "b", 2);
+    final List<Integer> received = new ArrayList<>();
+    scheduler.schedule(send(link.getWriting(), 10));
+    scheduler.schedule(receive(link.getReading(), received::add));
+
+    // quiescent: the receiver saw the close, so the sender got all 10 out
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(network.getLost()).isEqualTo(10);
+    assertThat(received).isEmpty();
+  }
+
+  @Test
+  public void aSeedReproducesTheRun() {
+    for (int seed = 0; seed < 10; seed++) {
+      assertThat(gossip(seed)).isEqualTo(gossip(seed));
+    }
+    assertThat(gossip(1)).isNotEqualTo(gossip(2));
+  }
+
+  @Test
+  public void runsHoursOfVirtualTime() {
+    final SimulatedNetwork network = new SimulatedNetwork(scheduler, new RandomImpl(1),
+        new LinkConditions(Latency.exponential(50, 50, MILLISECONDS), 0, 0, true));
+    final ChannelBiDirectional<Integer> ping = network.createLink(Integer.class, "a", "b", 1);
+    final ChannelBiDirectional<Integer> pong = network.createLink(Integer.class, "b", "a", 1);
+    final int roundTrips = 20_000;
+    final int[] returned = {0};
+    scheduler.schedule(whileSelect(pong.getReading().onReceive(value -> {
+      returned[0] = value;
+      if (value == roundTrips) {
+        ping.getWriting().close();
+        return false;
+      }
+      ping.getWriting().put(value + 1);
+      return true;
+    })));
+    scheduler.schedule(whileSelect(ping.getReading().onReceiveOrClosed((value, isClosed) -> {
+      if (isClosed) {
+        pong.getWriting().close();
+        return false;
+      }
+      pong.getWriting().put(value);
+      return true;
+    })));
+    ping.getWriting().put(1);
+
+    final long start = System.nanoTime();
+    assertThat(scheduler.runUntilQuiescent()).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(returned[0]).isEqualTo(roundTrips);
+    assertThat(virtualTime.nanoTime()).isGreaterThan(SECONDS.toNanos(3_600));
+    assertThat(System.nanoTime() - start).isLessThan(SECONDS.toNanos(10));
+  }
+
+  /*
+   Three nodes, each sending to the other two over lossy, jittery links. Returns who got what,
+   and when.
+   */
+  private static List<String> gossip(final int seed) {
+    final VirtualTime time = new VirtualTime();
+    final TestScheduler scheduler = new TestScheduler(time, seed);
+    final SimulatedNetwork network = new SimulatedNetwork(scheduler, new RandomImpl(seed),
+        new LinkConditions(Latency.exponential(1, 20, MILLISECONDS), 0.1, 0, false));
+    final List<String> log = new ArrayList<>();
+    final String[] nodes = {"a", "b", "c"};
+    for (final String from : nodes) {
+      for (final String to : nodes) {
+        if (!from.equals(to)) {
+          final ChannelBiDirectional<Integer> link = network.createLink(Integer.class, from, to, 4);
+          scheduler.schedule(send(link.getWriting(), 50));
+          scheduler.schedule(receive(link.getReading(),
+              value -> log.add(time.nanoTime() + " " + from + " -> " + to + ": " + value)));
+        }
+      }
+    }
+    scheduler.runUntilQuiescent();
+    return log;
+  }
+
+  // put 0 to count - 1, then close
+  private static Continuation send(final ChannelWriting<Integer> writing, final int count) {
+    final int[] next = {0};
+    return whileSelect(writing.onSend(w -> {
+      w.put(next[0]++);
+      if (next[0] == count) {
+        w.close();
+        return false;
+      }
+      return true;
+    }));
+  }
+
+  private static List<Integer> sorted(final List<Integer> values) {
+    final List<Integer> copy = new ArrayList<>(values);
+    copy.sort(null);
+    return copy;
+  }
+
+  private static Continuation receive(final ChannelReading<Integer> reading,
+                                      final Consumer<Integer> receiver) {
+    return whileSelect(reading.onReceiveOrClosed((value, isClosed) -> {
+      if (isClosed) {
+        return false;
+      }
+      receiver.accept(value);
+      return true;
+    }));
+  }
+}
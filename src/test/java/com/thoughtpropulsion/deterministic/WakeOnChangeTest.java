@@ -0,0 +1,191 @@
+package com.thoughtpropulsion.deterministic;
+
+import com.thoughtpropulsion.ChannelBiDirectional;
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.TaskScheduler;
+import com.thoughtpropulsion.Waker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static com.thoughtpropulsion.ControlStructures.select;
+import static com.thoughtpropulsion.ControlStructures.statement;
+import static com.thoughtpropulsion.ControlStructures.whileLoop;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WakeOnChangeTest {
+
+  private VirtualTime virtualTime;
+  private TestScheduler scheduler;
+  private ChannelBiDirectional<Integer> channel;
+
+  @BeforeEach
+  public void before() {
+    virtualTime = new VirtualTime();
+    scheduler = new TestScheduler(virtualTime);
+    channel = scheduler.createBoundedChannel(Integer.class, 1);
+  }
+
+  @Test
+  public void blockedSelectIsNotPolled() {
+    final AtomicInteger received = new AtomicInteger(0);
+    final CountingContinuation blocked =
+      new CountingContinuation(select(channel.getReading().onReceive(received::set)));
+
+    scheduler.schedule(blocked);
+    scheduler.schedule(busyLoop(100));
+
+    scheduler.triggerActions();
+
+    assertThat(received.get()).isEqualTo(0);
+    assertThat(blocked.isReadyCalls).as("polled while parked").isEqualTo(1);
+
+    channel.getWriting().put(42);
+    scheduler.triggerActions();
+
+    assertThat(received.get()).isEqualTo(42);
+    assertThat(blocked.isReadyCalls).isEqualTo(2);
+  }
+
+  @Test
+  public void closeWakesReader() {
+    final AtomicBoolean closed = new AtomicBoolean(false);
+
+    scheduler.schedule(select(channel.getReading().onReceiveOrClosed((value, isClosed) -> {
+      closed.set(isClosed);
+      return true;
+    })));
+    scheduler.triggerActions();
+
+    channel.getWriting().close();
+    scheduler.triggerActions();
+
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test
+  public void getWakesWriter() {
+    channel.getWriting().put(1);
+    final AtomicBoolean sent = new AtomicBoolean(false);
+
+    scheduler.schedule(select(channel.getWriting().onSend(() -> {
+      channel.getWriting().put(2);
+      sent.set(true);
+    })));
+    scheduler.triggerActions();
+    assertThat(sent.get()).isFalse();
+
+    assertThat(channel.getReading().get()).isEqualTo(1);
+    scheduler.triggerActions();
+
+    assertThat(sent.get()).isTrue();
+    assertThat(channel.getReading().get()).isEqualTo(2);
+  }
+
+  @Test
+  public void continuationThatCannotBeWokenIsPolled() {
+    final AtomicBoolean flag = new AtomicBoolean(false);
+    final AtomicBoolean ran = new AtomicBoolean(false);
+
+    scheduler.schedule(new Continuation() {
+      @Override
+      public boolean isReady() {
+        return flag.get();
+      }
+
+      @Override
+      public void compute(final TaskScheduler scheduler) {
+        ran.set(true);
+      }
+    });
+    scheduler.schedule(statement(() -> flag.set(true)));
+
+    scheduler.triggerActions();
+
+    assertThat(ran.get()).isTrue();
+  }
+
+  // with nothing else to run, a later triggerActions() still looks at it
+  @Test
+  public void continuationThatCannotBeWokenIsPolledOnTheNextTrigger() {
+    final AtomicBoolean flag = new AtomicBoolean(false);
+    final AtomicBoolean ran = new AtomicBoolean(false);
+    scheduler.schedule(when(flag::get, () -> ran.set(true)));
+
+    scheduler.triggerActions();
+    assertThat(ran.get()).isFalse();
+
+    flag.set(true);
+    scheduler.triggerActions();
+
+    assertThat(ran.get()).isTrue();
+  }
+
+  @Test
+  public void continuationWaitingOnTheTimeIsPolledAsTimeMovesOn() {
+    final AtomicBoolean ran = new AtomicBoolean(false);
+    scheduler.schedule(when(() -> virtualTime.nanoTime() >= MILLISECONDS.toNanos(10), () -> ran.set(true)));
+
+    assertThat(scheduler.runFor(5, MILLISECONDS)).isEqualTo(Quiescence.BLOCKED);
+    assertThat(ran.get()).isFalse();
+
+    assertThat(scheduler.runFor(5, MILLISECONDS)).isEqualTo(Quiescence.QUIESCENT);
+    assertThat(ran.get()).isTrue();
+  }
+
+  // a continuation that can't be woken: ready once condition holds
+  private static Continuation when(final BooleanSupplier condition, final Runnable action) {
+    return new Continuation() {
+      @Override
+      public boolean isReady() {
+        return condition.getAsBoolean();
+      }
+
+      @Override
+      public void compute(final TaskScheduler scheduler) {
+        action.run();
+      }
+    };
+  }
+
+  private Continuation busyLoop(final int iterations) {
+    return new Supplier<Continuation>() {
+      int i;
+
+      @Override
+      public Continuation get() {
+        return whileLoop(() -> i < iterations, statement(() -> ++i));
+      }
+    }.get();
+  }
+
+  private static class CountingContinuation implements Continuation {
+    private final Continuation delegate;
+    int isReadyCalls;
+
+    CountingContinuation(final Continuation delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean isReady() {
+      ++isReadyCalls;
+      return delegate.isReady();
+    }
+
+    @Override
+    public boolean awaitReadiness(final Waker waker) {
+      return delegate.awaitReadiness(waker);
+    }
+
+    @Override
+    public void compute(final TaskScheduler scheduler) {
+      delegate.compute(scheduler);
+    }
+  }
+}
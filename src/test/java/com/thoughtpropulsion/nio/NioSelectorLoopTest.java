@@ -0,0 +1,190 @@
+package com.thoughtpropulsion.nio;
+
+import com.thoughtpropulsion.ChannelReading;
+import com.thoughtpropulsion.ChannelWriting;
+import com.thoughtpropulsion.Continuation;
+import com.thoughtpropulsion.concurrent.WorkStealingScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.thoughtpropulsion.ControlStructures.whileSelect;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NioSelectorLoopTest {
+
+  private WorkStealingScheduler scheduler;
+  private NioSelectorLoop loop;
+
+  @BeforeEach
+  public void before() throws IOException {
+    scheduler = new WorkStealingScheduler(4);
+    loop = new NioSelectorLoop();
+  }
+
+  @AfterEach
+  public void after() throws InterruptedException {
+    loop.close();
+    scheduler.close();
+  }
+
+  @Test
+  public void echoesManyConnectionsOverLoopback() throws IOException {
+    final ServerSocketChannel server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress("127.0.0.1", 0));
+    final ChannelReading<NioConnection> accepted = loop.listen(server);
+    scheduler.schedule(whileSelect(accepted.onReceive(connection -> {
+      scheduler.schedule(echo(connection));
+    })));
+
+    final List<Socket> clients = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      final Socket client = new Socket("127.0.0.1", server.socket().getLocalPort());
+      client.getOutputStream().write(("hello " + i).getBytes(StandardCharsets.UTF_8));
+      client.shutdownOutput();
+      clients.add(client);
+    }
+    for (int i = 0; i < clients.size(); i++) {
+      try (Socket client = clients.get(i)) {
+        assertThat(new String(readAll(client.getInputStream()), StandardCharsets.UTF_8)).isEqualTo("hello " + i);
+      }
+    }
+  }
+
+  @Test
+  public void connectsSendsAndSeesTheClose() throws Exception {
+    try (ServerSocket server = new ServerSocket(0)) {
+      final NioConnection connection = loop.connect(new InetSocketAddress("127.0.0.1", server.getLocalPort()));
+      final ChannelWriting<ByteBuffer> writing = connection.getWriting();
+      writing.put(ByteBuffer.wrap("ping".getBytes(StandardCharsets.UTF_8)));
+      writing.close();
+
+      final ByteArrayOutputStream received = new ByteArrayOutputStream();
+      final CountDownLatch closed = new CountDownLatch(1);
+      scheduler.schedule(whileSelect(connection.getReading().onReceiveOrClosed((buffer, isClosed) -> {
+        if (isClosed) {
+          closed.countDown();
+          return false;
+        }
+        received.write(buffer.array(), buffer.position(), buffer.remaining());
+        return true;
+      })));
+
+      try (Socket peer = server.accept()) {
+        assertThat(new String(readAll(peer.getInputStream()), StandardCharsets.UTF_8)).isEqualTo("ping");
+        peer.getOutputStream().write("pong".getBytes(StandardCharsets.UTF_8));
+      }
+
+      assertThat(closed.await(10, SECONDS)).isTrue();
+      assertThat(received.toString(StandardCharsets.UTF_8)).isEqualTo("pong");
+      assertThat(connection.getFailure()).isNull();
+    }
+  }
+
+  @Test
+  public void stopsReadingWhileNobodyTakesWhatArrived() throws Exception {
+    final int total = 16 * 1024 * 1024;
+    try (ServerSocket server = new ServerSocket(0)) {
+      final NioConnection connection = loop.connect(new InetSocketAddress("127.0.0.1", server.getLocalPort()));
+      try (Socket peer = server.accept()) {
+        final Thread sender = new Thread(() -> {
+          try {
+            peer.getOutputStream().write(new byte[total]);
+            peer.shutdownOutput();
+          } catch (final IOException e) {
+            throw new RuntimeException(e);
+          }
+        });
+        sender.start();
+
+        sender.join(500);
+        assertThat(sender.isAlive()).isTrue(); // held back: the inbound channel is full
+        assertThat(connection.getReading().isReady()).isTrue();
+
+        final AtomicLong received = new AtomicLong();
+        final CountDownLatch closed = new CountDownLatch(1);
+        scheduler.schedule(whileSelect(connection.getReading().onReceiveOrClosed((buffer, isClosed) -> {
+          if (isClosed) {
+            closed.countDown();
+            return false;
+          }
+          received.addAndGet(buffer.remaining());
+          return true;
+        })));
+
+        assertThat(closed.await(10, SECONDS)).isTrue();
+        assertThat(received.get()).isEqualTo(total);
+        sender.join();
+      }
+    }
+  }
+
+  @Test
+  public void failedConnectClosesTheChannels() throws Exception {
+    final int port;
+    try (ServerSocket unused = new ServerSocket(0)) {
+      port = unused.getLocalPort();
+    }
+    final NioConnection connection = loop.connect(new InetSocketAddress("127.0.0.1", port));
+    final CountDownLatch closed = new CountDownLatch(1);
+    scheduler.schedule(whileSelect(connection.getReading().onReceiveOrClosed((buffer, isClosed) -> {
+      closed.countDown();
+      return false;
+    })));
+
+    assertThat(closed.await(10, SECONDS)).isTrue();
+    assertThat(connection.getFailure()).isNotNull();
+  }
+
+  // send back what arrives, then close once the peer has
+  private static Continuation echo(final NioConnection connection) {
+    final List<ByteBuffer> pending = new ArrayList<>();
+    final boolean[] peerClosed = {false};
+    final ChannelWriting<ByteBuffer> writing = connection.getWriting();
+    return whileSelect(
+        connection.getReading().onReceiveOrClosed((buffer, isClosed) -> {
+          if (!isClosed) {
+            pending.add(buffer);
+            return true;
+          }
+          peerClosed[0] = true;
+          if (pending.isEmpty()) {
+            writing.close();
+            return false;
+          }
+          return true;
+        }),
+        writing.onSendBatch(pending, w -> {
+          if (peerClosed[0] && pending.isEmpty()) {
+            w.close();
+            return false;
+          }
+          return true;
+        }));
+  }
+
+  private static byte[] readAll(final InputStream in) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[4096];
+    int n;
+    while ((n = in.read(buffer)) >= 0) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+}